@@ -0,0 +1,609 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.benchmark;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.lloseng.ocsf.client.*;
+import com.lloseng.ocsf.codec.*;
+import com.lloseng.ocsf.server.*;
+
+/**
+* The <code> OcsfBenchmark </code> class measures the performance of the
+* framework over the loopback interface, so that the effect of a change
+* to the transport can be compared with reproducible numbers. It runs:
+* <ul>
+* <li> <b>roundtrip</b>: the latency of a message sent with
+* <code>sendToServer</code>, handled by <code>handleMessageFromClient</code>
+* and sent back with <code>sendToClient</code>, one message at a time.
+* <li> <b>throughput</b>: the number of such round trips per second when
+* the client does not wait for the replies, along with the number of
+* write system calls made per message by the client.
+* <li> <b>broadcast</b>: the cost of a <code>sendToAllClients</code> call
+* until every client has received the message, with 10, 100 and 1000
+* connected clients.
+* <li> <b>accept</b>: the number of connections accepted per second.
+* </ul>
+* Each benchmark is run for a few warmup iterations, whose results are
+* discarded, followed by the measured iterations. The results are
+* printed as a table, or as CSV with the <code>-csv</code> option.<p>
+*
+* The server is configured from the command line, for example:
+* <pre>
+* java com.lloseng.ocsf.benchmark.OcsfBenchmark -mode selector:2 -codec binary
+* java com.lloseng.ocsf.benchmark.OcsfBenchmark -mode virtual -flush 32:2 roundtrip
+* </pre>
+* Run without arguments for the thread per client mode with object
+* streams, and with <code>-help</code> for all the options.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+*/
+public class OcsfBenchmark
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The names of the benchmarks, in the order they are run.
+   */
+  private static final List<String> BENCHMARKS =
+    List.of("roundtrip", "throughput", "broadcast", "accept");
+
+  /**
+   * The maximum time to wait for the replies of an iteration, in seconds.
+   */
+  private static final long TIMEOUT = 60;
+
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The port of the server.
+   */
+  private int port = 15555;
+
+  /**
+   * The transport of the server: thread, virtual or selector.
+   */
+  private String mode = "thread";
+
+  /**
+   * The number of event loops in selector mode.
+   */
+  private int selectorThreads = 1;
+
+  /**
+   * The codec, or null for object streams.
+   */
+  private MessageCodec codec = null;
+
+  /**
+   * The flush policy of both sides.
+   */
+  private FlushPolicy flushPolicy = FlushPolicy.IMMEDIATE;
+
+  /**
+   * The number of warmup and measured iterations.
+   */
+  private int warmup = 3;
+  private int iterations = 5;
+
+  /**
+   * The number of messages of an iteration of the throughput benchmark.
+   */
+  private int messages = 20000;
+
+  /**
+   * The numbers of clients of the broadcast benchmark.
+   */
+  private int[] fanOut = {10, 100, 1000};
+
+  /**
+   * The number of connections of an iteration of the accept benchmark.
+   */
+  private int connections = 500;
+
+  /**
+   * The message sent, and its size.
+   */
+  private String payload;
+
+  /**
+   * The benchmarks to run.
+   */
+  private List<String> benchmarks = BENCHMARKS;
+
+  /**
+   * Indicates if the results are printed as CSV.
+   */
+  private boolean csv = false;
+
+  /**
+   * The server under test.
+   */
+  private BenchmarkServer server;
+
+// CONSTRUCTORS *****************************************************
+
+  private OcsfBenchmark(String[] args)
+  {
+    List<String> selected = new ArrayList<>();
+    int size = 32;
+
+    for (int i=0; i<args.length; i++)
+    {
+      String arg = args[i];
+      switch (arg)
+      {
+        case "-port" -> port = Integer.parseInt(args[++i]);
+        case "-mode" -> setMode(args[++i]);
+        case "-codec" -> codec = codecNamed(args[++i]);
+        case "-flush" -> flushPolicy = flushPolicy(args[++i]);
+        case "-warmup" -> warmup = Integer.parseInt(args[++i]);
+        case "-iterations" -> iterations = Integer.parseInt(args[++i]);
+        case "-messages" -> messages = Integer.parseInt(args[++i]);
+        case "-clients" -> fanOut = Arrays.stream(args[++i].split(","))
+          .mapToInt(Integer::parseInt).toArray();
+        case "-connections" -> connections = Integer.parseInt(args[++i]);
+        case "-size" -> size = Integer.parseInt(args[++i]);
+        case "-csv" -> csv = true;
+        default ->
+        {
+          if (!BENCHMARKS.contains(arg))
+            throw new IllegalArgumentException("unknown option " + arg);
+          selected.add(arg);
+        }
+      }
+    }
+
+    payload = "x".repeat(size);
+    if (!selected.isEmpty())
+      benchmarks = selected;
+  }
+
+// INSTANCE METHODS *************************************************
+
+  private void setMode(String value)
+  {
+    String[] parts = value.split(":");
+    mode = parts[0];
+    if (!List.of("thread", "virtual", "selector").contains(mode))
+      throw new IllegalArgumentException("unknown mode " + mode);
+    if (parts.length > 1)
+      selectorThreads = Integer.parseInt(parts[1]);
+  }
+
+  private static MessageCodec codecNamed(String name)
+  {
+    return switch (name)
+    {
+      case "none" -> null;
+      case "serial" -> new SerializationCodec();
+      case "binary" -> new BinaryCodec();
+      default -> throw new IllegalArgumentException("unknown codec " + name);
+    };
+  }
+
+  private static FlushPolicy flushPolicy(String value)
+  {
+    if (value.equals("immediate"))
+      return FlushPolicy.IMMEDIATE;
+
+    String[] parts = value.split(":");
+    return FlushPolicy.batch(Integer.parseInt(parts[0]),
+      Long.parseLong(parts[1]));
+  }
+
+  /**
+   * Runs the selected benchmarks and prints their results.
+   */
+  private void run() throws Exception
+  {
+    System.out.println("# mode=" + mode
+      + (mode.equals("selector") ? ":" + selectorThreads : "")
+      + " codec=" + (codec == null ? "none" : codec.getClass().getSimpleName())
+      + " flush=" + flushPolicy + " payload=" + payload.length()
+      + " warmup=" + warmup + " iterations=" + iterations
+      + " java=" + System.getProperty("java.version"));
+
+    if (csv)
+      System.out.println("benchmark,clients,unit,mean,stdev,min,p50,p99");
+    else
+      System.out.printf("%-12s %8s %-10s %12s %12s %12s %12s %12s%n",
+        "benchmark", "clients", "unit", "mean", "stdev", "min", "p50", "p99");
+
+    server = new BenchmarkServer(port);
+    if (mode.equals("selector"))
+      server.setSelectorThreads(selectorThreads);
+    server.setVirtualThreads(mode.equals("virtual"));
+    server.setCodec(codec);
+    server.setFlushPolicy(flushPolicy);
+    server.listen();
+
+    try
+    {
+      for (String benchmark : benchmarks)
+      {
+        switch (benchmark)
+        {
+          case "roundtrip" -> roundTrip();
+          case "throughput" -> throughput();
+          case "broadcast" ->
+          {
+            for (int clients : fanOut)
+              broadcast(clients);
+          }
+          case "accept" -> accept();
+        }
+      }
+    }
+    finally
+    {
+      server.close();
+    }
+  }
+
+  /**
+   * Measures the latency of a round trip, one message at a time.
+   */
+  private void roundTrip() throws Exception
+  {
+    int count = Math.max(1, messages / 4);
+    double[] samples = new double[count * iterations];
+
+    BenchmarkClient client = connect();
+    try
+    {
+      for (int it=-warmup; it<iterations; it++)
+      {
+        for (int i=0; i<count; i++)
+        {
+          long start = System.nanoTime();
+          client.sendToServer(payload);
+          client.await(1);
+          if (it >= 0)
+            samples[it * count + i] = (System.nanoTime() - start) / 1000.0;
+        }
+      }
+    }
+    finally
+    {
+      disconnect(List.of(client));
+    }
+    report("roundtrip", 1, "us/op", samples);
+  }
+
+  /**
+   * Measures the number of round trips per second when the replies
+   * are not waited for.
+   */
+  private void throughput() throws Exception
+  {
+    double[] samples = new double[iterations];
+    double[] writes = new double[iterations];
+
+    BenchmarkClient client = connect();
+    try
+    {
+      for (int it=-warmup; it<iterations; it++)
+      {
+        long writesBefore = client.getSocketWriteCount();
+        long start = System.nanoTime();
+        for (int i=0; i<messages; i++)
+        {
+          client.sendToServer(payload);
+        }
+        client.await(messages);
+        if (it >= 0)
+        {
+          samples[it] = messages * 1e9 / (System.nanoTime() - start);
+          writes[it] = (double)(client.getSocketWriteCount() - writesBefore)
+            / messages;
+        }
+      }
+    }
+    finally
+    {
+      disconnect(List.of(client));
+    }
+    report("throughput", 1, "msg/s", samples);
+    report("writes", 1, "calls/msg", writes);
+  }
+
+  /**
+   * Measures the time taken for a broadcast to reach all the clients.
+   *
+   * @param clients the number of connected clients.
+   */
+  private void broadcast(int clients) throws Exception
+  {
+    int rounds = Math.max(10, 20000 / clients);
+    double[] samples = new double[rounds * iterations];
+    List<BenchmarkClient> connected = new ArrayList<>();
+    Semaphore received = new Semaphore(0);
+
+    try
+    {
+      for (int i=0; i<clients; i++)
+      {
+        connected.add(connect(received));
+      }
+      server.awaitClients(clients);
+
+      BenchmarkClient sender = connected.get(0);
+      for (int it=-warmup; it<iterations; it++)
+      {
+        for (int r=0; r<rounds; r++)
+        {
+          long start = System.nanoTime();
+          sender.sendToServer(BenchmarkServer.BROADCAST + payload);
+          if (!received.tryAcquire(clients, TIMEOUT, TimeUnit.SECONDS))
+            throw new IOException("broadcast timed out");
+          if (it >= 0)
+            samples[it * rounds + r] = (System.nanoTime() - start) / 1000.0;
+        }
+      }
+    }
+    finally
+    {
+      disconnect(connected);
+    }
+    report("broadcast", clients, "us/op", samples);
+  }
+
+  /**
+   * Measures the number of connections accepted per second.
+   */
+  private void accept() throws Exception
+  {
+    double[] samples = new double[iterations];
+    int threads = Math.min(8, connections);
+
+    for (int it=-warmup; it<iterations; it++)
+    {
+      List<BenchmarkClient> clients =
+        Collections.synchronizedList(new ArrayList<>());
+      server.resetConnected();
+      ExecutorService openers = Executors.newFixedThreadPool(threads);
+      try
+      {
+        long start = System.nanoTime();
+        for (int t=0; t<threads; t++)
+        {
+          int share = connections / threads + (t < connections % threads ? 1 : 0);
+          openers.execute(() -> {
+            for (int i=0; i<share; i++)
+            {
+              try
+              {
+                clients.add(connect());
+              }
+              catch (IOException ex)
+              {
+                System.err.println("accept: " + ex);
+              }
+            }
+          });
+        }
+        server.awaitConnected(connections);
+        if (it >= 0)
+          samples[it] = connections * 1e9 / (System.nanoTime() - start);
+      }
+      finally
+      {
+        openers.shutdown();
+        openers.awaitTermination(TIMEOUT, TimeUnit.SECONDS);
+        disconnect(clients);
+      }
+    }
+    report("accept", connections, "conn/s", samples);
+  }
+
+  /**
+   * Opens a connection to the server with its own counter of replies.
+   */
+  private BenchmarkClient connect() throws IOException
+  {
+    return connect(new Semaphore(0));
+  }
+
+  /**
+   * Opens a connection to the server.
+   *
+   * @param received released for each message received.
+   */
+  private BenchmarkClient connect(Semaphore received) throws IOException
+  {
+    BenchmarkClient client = new BenchmarkClient(port, received);
+
+    MessageCodec clientCodec = codec;
+    if (clientCodec == null && mode.equals("selector"))
+      clientCodec = new SerializationCodec();
+    client.setCodec(clientCodec);
+    client.setFlushPolicy(flushPolicy);
+    client.openConnection();
+
+    return client;
+  }
+
+  /**
+   * Closes the connections and waits for the server to notice it,
+   * so that the next benchmark starts from a clean state.
+   */
+  private void disconnect(List<BenchmarkClient> clients)
+    throws InterruptedException
+  {
+    for (BenchmarkClient client : clients)
+    {
+      try
+      {
+        client.closeConnection();
+      }
+      catch (IOException ex) {}
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+    while (server.getNumberOfClients() > 0 && System.nanoTime() < deadline)
+      Thread.sleep(10);
+  }
+
+  /**
+   * Prints the statistics of the samples of a benchmark.
+   */
+  private void report(String name, int clients, String unit,
+    double[] samples)
+  {
+    double[] sorted = samples.clone();
+    Arrays.sort(sorted);
+
+    double mean = Arrays.stream(sorted).average().orElse(0);
+    double variance = Arrays.stream(sorted)
+      .map(x -> (x - mean) * (x - mean)).sum() / Math.max(1, sorted.length - 1);
+    double p50 = percentile(sorted, 0.50);
+    double p99 = percentile(sorted, 0.99);
+
+    if (csv)
+      System.out.printf(Locale.ROOT, "%s,%d,%s,%.2f,%.2f,%.2f,%.2f,%.2f%n",
+        name, clients, unit, mean, Math.sqrt(variance), sorted[0], p50, p99);
+    else
+      System.out.printf(Locale.ROOT,
+        "%-12s %8d %-10s %12.2f %12.2f %12.2f %12.2f %12.2f%n",
+        name, clients, unit, mean, Math.sqrt(variance), sorted[0], p50, p99);
+  }
+
+  private static double percentile(double[] sorted, double fraction)
+  {
+    int index = (int)Math.ceil(fraction * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+  }
+
+// CLASS METHODS ****************************************************
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args the options, followed by the names of the benchmarks
+   *  to run; all of them by default.
+   */
+  public static void main(String[] args) throws Exception
+  {
+    if (args.length > 0 && args[0].equals("-help"))
+    {
+      System.out.println("usage: OcsfBenchmark [options] [" +
+        String.join("|", BENCHMARKS) + "]...");
+      System.out.println("  -mode thread|virtual|selector[:loops]");
+      System.out.println("  -codec none|serial|binary");
+      System.out.println("  -flush immediate|<messages>:<delay ms>");
+      System.out.println("  -warmup n -iterations n -messages n");
+      System.out.println("  -clients n,n,... -connections n -size chars");
+      System.out.println("  -port n -csv");
+      return;
+    }
+
+    new OcsfBenchmark(args).run();
+    System.exit(0);
+  }
+
+// INNER CLASSES ----------------------------------------------------
+
+  /**
+   * The server under test. Echoes every message to its sender, except
+   * the messages starting with <code>BROADCAST</code>, which are sent
+   * to all the clients.
+   */
+  static class BenchmarkServer extends AbstractServer
+  {
+    static final String BROADCAST = "*";
+
+    private final AtomicInteger connected = new AtomicInteger();
+
+    BenchmarkServer(int port)
+    {
+      super(port);
+    }
+
+    protected void handleMessageFromClient(Object msg,
+      ConnectionToClient client)
+    {
+      if (msg instanceof String s && s.startsWith(BROADCAST))
+      {
+        sendToAllClients(s);
+        return;
+      }
+
+      try
+      {
+        client.sendToClient(msg);
+      }
+      catch (IOException ex) {}
+    }
+
+    protected void clientConnected(ConnectionToClient client)
+    {
+      connected.incrementAndGet();
+    }
+
+    void resetConnected()
+    {
+      connected.set(0);
+    }
+
+    void awaitConnected(int count) throws InterruptedException, IOException
+    {
+      await(() -> connected.get() >= count);
+    }
+
+    void awaitClients(int count) throws InterruptedException, IOException
+    {
+      await(() -> getNumberOfClients() >= count);
+    }
+
+    private static void await(java.util.function.BooleanSupplier condition)
+      throws InterruptedException, IOException
+    {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+      while (!condition.getAsBoolean())
+      {
+        if (System.nanoTime() > deadline)
+          throw new IOException("timed out waiting for the clients");
+        Thread.sleep(1);
+      }
+    }
+  }
+
+  /**
+   * A client counting the messages it receives.
+   */
+  static class BenchmarkClient extends AbstractClient
+  {
+    private final Semaphore received;
+
+    BenchmarkClient(int port, Semaphore received)
+    {
+      super("localhost", port);
+      this.received = received;
+    }
+
+    protected void handleMessageFromServer(Object msg)
+    {
+      received.release();
+    }
+
+    /**
+     * Waits for a number of messages.
+     */
+    void await(int count) throws InterruptedException, IOException
+    {
+      if (!received.tryAcquire(count, TIMEOUT, TimeUnit.SECONDS))
+        throw new IOException("timed out waiting for the replies");
+    }
+  }
+}
+// End of OcsfBenchmark class
@@ -7,6 +7,11 @@ package com.lloseng.ocsf.client;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.lloseng.ocsf.codec.*;
+import com.lloseng.ocsf.common.*;
 
 /**
 * The <code> AbstractClient </code> contains all the
@@ -47,6 +52,30 @@ import java.util.*;
 * <li> The call to <code>connectionClosed</code> has been moved from
 * <code>closeConnection</code> to <code>run</code> method to garantee
 * that connection is really closed when this callback is called.
+* </ul>
+* The modifications made to this class in version 2.4 are:
+* <ul>
+* <li> Messages can be exchanged as frames encoded by a
+* <code>MessageCodec</code>, which is required by servers running in
+* selector mode. See <code>setCodec()</code>.
+* <li> The object stream can be reset periodically, so that a long-lived
+* connection does not retain every object it has sent. See
+* <code>setResetPolicy()</code>.
+* <li> The streams are buffered and flushed according to a flush policy.
+* Messages can be sent without being flushed, see
+* <code>setFlushPolicy()</code>, <code>sendToServer(Object, boolean)</code>
+* and <code>flush()</code>.
+* <li> Connections can be opened and messages sent without blocking the
+* caller, see <code>connectAsync()</code> and <code>sendAsync()</code>,
+* and the thread reading from the server can be a virtual thread, see
+* <code>setVirtualThreads()</code>. Together, they let a single program
+* run thousands of clients.
+* <li> The messages from the server can be consumed as a
+* <code>Flow.Publisher</code>, see <code>messages()</code>. While its
+* subscriber has no demand, the client stops reading from the server.
+* <li> A connection lost because of an exception can be re-established
+* automatically, with a jittered exponential backoff. See
+* <code>setReconnectPolicy()</code>.
 * </ul><p>
 *
 * Project Name: OCSF (Object Client-Server Framework)<p>
@@ -55,11 +84,19 @@ import java.util.*;
 * @author Dr. Timothy C. Lethbridge
 * @author Fran&ccedil;ois  B&eacutel;langer
 * @author Paul Holden
-* @version December 2003 (2.31)
+* @version October 2026 (2.4)
 */
 public abstract class AbstractClient implements Runnable
 {
 
+// CLASS VARIABLES **************************************************
+
+  /**
+  * The time the reading thread waits for demand before checking
+  * whether the connection is being closed, in milliseconds.
+  */
+  private static final long DEMAND_WAIT = 100;
+
 // INSTANCE VARIABLES ***********************************************
 
   /**
@@ -72,24 +109,100 @@ public abstract class AbstractClient implements Runnable
   /**
   * The stream to handle data going to the server.
   */
-  private ObjectOutputStream output;
+  private ResettingObjectOutputStream output;
 
   /**
   * The stream to handle data from the server.
   */
   private ObjectInputStream input;
 
+  /**
+  * The stream to handle frames going to the server, in framed mode.
+  */
+  private DataOutputStream frameOutput;
+
+  /**
+  * The stream to handle frames from the server, in framed mode.
+  */
+  private DataInputStream frameInput;
+
+  /**
+  * The buffer between the output streams and the socket.
+  */
+  private BatchingOutputStream buffer;
+
+  /**
+  * The codec used to exchange frames with the server.
+  * Is null by default, meaning that object streams are used.
+  * Added in version 2.4
+  */
+  private MessageCodec codec = null;
+
+  /**
+  * The codec of the current connection.
+  */
+  private MessageCodec connectionCodec;
+
+  /**
+  * When the object stream is reset. Never by default.
+  * Added in version 2.4
+  */
+  private volatile ResetPolicy resetPolicy = ResetPolicy.NEVER;
+
+  /**
+  * When the output stream is flushed. After each message by default.
+  * Added in version 2.4
+  */
+  private volatile FlushPolicy flushPolicy = FlushPolicy.IMMEDIATE;
+
   /**
   * The thread created to read data from the server.
   */
   private Thread clientReader;
 
+  /**
+  * Indicates if the thread reading from the server is a virtual thread.
+  * Added in version 2.4
+  */
+  private volatile boolean virtualThreads = false;
+
+  /**
+  * The messages sent with <code>sendAsync()</code> waiting to be written.
+  * Added in version 2.4
+  */
+  private final Queue<AsyncSend> asyncSends = new ConcurrentLinkedQueue<>();
+
+  /**
+  * Indicates if a thread is writing the messages sent with
+  * <code>sendAsync()</code>. Added in version 2.4
+  */
+  private final AtomicBoolean asyncWriterScheduled = new AtomicBoolean();
+
+  /**
+  * The publisher of the messages from the server. Added in version 2.4
+  */
+  private final MessagePublisher<Object> publisher = new MessagePublisher<>();
+
   /**
   * Indicates if the thread is ready to stop.
   * Needed so that the loop in the run method knows when to stop
-  * waiting for incoming messages.
+  * waiting for incoming messages. Volatile since version 2.4, as the
+  * loop may be waiting for demand rather than reading. Also tells the
+  * reconnecting thread that the connection was closed on purpose.
+  */
+  private volatile boolean readyToStop= false;
+
+  /**
+  * How to reconnect when the connection is lost, or null not to.
+  * Added in version 2.4
   */
-  private boolean readyToStop= false;
+  private volatile ReconnectPolicy reconnectPolicy = null;
+
+  /**
+  * The thread re-establishing a lost connection, or null.
+  * Added in version 2.4
+  */
+  private volatile Thread reconnector = null;
 
   /**
   * The server's host name.
@@ -134,8 +247,23 @@ public abstract class AbstractClient implements Runnable
     try
     {
       clientSocket= new Socket(host, port);
-      output = new ObjectOutputStream(clientSocket.getOutputStream());
-      input = new ObjectInputStream(clientSocket.getInputStream());
+
+      connectionCodec = codec;
+      buffer = new BatchingOutputStream(clientSocket.getOutputStream(),
+        flushPolicy);
+      if (connectionCodec != null) // added in version 2.4
+      {
+        frameOutput = new DataOutputStream(buffer);
+        frameInput = new DataInputStream(
+          new BufferedInputStream(clientSocket.getInputStream()));
+      }
+      else
+      {
+        output = new ResettingObjectOutputStream(buffer, resetPolicy);
+        output.flush(); // The server waits for the header of the stream
+        input = new ObjectInputStream(
+          new BufferedInputStream(clientSocket.getInputStream()));
+      }
     }
     catch (IOException ex)
     // All three of the above must be closed when there is a failure
@@ -150,7 +278,8 @@ public abstract class AbstractClient implements Runnable
       throw ex; // Rethrow the exception.
     }
 
-    clientReader = new Thread(this);  //Create the data reader thread
+    //Create the data reader thread
+    clientReader = VirtualThreads.newThread(virtualThreads, null, this);
     readyToStop = false;
     clientReader.start();  //Start the thread
   }
@@ -168,11 +297,174 @@ public abstract class AbstractClient implements Runnable
    */
   public void sendToServer(Object msg) throws IOException
   {
+    send(msg, false);
+  }
+
+  /**
+   * Sends an object to the server, controlling when it is flushed.
+   * A message that is not flushed stays in the buffer of the connection
+   * until the next flush, which is triggered by a later message according
+   * to the flush policy, by the delay of that policy, or by a call to
+   * <code>flush()</code>.<p>
+   *
+   * This method does not call <code>sendToServer(Object)</code>, so the
+   * filtering made by a subclass overriding it does not apply.
+   * Added in version 2.4
+   *
+   * @param msg the message to be sent.
+   * @param flush true to flush the connection after the message.
+   * @exception IOException if an I/O error occurs when sending.
+   */
+  final public void sendToServer(Object msg, boolean flush)
+    throws IOException
+  {
+    send(msg, true);
+
+    if (flush)
+      flush();
+  }
+
+  /**
+   * Sends the messages waiting in the buffer of the connection.
+   * Added in version 2.4
+   *
+   * @exception IOException if an I/O error occurs when sending.
+   */
+  final public void flush() throws IOException
+  {
+    BatchingOutputStream buffer = this.buffer;
+    if (clientSocket == null || buffer == null)
+      throw new SocketException("socket does not exist");
+
+    buffer.flush();
+  }
+
+  /**
+   * Writes a message, either flushing it according to the flush policy
+   * or deferring it.
+   *
+   * @param msg the message to be sent.
+   * @param deferred true if the message must wait for the next flush.
+   * @exception IOException if an I/O error occurs when sending.
+   */
+  private void send(Object msg, boolean deferred) throws IOException
+  {
+    BatchingOutputStream buffer = this.buffer;
+    DataOutputStream frameOutput = this.frameOutput;
+    if (frameOutput != null)
+    {
+      byte[] payload = connectionCodec.encode(msg);
+      synchronized (frameOutput)
+      {
+        frameOutput.writeInt(payload.length);
+        frameOutput.write(payload);
+        buffer.messageWritten(deferred);
+      }
+      return;
+    }
+
+    ResettingObjectOutputStream output = this.output;
     if (clientSocket == null || output == null) {
       throw new SocketException("socket does not exist");
     }
 
-    output.writeObject(msg);
+    synchronized (output)
+    {
+      output.writeMessage(msg);
+      buffer.messageWritten(deferred);
+    }
+  }
+
+  /**
+   * Opens the connection with the server without blocking the caller.
+   * The connection is opened by a new thread, virtual if the client uses
+   * virtual threads, as <code>openConnection()</code> would; the future
+   * completes when it is open, or fails with the exception thrown.
+   * Added in version 2.4
+   *
+   * @return the future completed when the connection is open.
+   */
+  final public CompletableFuture<Void> connectAsync()
+  {
+    CompletableFuture<Void> connected = new CompletableFuture<>();
+    VirtualThreads.start(virtualThreads, null, () -> {
+      try
+      {
+        openConnection();
+        connected.complete(null);
+      }
+      catch (IOException | RuntimeException ex)
+      {
+        connected.completeExceptionally(ex);
+      }
+    });
+    return connected;
+  }
+
+  /**
+   * Sends an object to the server without blocking the caller.
+   * The messages sent with this method are queued and written in the
+   * order they were sent by a single thread at a time, virtual if the
+   * client uses virtual threads, which flushes the
+   * connection once the queue is empty, so that a burst of messages is
+   * sent in few system calls. Their order with the messages sent with
+   * <code>sendToServer</code> is not guaranteed.<p>
+   *
+   * The future completes once the message has been written and flushed,
+   * or fails with the exception thrown, for instance if the connection
+   * is closed. Like <code>sendToServer(Object, boolean)</code>, this
+   * method does not call <code>sendToServer(Object)</code>.
+   * Added in version 2.4
+   *
+   * @param msg the message to be sent.
+   * @return the future completed when the message has been sent.
+   */
+  final public CompletableFuture<Void> sendAsync(Object msg)
+  {
+    CompletableFuture<Void> sent = new CompletableFuture<>();
+    asyncSends.add(new AsyncSend(msg, sent));
+
+    if (asyncWriterScheduled.compareAndSet(false, true))
+      VirtualThreads.start(virtualThreads, null, this::writeAsyncSends);
+
+    return sent;
+  }
+
+  /**
+   * Writes the messages sent with <code>sendAsync()</code>, then
+   * flushes the connection. Run by one thread at a time.
+   */
+  private void writeAsyncSends()
+  {
+    List<AsyncSend> written = new ArrayList<>();
+    while (true)
+    {
+      try
+      {
+        AsyncSend next;
+        while ((next = asyncSends.poll()) != null)
+        {
+          written.add(next);
+          send(next.msg, true);
+        }
+        if (!written.isEmpty())
+          flush();
+
+        for (AsyncSend send : written)
+          send.future.complete(null);
+      }
+      catch (IOException | RuntimeException ex)
+      {
+        for (AsyncSend send : written)
+          send.future.completeExceptionally(ex);
+      }
+      written.clear();
+
+      // Stop, unless a message was queued after the queue was found empty
+      asyncWriterScheduled.set(false);
+      if (asyncSends.isEmpty() || !asyncWriterScheduled.compareAndSet(false, true))
+        return;
+    }
   }
 
   /**
@@ -184,6 +476,12 @@ public abstract class AbstractClient implements Runnable
   {
 
       readyToStop= true; 
+
+      // Stop reconnecting, if the connection had been lost
+      Thread reconnector = this.reconnector;
+      if (reconnector != null)
+        reconnector.interrupt();
+
       closeAll();
   }
 
@@ -197,6 +495,42 @@ public abstract class AbstractClient implements Runnable
     return clientReader!=null && clientReader.isAlive();
   }
 
+  /**
+   * Sets how to reconnect when the connection to the server is lost
+   * because of an exception. The <code>connectionException</code> and
+   * <code>connectionClosed</code> hooks are called first; the attempts
+   * are then made by a separate thread, and once the connection is back
+   * the <code>connectionReestablished</code> hook is called so that the
+   * client can repeat its handshake with the server. If every attempt
+   * fails, <code>reconnectFailed</code> is called. Closing the connection
+   * stops the attempts. Added in version 2.4
+   *
+   * @param policy the reconnect policy, or null not to reconnect.
+   */
+  final public void setReconnectPolicy(ReconnectPolicy policy)
+  {
+    this.reconnectPolicy = policy;
+  }
+
+  /**
+   * @return the reconnect policy, or null.
+   * @since version 2.4
+   */
+  final public ReconnectPolicy getReconnectPolicy()
+  {
+    return reconnectPolicy;
+  }
+
+  /**
+   * @return true if the client is trying to re-establish a lost
+   *  connection.
+   * @since version 2.4
+   */
+  final public boolean isReconnecting()
+  {
+    return reconnector != null;
+  }
+
   /**
    * @return the port number.
    */
@@ -217,6 +551,166 @@ public abstract class AbstractClient implements Runnable
     this.port = port;
   }
 
+  /**
+   * Sets whether the thread reading from the server is a virtual thread.
+   * A virtual thread blocked on the socket costs much less than a
+   * platform thread, so that a single program can run a very large
+   * number of clients. The threads started by <code>connectAsync()</code>
+   * and <code>sendAsync()</code>, and the thread re-establishing a lost
+   * connection, are then virtual too. The change to the
+   * reading thread only takes effect at the time of the next call to
+   * openConnection(). Virtual threads require Java 21; on an earlier
+   * runtime, platform threads are used. Added in version 2.4
+   *
+   * @param virtualThreads true to read from the server on a virtual
+   *  thread.
+   */
+  final public void setVirtualThreads(boolean virtualThreads)
+  {
+    this.virtualThreads = virtualThreads;
+  }
+
+  /**
+   * @return true if the thread reading from the server is a virtual
+   *  thread.
+   * @since version 2.4
+   */
+  final public boolean isVirtualThreads()
+  {
+    return virtualThreads;
+  }
+
+  /**
+   * Sets the codec used to exchange messages with the server.
+   * By default, messages are written to and read from object streams.
+   * With a codec, each message is instead sent as a frame encoded by
+   * the codec. The server must use the same codec; a server running in
+   * selector mode without a codec expects a
+   * <code>SerializationCodec</code>. The change only takes effect at the
+   * time of the next call to openConnection(). Added in version 2.4
+   *
+   * @param codec the codec, or null to use object streams.
+   * @see com.lloseng.ocsf.codec.MessageCodec
+   */
+  final public void setCodec(MessageCodec codec)
+  {
+    this.codec = codec;
+  }
+
+  /**
+   * @return the codec used to exchange messages, or null if object
+   *  streams are used.
+   * @since version 2.4
+   */
+  final public MessageCodec getCodec()
+  {
+    return codec;
+  }
+
+  /**
+   * Sets when the object stream is reset. An object stream keeps a
+   * reference to every object written to it, so that the memory used by
+   * a connection that is never reset grows with its traffic. The policy
+   * only applies when no codec is set, and takes effect immediately.
+   * Added in version 2.4
+   *
+   * @param policy when the stream is reset, or null to never reset it.
+   * @see com.lloseng.ocsf.codec.ResetPolicy
+   */
+  final public void setResetPolicy(ResetPolicy policy)
+  {
+    this.resetPolicy = policy == null ? ResetPolicy.NEVER : policy;
+
+    ResettingObjectOutputStream output = this.output;
+    if (output != null)
+      output.setResetPolicy(this.resetPolicy);
+  }
+
+  /**
+   * @return when the object stream is reset.
+   * @since version 2.4
+   */
+  final public ResetPolicy getResetPolicy()
+  {
+    return resetPolicy;
+  }
+
+  /**
+   * Returns the number of objects retained by the object stream, that is
+   * the objects sent since the stream was last reset. This is always 0
+   * when a codec is used.
+   *
+   * @return the number of objects.
+   * @since version 2.4
+   */
+  final public int getHandleCount()
+  {
+    ResettingObjectOutputStream output = this.output;
+    return output == null ? 0 : output.getHandleCount();
+  }
+
+  /**
+   * Sets when the output stream is flushed. By default, every message is
+   * sent as soon as it is written. A batching policy lets messages
+   * accumulate in the buffer until a number of them are waiting or a
+   * delay has elapsed, so that a burst of messages is sent in fewer system
+   * calls, at the cost of some latency. The policy takes effect
+   * immediately. Added in version 2.4
+   *
+   * @param policy when the stream is flushed, or null to flush after
+   *  each message.
+   * @see com.lloseng.ocsf.codec.FlushPolicy
+   */
+  final public void setFlushPolicy(FlushPolicy policy)
+  {
+    this.flushPolicy = policy == null ? FlushPolicy.IMMEDIATE : policy;
+
+    BatchingOutputStream buffer = this.buffer;
+    if (buffer != null)
+      buffer.setFlushPolicy(this.flushPolicy);
+  }
+
+  /**
+   * @return when the output stream is flushed.
+   * @since version 2.4
+   */
+  final public FlushPolicy getFlushPolicy()
+  {
+    return flushPolicy;
+  }
+
+  /**
+   * Returns the number of write operations made on the socket, each of
+   * them being a system call. Compared to the number of messages sent, it
+   * shows how well the messages are batched.
+   *
+   * @return the number of write operations.
+   * @since version 2.4
+   */
+  final public long getSocketWriteCount()
+  {
+    BatchingOutputStream buffer = this.buffer;
+    return buffer == null ? 0 : buffer.getWriteCount();
+  }
+
+  /**
+   * Returns a publisher of the messages received from the server. Its
+   * subscriber receives each message before
+   * <code>handleMessageFromServer</code> is called. While it has not
+   * requested more messages, the client stops reading from the server,
+   * so that the server is slowed down by TCP flow control. The
+   * subscription is completed when the connection is closed, or ends
+   * with the exception that closed it; a new subscriber can then
+   * subscribe for the next connection.
+   *
+   * @return the publisher.
+   * @since version 2.4
+   */
+  final public Flow.Publisher<Object> messages()
+  {
+    return publisher;
+  }
+
   /**
    * @return the host name.
    */
@@ -262,6 +756,7 @@ public abstract class AbstractClient implements Runnable
     Object msg;
 
     // Loop waiting for data
+    boolean lost = false;
 
     try
     {
@@ -273,11 +768,16 @@ public abstract class AbstractClient implements Runnable
         
         try { // added in version 2.31
         
-          msg = input.readObject();
+          msg = frameInput != null ? readFrame() : input.readObject();
+
+          // Wait for the subscriber, if any, to request it
+          boolean reserved = awaitDemand(); // Added in version 2.4
 
           // Concrete subclasses do what they want with the
           // msg by implementing the following method
           if (!readyToStop) {  // Added in version 2.2
+            if (reserved)
+              publisher.deliver(msg);
             handleMessageFromServer(msg);
           }
           
@@ -302,12 +802,19 @@ public abstract class AbstractClient implements Runnable
         catch (Exception ex) { }
 
         clientReader = null; 
+        publisher.fail(exception);
+        lost = true;
         connectionException(exception);      
       }
     } finally {
     
         clientReader = null; 
+        publisher.complete(); // added in version 2.4
         connectionClosed();   // moved here in version 2.31
+
+        // Added in version 2.4
+        if (lost && reconnectPolicy != null && !readyToStop)
+          startReconnecting();
     }
   }
 
@@ -342,6 +849,26 @@ public abstract class AbstractClient implements Runnable
    */
   protected void connectionEstablished() {}
 
+  /**
+   * Hook method called, from the reconnecting thread, after a lost
+   * connection has been re-established according to the reconnect
+   * policy.
+   * The default implementation does nothing. It may be overridden by
+   * subclasses to repeat their handshake with the server, such as
+   * logging in again. Added in version 2.4
+   */
+  protected void connectionReestablished() {}
+
+  /**
+   * Hook method called when the reconnect policy gives up
+   * re-establishing a lost connection.
+   * The default implementation does nothing. Added in version 2.4
+   *
+   * @param attempts the number of attempts made.
+   * @param exception the exception raised by the last attempt, or null.
+   */
+  protected void reconnectFailed(int attempts, Exception exception) {}
+
   /**
    * Handles a message sent from the server to this client.
    * This MUST be implemented by subclasses, who should respond to
@@ -354,6 +881,69 @@ public abstract class AbstractClient implements Runnable
 
 // METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------
 
+  /**
+   * Starts the thread re-establishing the connection.
+   */
+  private void startReconnecting()
+  {
+    Thread thread = VirtualThreads.newThread(virtualThreads,
+      "Reconnect to " + host + ":" + port, this::reconnect);
+    reconnector = thread;
+    thread.start();
+  }
+
+  /**
+   * Tries to open the connection again according to the reconnect
+   * policy, until it succeeds, the policy gives up, or the connection is
+   * closed or opened by the application meanwhile.
+   */
+  private void reconnect()
+  {
+    ReconnectPolicy policy = reconnectPolicy;
+    Exception lastException = null;
+    int attempt = 0;
+
+    try
+    {
+      while (policy != null && policy.allowsAttempt(attempt))
+      {
+        try
+        {
+          Thread.sleep(policy.nextDelay(attempt));
+        }
+        catch (InterruptedException e)
+        {
+          return; // The connection was closed
+        }
+        attempt++;
+
+        if (readyToStop || isConnected())
+          return;
+
+        try
+        {
+          openConnection();
+        }
+        catch (IOException e)
+        {
+          lastException = e;
+          continue;
+        }
+
+        connectionReestablished();
+        return;
+      }
+
+      if (!readyToStop)
+        reconnectFailed(attempt, lastException);
+    }
+    finally
+    {
+      if (reconnector == Thread.currentThread())
+        reconnector = null;
+    }
+  }
+
   /**
    * Closes all aspects of the connection to the server.
    *
@@ -369,6 +959,10 @@ public abstract class AbstractClient implements Runnable
       if (clientSocket != null)
         clientSocket.close();
 
+      //The messages still buffered cannot be sent anymore
+      if (buffer != null)
+        buffer.discard();
+
       //Close the output stream
       if (output != null)
         output.close();
@@ -376,6 +970,13 @@ public abstract class AbstractClient implements Runnable
       //Close the input stream
       if (input != null)
         input.close();
+
+      //Close the frame streams
+      if (frameOutput != null)
+        frameOutput.close();
+
+      if (frameInput != null)
+        frameInput.close();
     }
     finally
     {
@@ -385,8 +986,63 @@ public abstract class AbstractClient implements Runnable
       // when they are garbage collected.
       output = null;
       input = null;
+      frameOutput = null;
+      buffer = null;
+      frameInput = null;
       clientSocket = null;
     }
   }
+
+  /**
+   * Waits until a unit of the demand of the subscriber, if any, is
+   * reserved for the message just read, or until the connection is
+   * being closed.
+   *
+   * @return true if a unit was reserved, false if there is no
+   *  subscriber.
+   */
+  private boolean awaitDemand() throws InterruptedException
+  {
+    while (!readyToStop)
+    {
+      if (publisher.tryReserve())
+        return true;
+      if (!publisher.isSubscribed())
+        return false;
+
+      publisher.awaitDemand(DEMAND_WAIT);
+    }
+    return false;
+  }
+
+  /**
+   * Reads the next frame sent by the server and decodes it.
+   *
+   * @return the message received.
+   * @exception IOException if an I/O error occurs when reading.
+   * @exception ClassNotFoundException if the class of the message is unknown.
+   */
+  private Object readFrame() throws IOException, ClassNotFoundException
+  {
+    byte[] payload = MessageCodec.readFrame(frameInput);
+    return connectionCodec.decode(payload, 0, payload.length);
+  }
+
+// NESTED CLASSES ---------------------------------------------------
+
+  /**
+   * A message sent with <code>sendAsync()</code> and its future.
+   */
+  private static final class AsyncSend
+  {
+    final Object msg;
+    final CompletableFuture<Void> future;
+
+    AsyncSend(Object msg, CompletableFuture<Void> future)
+    {
+      this.msg = msg;
+      this.future = future;
+    }
+  }
 }
 // end of AbstractClient class
@@ -70,6 +70,25 @@ class AdaptableClient extends AbstractClient
     client.connectionEstablished();
   }
 
+  /**
+   * Hook method called after a lost connection has been re-established.
+   */
+  final protected void connectionReestablished()
+  {
+    client.connectionReestablished();
+  }
+
+  /**
+   * Hook method called when the reconnect policy gives up.
+   *
+   * @param attempts the number of attempts made.
+   * @param exception the exception raised by the last attempt, or null.
+   */
+  final protected void reconnectFailed(int attempts, Exception exception)
+  {
+    client.reconnectFailed(attempts, exception);
+  }
+
   /**
    * Handles a message sent from the server to this client.
    *
@@ -5,18 +5,36 @@
 package com.lloseng.ocsf.client;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 import java.net.*;
 
+import com.lloseng.ocsf.common.*;
+
 /**
  * This class acts as a subclass of <code>AbstractClient</code>
  * and is also an <code>Observable</code> class.
- * Each time a new message is received, observers are notified.
+ * Each time a new message is received, observers are notified.<p>
+ *
+ * The modifications made to this class in version 2.4 are:
+ * <ul>
+ * <li> The non-blocking methods <code>connectAsync()</code> and
+ * <code>sendAsync()</code>, and <code>setVirtualThreads()</code>, of
+ * <code>AbstractClient</code> are also offered by this class.
+ * <li> An observer can be registered with its own executor and bounded
+ * queue, so that it is notified asynchronously.
+ * <li> <code>messages()</code> of <code>AbstractClient</code> is also
+ * offered by this class.
+ * <li> A lost connection can be re-established automatically, see
+ * <code>setReconnectPolicy()</code>; observers are then notified with
+ * <code>CONNECTION_REESTABLISHED</code>, or <code>RECONNECT_FAILED</code>
+ * if the policy gives up.
+ * </ul><p>
  *
  * @author Dr Robert Lagani&egrave;re
  * @author Dr Timothy C. Lethbridge
  * @author Fran&ccedil;ois B&eacute;lange
- * @version Febuary 2001
+ * @version October 2026 (2.4)
  */
 public class ObservableClient extends Observable
 {
@@ -32,18 +50,61 @@ public class ObservableClient extends Observable
    */
   public static final String CONNECTION_ESTABLISHED = "#OC:Connection established.";
 
+  /**
+   * Indicates that a lost connection to server has been re-established.
+   * Added in version 2.4
+   */
+  public static final String CONNECTION_REESTABLISHED = "#OC:Connection reestablished.";
+
+  /**
+   * Indicates that the connection to server could not be re-established.
+   * Added in version 2.4
+   */
+  public static final String RECONNECT_FAILED = "#OC:Reconnect failed.";
+
   //Instance variables **********************************************
 
   /**
    * The service instance used to simulate multiple class inheritance.
    */
-  private AdaptableClient service;
+  private volatile AdaptableClient service;
+
+  /**
+   * The host and port given to the constructor, used to create the
+   * service().
+   */
+  private final String host;
+  private final int port;
 
   //Constructor *****************************************************
 
   public ObservableClient(String host, int port)
   {
-    service = new AdaptableClient(host, port, this);
+    this.host = host;
+    this.port = port;
+  }
+
+  /**
+   * Returns the service, created on first use rather than in the
+   * constructor, so that the service is never given a client whose
+   * subclasses are not yet initialized.
+   * Added in version 2.4
+   *
+   * @return the service.
+   */
+  private AdaptableClient service()
+  {
+    AdaptableClient current = service;
+    if (current == null)
+    {
+      synchronized (this)
+      {
+        current = service;
+        if (current == null)
+          service = current = new AdaptableClient(host, port, this);
+      }
+    }
+    return current;
   }
 
   //Instance methods ************************************************
@@ -53,7 +114,7 @@ public class ObservableClient extends Observable
    */
   final public void openConnection() throws IOException
   {
-    service.openConnection();
+    service().openConnection();
   }
 
   /**
@@ -61,7 +122,7 @@ public class ObservableClient extends Observable
    */
   final public void closeConnection() throws IOException
   {
-    service.closeConnection();
+    service().closeConnection();
   }
 
   /**
@@ -72,7 +133,66 @@ public class ObservableClient extends Observable
    */
   final public void sendToServer(Object msg) throws IOException
   {
-    service.sendToServer(msg);
+    service().sendToServer(msg);
+  }
+
+  /**
+   * Opens the connection with the server without blocking the caller.
+   *
+   * @return the future completed when the connection is open.
+   * @see AbstractClient#connectAsync()
+   */
+  final public CompletableFuture<Void> connectAsync()
+  {
+    return service().connectAsync();
+  }
+
+  /**
+   * Sends an object to the server without blocking the caller.
+   *
+   * @param msg the message to be sent.
+   * @return the future completed when the message has been sent.
+   * @see AbstractClient#sendAsync(Object)
+   */
+  final public CompletableFuture<Void> sendAsync(Object msg)
+  {
+    return service().sendAsync(msg);
+  }
+
+  /**
+   * Adds an observer notified with its own executor. The thread that
+   * notifies the observers only puts the notification in the bounded
+   * queue of the observer and never waits for it, so that a slow
+   * observer, such as one updating a user interface, does not hold up
+   * the reading of the messages from the server. To remove the
+   * observer, pass the <code>AsyncObserver</code> returned to
+   * <code>deleteObserver()</code>.
+   * Added in version 2.4
+   *
+   * @param o the observer.
+   * @param executor the executor notifying the observer.
+   * @param capacity the number of notifications that can wait.
+   * @param policy what to do when the queue of the observer is full.
+   * @return the observer registered, which gives the number of
+   *  notifications dropped and the lag of the observer.
+   */
+  public AsyncObserver addObserver(Observer o, Executor executor,
+    int capacity, ObserverOverflowPolicy policy)
+  {
+    AsyncObserver async = new AsyncObserver(o, executor, capacity, policy);
+    addObserver(async);
+    return async;
+  }
+
+  /**
+   * Returns a publisher of the messages received.
+   *
+   * @return the publisher.
+   * @see AbstractClient#messages()
+   */
+  final public Flow.Publisher<Object> messages()
+  {
+    return service().messages();
   }
 
 // ACCESSING METHODS ------------------------------------------------
@@ -82,7 +202,47 @@ public class ObservableClient extends Observable
    */
   final public boolean isConnected()
   {
-    return service.isConnected();
+    return service().isConnected();
+  }
+
+  /**
+   * Sets whether the thread reading from the server is a virtual thread.
+   *
+   * @param virtualThreads true to read from the server on a virtual
+   *  thread.
+   * @see AbstractClient#setVirtualThreads(boolean)
+   */
+  final public void setVirtualThreads(boolean virtualThreads)
+  {
+    service().setVirtualThreads(virtualThreads);
+  }
+
+  /**
+   * Sets how to reconnect when the connection to the server is lost.
+   *
+   * @param policy the reconnect policy, or null not to reconnect.
+   * @see AbstractClient#setReconnectPolicy(ReconnectPolicy)
+   */
+  final public void setReconnectPolicy(ReconnectPolicy policy)
+  {
+    service().setReconnectPolicy(policy);
+  }
+
+  /**
+   * @return the reconnect policy, or null.
+   */
+  final public ReconnectPolicy getReconnectPolicy()
+  {
+    return service().getReconnectPolicy();
+  }
+
+  /**
+   * @return true if the client is trying to re-establish a lost
+   *  connection.
+   */
+  final public boolean isReconnecting()
+  {
+    return service().isReconnecting();
   }
 
   /**
@@ -90,7 +250,7 @@ public class ObservableClient extends Observable
    */
   final public int getPort()
   {
-    return service.getPort();
+    return service().getPort();
   }
 
   /**
@@ -101,7 +261,7 @@ public class ObservableClient extends Observable
    */
   final public void setPort(int port)
   {
-    service.setPort(port);
+    service().setPort(port);
   }
 
   /**
@@ -109,7 +269,7 @@ public class ObservableClient extends Observable
    */
   final public String getHost()
   {
-    return service.getHost();
+    return service().getHost();
   }
 
   /**
@@ -120,7 +280,7 @@ public class ObservableClient extends Observable
    */
   final public void setHost(String host)
   {
-    service.setHost(host);
+    service().setHost(host);
   }
 
   /**
@@ -128,7 +288,7 @@ public class ObservableClient extends Observable
    */
   final public InetAddress getInetAddress()
   {
-    return service.getInetAddress();
+    return service().getInetAddress();
   }
 
 
@@ -173,4 +333,27 @@ public class ObservableClient extends Observable
     setChanged();
     notifyObservers(CONNECTION_ESTABLISHED);
   }
+
+  /**
+   * Hook method called after a lost connection has been re-established.
+   * Added in version 2.4
+   */
+  protected void connectionReestablished()
+  {
+    setChanged();
+    notifyObservers(CONNECTION_REESTABLISHED);
+  }
+
+  /**
+   * Hook method called when the reconnect policy gives up.
+   * Added in version 2.4
+   *
+   * @param attempts the number of attempts made.
+   * @param exception the exception raised by the last attempt, or null.
+   */
+  protected void reconnectFailed(int attempts, Exception exception)
+  {
+    setChanged();
+    notifyObservers(RECONNECT_FAILED);
+  }
 }
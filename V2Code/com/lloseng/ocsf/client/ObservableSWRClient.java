@@ -5,19 +5,37 @@
 package com.lloseng.ocsf.client;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.io.*;
 import java.net.*;
 
+import com.lloseng.ocsf.common.*;
+
 /**
  * This class acts as a subclass of <code>AbstractClient</code>
  * and is also an <code>Observable</code> class.
  * Each time a new message is received, observers are notified.
  * This class contains two blocking methods that can be used
  * when a user wishes to send a message and then wait for a reply
- * from the server.
+ * from the server.<p>
+ *
+ * The modifications made to this class in version 2.4 are:
+ * <ul>
+ * <li> Requests can be sent with <code>sendRequest()</code>, which does
+ * not block and returns the future reply. Each request carries a
+ * correlation id, which the server copies in its reply, so that any
+ * number of requests can be outstanding on the connection and each
+ * reply is matched with its request, not by value. The blocking
+ * methods allow only one exchange at a time.
+ * <li> A request can be given a timeout, after which its future fails
+ * with a <code>TimeoutException</code>. The timeouts are run by the
+ * shared scheduler of <code>CompletableFuture</code>, not by a waiting
+ * thread.
+ * </ul><p>
  *
  * @author Dr Robert Lagani&egrave;re
- * @version April 2002
+ * @version October 2026 (2.4)
  */
 public class ObservableSWRClient extends ObservableClient
 {
@@ -37,6 +55,19 @@ public class ObservableSWRClient extends ObservableClient
   private Exception exception;
   private Object received;
 
+  /**
+   * The replies expected by the requests sent with
+   * <code>sendRequest()</code>, by correlation id.
+   * Added in version 2.4.
+   */
+  private final Map<Long, CompletableFuture<Object>> pending =
+    new ConcurrentHashMap<>();
+
+  /**
+   * The last correlation id used. Added in version 2.4.
+   */
+  private final AtomicLong lastCorrelationId = new AtomicLong();
+
   //Constructor *****************************************************
 
   public ObservableSWRClient(String host, int port)
@@ -158,6 +189,70 @@ public class ObservableSWRClient extends ObservableClient
       return received;
   }
 
+  /**
+   * Sends a request to the server without waiting for its reply.
+   * The request is wrapped in a <code>CorrelatedMessage</code>, which
+   * the server answers with <code>CorrelatedMessage.reply()</code>.
+   * Unlike <code>sendAndWaitForReply</code>, this method can be called
+   * by several threads at once, and any number of requests can be
+   * waiting for their reply.<p>
+   *
+   * The future is completed with the reply by the thread reading
+   * the messages from the server, so actions attached to it should not
+   * block, or use the asynchronous methods of the future. It fails if
+   * the request cannot be sent or if the connection closes before the
+   * reply arrives. It can be cancelled, or given a timeout with
+   * <code>sendRequest(Object, long, TimeUnit)</code>; a reply arriving
+   * afterwards is then passed to the observers like any other message.
+   * The request is written by <code>sendAsync()</code>, so this method
+   * does not block either.
+   *
+   * @param message the request.
+   * @return the future reply.
+   */
+  public CompletableFuture<Object> sendRequest(Object message)
+  {
+    long id = lastCorrelationId.incrementAndGet();
+    CompletableFuture<Object> reply = new CompletableFuture<>();
+    pending.put(id, reply);
+    reply.whenComplete((result, ex) -> pending.remove(id));
+
+    sendAsync(new CorrelatedMessage(id, message)).whenComplete(
+      (sent, ex) -> {
+        if (ex != null)
+          reply.completeExceptionally(ex);
+      });
+    return reply;
+  }
+
+  /**
+   * Sends a request to the server without waiting for its reply, and
+   * gives up on the reply after a timeout.
+   *
+   * @param message the request.
+   * @param timeout the time to wait for the reply.
+   * @param unit the unit of the timeout.
+   * @return the future reply, which fails with a
+   *  <code>TimeoutException</code> if the reply does not arrive in time.
+   * @see #sendRequest(Object)
+   */
+  public CompletableFuture<Object> sendRequest(Object message, long timeout,
+    TimeUnit unit)
+  {
+    return sendRequest(message).orTimeout(timeout, unit);
+  }
+
+  /**
+   * Returns the number of requests sent with <code>sendRequest()</code>
+   * that are waiting for their reply.
+   *
+   * @return the number of requests.
+   */
+  public int getPendingRequestCount()
+  {
+    return pending.size();
+  }
+
   /**
    * Cancels the exchange with the server.
    *
@@ -193,6 +288,31 @@ public class ObservableSWRClient extends ObservableClient
     notifyAll();
   }
 
+  /**
+   * Completes the request matching a reply.
+   *
+   * @return true if the reply was expected.
+   */
+  private boolean receiveReply(CorrelatedMessage reply)
+  {
+    if (!reply.isReply())
+      return false;
+
+    CompletableFuture<Object> request = pending.remove(reply.getCorrelationId());
+    return request != null && request.complete(reply.getMessage());
+  }
+
+  /**
+   * Fails all the requests waiting for their reply.
+   */
+  private void failPendingRequests(Exception ex)
+  {
+    for (CompletableFuture<Object> request : pending.values())
+    {
+      request.completeExceptionally(ex);
+    }
+  }
+
   private synchronized void receive(Object ob)
   {
     if (expected.contains(ob))
@@ -211,6 +331,10 @@ public class ObservableSWRClient extends ObservableClient
    */
   protected void handleMessageFromServer(Object message)
   {
+    if (message instanceof CorrelatedMessage
+      && receiveReply((CorrelatedMessage)message))
+      return;
+
     receive(message);
 
     setChanged();
@@ -222,6 +346,7 @@ public class ObservableSWRClient extends ObservableClient
    */
   protected void connectionClosed()
   {
+    failPendingRequests(new IOException("Connection closed"));
     notify(null);
 
     setChanged();
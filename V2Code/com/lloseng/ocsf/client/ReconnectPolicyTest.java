@@ -0,0 +1,164 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.client;
+
+import java.util.*;
+
+/**
+* The <code> ReconnectPolicyTest </code> class checks the delays given
+* by a <code>ReconnectPolicy</code>: each delay is positive and at most
+* the bound of its attempt, the bounds double from the initial delay up
+* to the maximum delay without overflowing, and the number of attempts
+* is limited as requested.<p>
+*
+* Type <code>java com.lloseng.ocsf.client.ReconnectPolicyTest</code> to
+* run it. Each failed check is printed, and the exit status is the
+* number of failed checks.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+*/
+public class ReconnectPolicyTest
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The number of delays drawn for each attempt checked.
+   */
+  private static final int DRAWS = 10000;
+
+  /**
+   * The number of checks that failed.
+   */
+  private static int failures = 0;
+
+  // CLASS METHODS **************************************************
+
+  /**
+   * Runs the checks.
+   *
+   * @param args not used.
+   */
+  public static void main(String[] args)
+  {
+    testBounds(new ReconnectPolicy(100, 30000, 0));
+    testBounds(new ReconnectPolicy(1, Long.MAX_VALUE, 0));
+    testBounds(new ReconnectPolicy(500, 500, 0));
+    testSpread();
+    testAttempts();
+    testInvalid();
+
+    System.out.println(failures == 0 ? "All checks passed" :
+      failures + " checks failed");
+    System.exit(failures);
+  }
+
+  /**
+   * Checks that the delays of the first attempts, and of attempts far
+   * beyond those needed to reach the maximum delay, stay within their
+   * bounds.
+   */
+  private static void testBounds(ReconnectPolicy policy)
+  {
+    int[] attempts = {0, 1, 2, 10, 30, 62, 63, 64, 1000, Integer.MAX_VALUE};
+    for (int attempt : attempts)
+    {
+      long bound = bound(policy, attempt);
+      long lowest = Long.MAX_VALUE, highest = 0;
+      for (int i=0; i<DRAWS; i++)
+      {
+        long delay = policy.nextDelay(attempt);
+        lowest = Math.min(lowest, delay);
+        highest = Math.max(highest, delay);
+      }
+      check(lowest >= 1 && highest <= bound,
+        policy + ", attempt " + attempt + ": delays in [1, " + bound + "]"
+        + " but got [" + lowest + ", " + highest + "]");
+    }
+  }
+
+  /**
+   * Checks that the delays are spread over their bound rather than
+   * always close to it, so that the clients of a restarted server do
+   * not reconnect all at once.
+   */
+  private static void testSpread()
+  {
+    ReconnectPolicy policy = new ReconnectPolicy(1000, 1000, 0);
+    int low = 0;
+    for (int i=0; i<DRAWS; i++)
+    {
+      if (policy.nextDelay(0) <= 500)
+        low++;
+    }
+    check(low > DRAWS / 3 && low < 2 * DRAWS / 3,
+      "delays spread over their bound: " + low + " of " + DRAWS
+      + " in the lower half");
+  }
+
+  /**
+   * Checks the number of attempts allowed.
+   */
+  private static void testAttempts()
+  {
+    ReconnectPolicy limited = new ReconnectPolicy(100, 1000, 3);
+    check(limited.allowsAttempt(0) && limited.allowsAttempt(2),
+      "attempts below the limit allowed");
+    check(!limited.allowsAttempt(3) && !limited.allowsAttempt(100),
+      "attempts from the limit refused");
+
+    ReconnectPolicy unlimited = new ReconnectPolicy(100, 1000, 0);
+    check(unlimited.allowsAttempt(Integer.MAX_VALUE),
+      "attempts allowed without a limit");
+  }
+
+  /**
+   * Checks that the invalid policies are refused.
+   */
+  private static void testInvalid()
+  {
+    long[][] invalid = {{0, 1000, 0}, {-1, 1000, 0}, {1000, 999, 0},
+      {100, 1000, -1}};
+    for (long[] values : invalid)
+    {
+      try
+      {
+        new ReconnectPolicy(values[0], values[1], (int)values[2]);
+        check(false, "invalid policy " + Arrays.toString(values)
+          + " refused");
+      }
+      catch (IllegalArgumentException e)
+      {
+        // expected
+      }
+    }
+  }
+
+  /**
+   * Returns the bound of the delay of an attempt: the initial delay
+   * doubled at each attempt, up to the maximum delay.
+   */
+  private static long bound(ReconnectPolicy policy, int attempt)
+  {
+    long bound = policy.getInitialDelay();
+    for (int i=0; i<attempt && bound < policy.getMaxDelay(); i++)
+      bound = bound > policy.getMaxDelay() / 2 ?
+        policy.getMaxDelay() : bound * 2;
+    return Math.min(bound, policy.getMaxDelay());
+  }
+
+  private static void check(boolean condition, String name)
+  {
+    if (!condition)
+    {
+      failures++;
+      System.out.println("FAILED: " + name);
+    }
+  }
+}
+// End of ReconnectPolicyTest class
@@ -0,0 +1,236 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.codec;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+* A <code> BatchingOutputStream </code> is the buffered stream between
+* the messages written by a connection and its socket. The connection
+* calls <code>messageWritten()</code> after each complete message, and the
+* stream flushes its buffer according to a <code>FlushPolicy</code>.
+* A message can also be deferred explicitly, in which case it is only
+* sent with the next flush.<p>
+*
+* When the policy has a delay, the pending messages are flushed by a
+* daemon timer thread shared by all the streams.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.codec.FlushPolicy
+*/
+public class BatchingOutputStream extends BufferedOutputStream
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The size of the buffer, in bytes.
+   */
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * The timer flushing the streams after the delay of their policy.
+   * Created when first needed.
+   */
+  private static ScheduledExecutorService timer;
+
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * Counts the write operations made on the socket.
+   */
+  private final CountingOutputStream counter;
+
+  /**
+   * When the stream is flushed.
+   */
+  private volatile FlushPolicy policy;
+
+  /**
+   * The number of messages written since the last flush.
+   */
+  private int waiting = 0;
+
+  /**
+   * Indicates if a flush has been scheduled with the timer.
+   */
+  private boolean flushScheduled = false;
+
+  /**
+   * Indicates if the buffered data is dropped instead of being sent,
+   * once the socket has been closed.
+   */
+  private boolean discarded = false;
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Creates a stream writing to the given stream.
+   *
+   * @param out the underlying stream, usually the one of a socket.
+   * @param policy when the stream is flushed.
+   */
+  public BatchingOutputStream(OutputStream out, FlushPolicy policy)
+  {
+    this(new CountingOutputStream(out), policy);
+  }
+
+  private BatchingOutputStream(CountingOutputStream counter,
+    FlushPolicy policy)
+  {
+    super(counter, BUFFER_SIZE);
+    this.counter = counter;
+    this.policy = policy == null ? FlushPolicy.IMMEDIATE : policy;
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Notifies the stream that a complete message has been written.
+   * The stream is flushed if the policy says so, unless the message
+   * is deferred.
+   *
+   * @param deferred true if the message must wait for the next flush.
+   * @exception IOException if an I/O error occurs when flushing.
+   */
+  public synchronized void messageWritten(boolean deferred)
+    throws IOException
+  {
+    waiting++;
+
+    if (!deferred && policy.isFlushDue(waiting))
+    {
+      flush();
+      return;
+    }
+
+    long delay = policy.getDelay();
+    if (delay > 0 && !flushScheduled)
+    {
+      flushScheduled = true;
+      timer().schedule(this::timedFlush, delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Sends all the buffered data.
+   *
+   * @exception IOException if an I/O error occurs.
+   */
+  public synchronized void flush() throws IOException
+  {
+    waiting = 0;
+    if (discarded)
+    {
+      count = 0;
+      return;
+    }
+    super.flush();
+  }
+
+  /**
+   * Drops the buffered data instead of sending it, and makes the
+   * following flushes drop it too. Called when the socket is closed, so
+   * that closing the streams above this one does not fail trying to send
+   * the messages still waiting.
+   */
+  public synchronized void discard()
+  {
+    discarded = true;
+    waiting = 0;
+    count = 0;
+  }
+
+  /**
+   * Changes the flush policy.
+   *
+   * @param policy when the stream is flushed.
+   */
+  public void setFlushPolicy(FlushPolicy policy)
+  {
+    this.policy = policy == null ? FlushPolicy.IMMEDIATE : policy;
+  }
+
+  /**
+   * Returns the flush policy.
+   *
+   * @return the policy.
+   */
+  public FlushPolicy getFlushPolicy()
+  {
+    return policy;
+  }
+
+  /**
+   * Returns the number of messages waiting in the buffer.
+   *
+   * @return the number of messages.
+   */
+  public synchronized int getWaitingCount()
+  {
+    return waiting;
+  }
+
+  /**
+   * Returns the number of write operations made on the underlying
+   * stream. For a socket, this is the number of system calls made
+   * to send data.
+   *
+   * @return the number of write operations.
+   */
+  public long getWriteCount()
+  {
+    return counter.getWriteCount();
+  }
+
+  /**
+   * Returns the number of bytes written to the underlying stream.
+   *
+   * @return the number of bytes.
+   */
+  public long getByteCount()
+  {
+    return counter.getByteCount();
+  }
+
+  /**
+   * Flushes the waiting messages. Run by the timer.
+   */
+  private synchronized void timedFlush()
+  {
+    flushScheduled = false;
+    if (waiting == 0)
+      return;
+
+    try
+    {
+      flush();
+    }
+    catch (IOException ex)
+    {
+      // The stream has been closed; the connection will notice it
+    }
+  }
+
+  /**
+   * Returns the timer, creating it if needed.
+   */
+  private static synchronized ScheduledExecutorService timer()
+  {
+    if (timer == null)
+    {
+      timer = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "OCSF flush timer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return timer;
+  }
+}
@@ -0,0 +1,161 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.codec;
+
+import java.io.*;
+import java.nio.charset.*;
+
+/**
+* The <code> BinaryCodec </code> encodes the most common messages,
+* <code>String</code> and <code>byte[]</code>, without Java serialization:
+* a string is sent as its UTF-8 bytes and a byte array as is, after a
+* one byte tag. Any other message is delegated to a fallback codec, Java
+* serialization by default, so that a chat application keeps working
+* when it occasionally sends another kind of object.<p>
+*
+* Compared to serialization, this removes the stream header and the class
+* descriptor sent with every message, and the reflective work done to read
+* them, which dominates the cost of short chat lines.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+*/
+public class BinaryCodec implements MessageCodec
+{
+  // Class variables ************************************************
+
+  /**
+   * Tag of a <code>null</code> message.
+   */
+  private static final byte NULL_TAG = 0;
+
+  /**
+   * Tag of a <code>String</code> message.
+   */
+  private static final byte STRING_TAG = 1;
+
+  /**
+   * Tag of a <code>byte[]</code> message.
+   */
+  private static final byte BYTES_TAG = 2;
+
+  /**
+   * Tag of a message encoded by the fallback codec.
+   */
+  private static final byte FALLBACK_TAG = 3;
+
+  //Instance variables **********************************************
+
+  /**
+   * The codec used for the messages that are neither strings
+   * nor byte arrays.
+   */
+  private MessageCodec fallback;
+
+  //Constructors ****************************************************
+
+  /**
+   * Constructs a codec that serializes the other messages.
+   */
+  public BinaryCodec()
+  {
+    this(new SerializationCodec());
+  }
+
+  /**
+   * Constructs a codec with the given fallback.
+   *
+   * @param fallback the codec used for the messages that are neither
+   *  strings nor byte arrays.
+   */
+  public BinaryCodec(MessageCodec fallback)
+  {
+    this.fallback = fallback;
+  }
+
+  //Instance methods ************************************************
+
+  /**
+   * Encodes a message.
+   *
+   * @param message the message to be sent.
+   * @return the tag followed by the bytes of the message.
+   * @exception IOException if the message cannot be encoded.
+   */
+  public byte[] encode(Object message) throws IOException
+  {
+    if (message == null)
+    {
+      return new byte[] {NULL_TAG};
+    }
+    else if (message instanceof String)
+    {
+      return tag(STRING_TAG,
+        ((String)message).getBytes(StandardCharsets.UTF_8));
+    }
+    else if (message instanceof byte[])
+    {
+      return tag(BYTES_TAG, (byte[])message);
+    }
+    else
+    {
+      return tag(FALLBACK_TAG, fallback.encode(message));
+    }
+  }
+
+  /**
+   * Decodes a message.
+   *
+   * @param payload the array containing the payload of the frame.
+   * @param offset the index of the first byte of the payload.
+   * @param length the length of the payload.
+   * @return the message received.
+   * @exception IOException if the payload is not valid.
+   * @exception ClassNotFoundException if the class of a message decoded
+   *  by the fallback codec is unknown.
+   */
+  public Object decode(byte[] payload, int offset, int length)
+    throws IOException, ClassNotFoundException
+  {
+    if (length < 1)
+      throw new StreamCorruptedException("empty message");
+
+    switch (payload[offset])
+    {
+      case NULL_TAG:
+        return null;
+
+      case STRING_TAG:
+        return new String(payload, offset + 1, length - 1,
+          StandardCharsets.UTF_8);
+
+      case BYTES_TAG:
+        byte[] bytes = new byte[length - 1];
+        System.arraycopy(payload, offset + 1, bytes, 0, bytes.length);
+        return bytes;
+
+      case FALLBACK_TAG:
+        return fallback.decode(payload, offset + 1, length - 1);
+
+      default:
+        throw new StreamCorruptedException(
+          "unknown message tag " + payload[offset]);
+    }
+  }
+
+  /**
+   * Returns the given bytes preceded by a tag.
+   */
+  private static byte[] tag(byte tag, byte[] bytes)
+  {
+    byte[] result = new byte[bytes.length + 1];
+    result[0] = tag;
+    System.arraycopy(bytes, 0, result, 1, bytes.length);
+    return result;
+  }
+}
@@ -0,0 +1,216 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.codec;
+
+import java.io.*;
+import java.util.*;
+
+/**
+* The <code> CodecTest </code> class checks the codecs and the framing
+* of the messages: that every kind of message survives an encoding and a
+* decoding, that the corrupted payloads are refused, and that the length
+* of a frame is validated before its payload is read.<p>
+*
+* Type <code>java com.lloseng.ocsf.codec.CodecTest</code> to run it. Each
+* failed check is printed, and the exit status is the number of failed
+* checks.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+*/
+public class CodecTest
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The number of checks that failed.
+   */
+  private static int failures = 0;
+
+  // CLASS METHODS **************************************************
+
+  /**
+   * Runs the checks.
+   *
+   * @param args not used.
+   */
+  public static void main(String[] args) throws Exception
+  {
+    testBinaryRoundTrip();
+    testBinaryOffset();
+    testBinaryCorrupted();
+    testSerializationRoundTrip();
+    testFrames();
+    testInvalidFrameLengths();
+    testTruncatedFrame();
+
+    System.out.println(failures == 0 ? "All checks passed" :
+      failures + " checks failed");
+    System.exit(failures);
+  }
+
+  /**
+   * Encodes and decodes each kind of message with a
+   * <code>BinaryCodec</code>.
+   */
+  private static void testBinaryRoundTrip() throws Exception
+  {
+    MessageCodec codec = new BinaryCodec();
+    byte[] bytes = {0, 1, -1, 127, -128};
+
+    check(codec.decode(codec.encode(null), 0, 1) == null, "null message");
+    check("".equals(roundTrip(codec, "")), "empty string");
+    check("h\u00e9llo \u4e16\u754c".equals(roundTrip(codec, "h\u00e9llo \u4e16\u754c")),
+      "string outside ASCII");
+    check(Arrays.equals(bytes, (byte[])roundTrip(codec, bytes)), "byte array");
+    check(Integer.valueOf(42).equals(roundTrip(codec, 42)),
+      "message of the fallback codec");
+    check(List.of("a", "b").equals(roundTrip(codec, new ArrayList<>(List.of("a", "b")))),
+      "serializable collection");
+  }
+
+  /**
+   * Decodes a payload that does not start at the beginning of its array.
+   */
+  private static void testBinaryOffset() throws Exception
+  {
+    MessageCodec codec = new BinaryCodec();
+    byte[] payload = codec.encode("offset");
+    byte[] buffer = new byte[payload.length + 10];
+    System.arraycopy(payload, 0, buffer, 7, payload.length);
+
+    check("offset".equals(codec.decode(buffer, 7, payload.length)),
+      "payload at an offset");
+  }
+
+  /**
+   * Decodes payloads that no <code>BinaryCodec</code> produces.
+   */
+  private static void testBinaryCorrupted() throws Exception
+  {
+    MessageCodec codec = new BinaryCodec();
+
+    checkThrows(StreamCorruptedException.class,
+      () -> codec.decode(new byte[0], 0, 0), "empty payload");
+    checkThrows(StreamCorruptedException.class,
+      () -> codec.decode(new byte[] {99, 1, 2}, 0, 3), "unknown tag");
+  }
+
+  /**
+   * Encodes and decodes messages with a <code>SerializationCodec</code>.
+   */
+  private static void testSerializationRoundTrip() throws Exception
+  {
+    MessageCodec codec = new SerializationCodec();
+    Map<String, Integer> map = new HashMap<>(Map.of("one", 1, "two", 2));
+
+    check("text".equals(roundTrip(codec, "text")), "serialized string");
+    check(map.equals(roundTrip(codec, map)), "serialized map");
+  }
+
+  /**
+   * Reads frames shorter and longer than the first chunk read.
+   */
+  private static void testFrames() throws Exception
+  {
+    for (int length : new int[] {0, 1, MessageCodec.FRAME_CHUNK,
+      MessageCodec.FRAME_CHUNK + 1, 5 * MessageCodec.FRAME_CHUNK + 3})
+    {
+      byte[] payload = new byte[length];
+      new Random(length).nextBytes(payload);
+
+      byte[] read = MessageCodec.readFrame(input(length, payload));
+      check(Arrays.equals(payload, read), "frame of " + length + " bytes");
+    }
+
+    byte[] largest = new byte[MessageCodec.MAX_FRAME_LENGTH];
+    check(MessageCodec.readFrame(input(largest.length, largest)).length
+      == largest.length, "frame of the largest length");
+  }
+
+  /**
+   * Reads frames whose length is negative or too large.
+   */
+  private static void testInvalidFrameLengths() throws Exception
+  {
+    checkThrows(StreamCorruptedException.class,
+      () -> MessageCodec.readFrame(input(-1, new byte[0])), "negative length");
+    checkThrows(StreamCorruptedException.class,
+      () -> MessageCodec.readFrame(input(Integer.MIN_VALUE, new byte[0])),
+      "smallest length");
+    checkThrows(StreamCorruptedException.class,
+      () -> MessageCodec.readFrame(input(MessageCodec.MAX_FRAME_LENGTH + 1,
+      new byte[0])), "length above the maximum");
+  }
+
+  /**
+   * Reads a frame announcing more bytes than the peer sends, as a peer
+   * trying to make the framework allocate memory would.
+   */
+  private static void testTruncatedFrame() throws Exception
+  {
+    checkThrows(EOFException.class,
+      () -> MessageCodec.readFrame(input(MessageCodec.MAX_FRAME_LENGTH,
+      new byte[10])), "truncated frame");
+    checkThrows(EOFException.class,
+      () -> MessageCodec.readFrame(new DataInputStream(
+      new ByteArrayInputStream(new byte[] {0, 0}))), "truncated length");
+  }
+
+  /**
+   * Returns a stream containing a frame header followed by bytes.
+   */
+  private static DataInput input(int length, byte[] payload)
+    throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(length);
+    output.write(payload);
+    return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+  }
+
+  private static Object roundTrip(MessageCodec codec, Object message)
+    throws Exception
+  {
+    byte[] payload = codec.encode(message);
+    return codec.decode(payload, 0, payload.length);
+  }
+
+  private static void check(boolean condition, String name)
+  {
+    if (!condition)
+    {
+      failures++;
+      System.out.println("FAILED: " + name);
+    }
+  }
+
+  private static void checkThrows(Class<? extends Throwable> expected,
+    Action action, String name)
+  {
+    try
+    {
+      action.run();
+      check(false, name + " (no exception)");
+    }
+    catch (Throwable e)
+    {
+      check(expected.isInstance(e), name + " (" + e + ")");
+    }
+  }
+
+  /**
+   * An action expected to throw an exception.
+   */
+  private interface Action
+  {
+    void run() throws Exception;
+  }
+}
+// End of CodecTest class
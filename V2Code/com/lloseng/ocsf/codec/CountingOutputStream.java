@@ -0,0 +1,66 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.codec;
+
+import java.io.*;
+
+/**
+* A <code> CountingOutputStream </code> counts the bytes written through
+* it, and the number of write operations made on the underlying stream.
+* When that stream is a socket stream, each operation is a system call.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+*/
+final class CountingOutputStream extends FilterOutputStream
+{
+  /**
+   * The number of bytes written.
+   */
+  private volatile long byteCount = 0;
+
+  /**
+   * The number of write operations.
+   */
+  private volatile long writeCount = 0;
+
+  CountingOutputStream(OutputStream out)
+  {
+    super(out);
+  }
+
+  public void write(int b) throws IOException
+  {
+    out.write(b);
+    byteCount++;
+    writeCount++;
+  }
+
+  public void write(byte[] b, int off, int len) throws IOException
+  {
+    out.write(b, off, len);
+    byteCount += len;
+    writeCount++;
+  }
+
+  /**
+   * Returns the number of bytes written.
+   */
+  long getByteCount()
+  {
+    return byteCount;
+  }
+
+  /**
+   * Returns the number of write operations.
+   */
+  long getWriteCount()
+  {
+    return writeCount;
+  }
+}
@@ -0,0 +1,115 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.codec;
+
+/**
+* A <code> FlushPolicy </code> tells when the messages written to the
+* buffered stream of a connection are actually sent. Flushing after each
+* message gives the lowest latency, but a burst of small messages then
+* costs one system call, and often one TCP segment, per message. Letting
+* a few messages accumulate in the buffer sends them together.<p>
+*
+* A batching policy flushes the stream once a number of messages are
+* waiting, or when the oldest of them has been waiting for a given delay,
+* whichever comes first. The delay guarantees that the last messages of a
+* burst are sent even if no other message follows. Instances are
+* immutable.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.codec.BatchingOutputStream
+*/
+public final class FlushPolicy
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The stream is flushed after each message. This is the default.
+   */
+  public static final FlushPolicy IMMEDIATE = new FlushPolicy(1, 0);
+
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The number of waiting messages that triggers a flush, or 0.
+   */
+  private final int messages;
+
+  /**
+   * The maximum time a message waits in the buffer, in ms, or 0.
+   */
+  private final long delay;
+
+// CONSTRUCTORS *****************************************************
+
+  private FlushPolicy(int messages, long delay)
+  {
+    this.messages = messages;
+    this.delay = delay;
+  }
+
+  /**
+   * Returns a policy flushing the stream once the given number of
+   * messages are waiting, or after the given delay.
+   *
+   * @param messages the number of messages sent together, or 0 to only
+   *  flush after the delay.
+   * @param delay the maximum time a message waits in the buffer, in ms.
+   * @return the policy.
+   */
+  public static FlushPolicy batch(int messages, long delay)
+  {
+    if (messages < 0)
+      throw new IllegalArgumentException("negative number of messages");
+    if (delay <= 0)
+      throw new IllegalArgumentException("the delay must be positive");
+
+    return new FlushPolicy(messages, delay);
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Indicates if the stream must be flushed now.
+   *
+   * @param waiting the number of messages waiting in the buffer.
+   * @return true if the stream must be flushed.
+   */
+  public boolean isFlushDue(int waiting)
+  {
+    return messages > 0 && waiting >= messages;
+  }
+
+  /**
+   * Returns the number of waiting messages that triggers a flush.
+   *
+   * @return the number of messages, or 0 for no limit.
+   */
+  public int getMessages()
+  {
+    return messages;
+  }
+
+  /**
+   * Returns the maximum time a message waits in the buffer.
+   *
+   * @return the delay in ms, or 0 if messages are flushed at once.
+   */
+  public long getDelay()
+  {
+    return delay;
+  }
+
+  public String toString()
+  {
+    if (delay == 0)
+      return "FlushPolicy[immediate]";
+
+    return "FlushPolicy[messages=" + messages + ", delay=" + delay + "]";
+  }
+}
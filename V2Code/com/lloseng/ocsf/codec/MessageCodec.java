@@ -0,0 +1,99 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.codec;
+
+import java.io.*;
+import java.util.*;
+
+/**
+* The <code> MessageCodec </code> interface defines how messages are
+* turned into bytes and back when a client and a server exchange frames
+* instead of using a continuous object stream. A codec is set with
+* <code>AbstractServer.setCodec()</code> and
+* <code>AbstractClient.setCodec()</code>, and both sides must of course
+* use the same one.<p>
+*
+* On the wire, each message is a frame made of a four bytes length,
+* in network order, followed by the bytes produced by the codec.
+* The framework is responsible for the length; the codec only deals
+* with the payload. Since each payload is decoded independently,
+* a codec does not keep any state between messages and a single
+* instance can be shared by all the connections.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.codec.SerializationCodec
+* @see com.lloseng.ocsf.codec.BinaryCodec
+*/
+public interface MessageCodec
+{
+  /**
+   * The largest payload accepted in a frame, in bytes. A longer frame
+   * is considered as a corrupted stream.
+   */
+  public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+  /**
+   * The number of bytes first allocated to read a payload. The array
+   * then doubles as the bytes are received.
+   */
+  public static final int FRAME_CHUNK = 64 * 1024;
+
+  /**
+   * Encodes a message.
+   *
+   * @param message the message to be sent.
+   * @return the payload of the frame.
+   * @exception IOException if the message cannot be encoded.
+   */
+  public abstract byte[] encode(Object message) throws IOException;
+
+  /**
+   * Decodes a message.
+   *
+   * @param payload the array containing the payload of the frame.
+   * @param offset the index of the first byte of the payload.
+   * @param length the length of the payload.
+   * @return the message received.
+   * @exception IOException if the payload is not valid.
+   * @exception ClassNotFoundException if the class of the message is unknown.
+   */
+  public abstract Object decode(byte[] payload, int offset, int length)
+    throws IOException, ClassNotFoundException;
+
+  /**
+   * Reads the next frame from a stream and returns its payload. The
+   * payload is read in chunks that double in size, so that the memory
+   * taken follows the bytes actually received rather than the length
+   * announced by the peer.
+   *
+   * @param input the stream.
+   * @return the payload of the frame.
+   * @exception StreamCorruptedException if the length is not valid.
+   * @exception IOException if an I/O error occurs when reading.
+   */
+  public static byte[] readFrame(DataInput input) throws IOException
+  {
+    int length = input.readInt();
+    if (length < 0 || length > MAX_FRAME_LENGTH)
+      throw new StreamCorruptedException("invalid message length " + length);
+
+    byte[] payload = new byte[Math.min(length, FRAME_CHUNK)];
+    int count = 0;
+    while (true)
+    {
+      input.readFully(payload, count, payload.length - count);
+      count = payload.length;
+      if (count == length)
+        return payload;
+
+      payload = Arrays.copyOf(payload,
+        (int)Math.min(length, 2L * count));
+    }
+  }
+}
@@ -0,0 +1,150 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.codec;
+
+/**
+* A <code> ResetPolicy </code> tells when the object stream of a
+* connection is reset. An <code>ObjectOutputStream</code> remembers every
+* object it has written, so that an object sent twice is only sent once
+* followed by a back-reference. On a long-lived connection, these objects
+* can never be garbage collected, and the memory used grows with the
+* traffic. Resetting the stream forgets them.<p>
+*
+* A reset also means that an object modified after having been sent is
+* sent again with its new state, instead of as a reference to the old
+* one. On the other hand, an object sent in two messages separated by a
+* reset is received as two distinct objects.<p>
+*
+* A policy can reset the stream after a number of messages, after a
+* number of bytes, or both, whichever comes first. Instances are
+* immutable.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.codec.ResettingObjectOutputStream
+*/
+public final class ResetPolicy
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The stream is never reset. This is the behaviour of the previous
+   * versions of the framework, and the default.
+   */
+  public static final ResetPolicy NEVER = new ResetPolicy(0, 0);
+
+  /**
+   * The stream is reset after each message, so that no object is kept
+   * between two messages.
+   */
+  public static final ResetPolicy PER_MESSAGE = new ResetPolicy(1, 0);
+
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The number of messages between two resets, or 0.
+   */
+  private final int messages;
+
+  /**
+   * The number of bytes between two resets, or 0.
+   */
+  private final long bytes;
+
+// CONSTRUCTORS *****************************************************
+
+  private ResetPolicy(int messages, long bytes)
+  {
+    this.messages = messages;
+    this.bytes = bytes;
+  }
+
+  /**
+   * Returns a policy resetting the stream every given number of messages.
+   *
+   * @param messages the number of messages between two resets.
+   * @return the policy.
+   */
+  public static ResetPolicy everyMessages(int messages)
+  {
+    return every(messages, 0);
+  }
+
+  /**
+   * Returns a policy resetting the stream once the given number of bytes
+   * has been written since the last reset.
+   *
+   * @param bytes the number of bytes between two resets.
+   * @return the policy.
+   */
+  public static ResetPolicy everyBytes(long bytes)
+  {
+    return every(0, bytes);
+  }
+
+  /**
+   * Returns a policy resetting the stream after the given number of
+   * messages or bytes, whichever comes first.
+   *
+   * @param messages the number of messages between two resets,
+   *  or 0 for no limit.
+   * @param bytes the number of bytes between two resets,
+   *  or 0 for no limit.
+   * @return the policy.
+   */
+  public static ResetPolicy every(int messages, long bytes)
+  {
+    if (messages < 0 || bytes < 0)
+      throw new IllegalArgumentException("negative limit");
+
+    return new ResetPolicy(messages, bytes);
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Indicates if the stream must be reset.
+   *
+   * @param messagesSinceReset the messages written since the last reset.
+   * @param bytesSinceReset the bytes written since the last reset.
+   * @return true if the stream must be reset.
+   */
+  public boolean isResetDue(int messagesSinceReset, long bytesSinceReset)
+  {
+    return (messages > 0 && messagesSinceReset >= messages)
+      || (bytes > 0 && bytesSinceReset >= bytes);
+  }
+
+  /**
+   * Returns the number of messages between two resets.
+   *
+   * @return the number of messages, or 0 for no limit.
+   */
+  public int getMessages()
+  {
+    return messages;
+  }
+
+  /**
+   * Returns the number of bytes between two resets.
+   *
+   * @return the number of bytes, or 0 for no limit.
+   */
+  public long getBytes()
+  {
+    return bytes;
+  }
+
+  public String toString()
+  {
+    if (messages == 0 && bytes == 0)
+      return "ResetPolicy[never]";
+
+    return "ResetPolicy[messages=" + messages + ", bytes=" + bytes + "]";
+  }
+}
@@ -0,0 +1,190 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.codec;
+
+import java.io.*;
+
+/**
+* A <code> ResettingObjectOutputStream </code> is the object stream used
+* by the connections of the framework. Messages are written with
+* <code>writeMessage()</code>, which resets the stream according to a
+* <code>ResetPolicy</code>, so that a long-lived connection runs in
+* bounded memory.<p>
+*
+* The stream also counts the objects written since the last reset. Each
+* of them occupies an entry of the handle table of the stream until the
+* next reset, so this count tells how much the stream retains.<p>
+*
+* Like any object stream, this class is not thread-safe.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.codec.ResetPolicy
+*/
+public final class ResettingObjectOutputStream extends ObjectOutputStream
+{
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * Counts the bytes written to the underlying stream.
+   */
+  private final CountingOutputStream counter;
+
+  /**
+   * When the stream is reset.
+   */
+  private volatile ResetPolicy policy;
+
+  /**
+   * The number of messages written since the last reset.
+   */
+  private int messagesSinceReset = 0;
+
+  /**
+   * The number of bytes written when the stream was last reset.
+   */
+  private long bytesAtReset = 0;
+
+  /**
+   * The number of objects written since the last reset.
+   */
+  private int handleCount = 0;
+
+  /**
+   * The number of times the stream has been reset.
+   */
+  private long resetCount = 0;
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Creates a stream writing to the given stream. The header of the
+   * stream is written immediately.
+   *
+   * @param out the underlying stream.
+   * @param policy when the stream is reset.
+   * @exception IOException if the header cannot be written.
+   */
+  public ResettingObjectOutputStream(OutputStream out, ResetPolicy policy)
+    throws IOException
+  {
+    this(new CountingOutputStream(out), policy);
+  }
+
+  private ResettingObjectOutputStream(CountingOutputStream counter,
+    ResetPolicy policy) throws IOException
+  {
+    super(counter);
+    this.counter = counter;
+    this.policy = policy == null ? ResetPolicy.NEVER : policy;
+    enableReplaceObject(true); // so that replaceObject counts the objects
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Writes a message, then resets the stream if the policy says so.
+   *
+   * @param msg the message.
+   * @exception IOException if an I/O error occurs when writing.
+   */
+  public void writeMessage(Object msg) throws IOException
+  {
+    writeObject(msg);
+    messagesSinceReset++;
+
+    if (policy.isResetDue(messagesSinceReset, getBytesSinceReset()))
+      reset();
+  }
+
+  /**
+   * Resets the stream, forgetting all the objects already written.
+   *
+   * @exception IOException if the reset marker cannot be written.
+   */
+  public void reset() throws IOException
+  {
+    super.reset();
+    messagesSinceReset = 0;
+    handleCount = 0;
+    bytesAtReset = counter.getByteCount();
+    resetCount++;
+  }
+
+  /**
+   * Counts the objects written. Called by the stream for every object
+   * that is not already in its handle table.
+   */
+  protected Object replaceObject(Object obj)
+  {
+    handleCount++;
+    return obj;
+  }
+
+  /**
+   * Changes the reset policy.
+   *
+   * @param policy when the stream is reset.
+   */
+  public void setResetPolicy(ResetPolicy policy)
+  {
+    this.policy = policy == null ? ResetPolicy.NEVER : policy;
+  }
+
+  /**
+   * Returns the reset policy.
+   *
+   * @return the policy.
+   */
+  public ResetPolicy getResetPolicy()
+  {
+    return policy;
+  }
+
+  /**
+   * Returns the number of objects written since the last reset, which
+   * is the number of objects kept in the handle table of the stream.
+   * Class descriptors are not counted.
+   *
+   * @return the number of objects.
+   */
+  public int getHandleCount()
+  {
+    return handleCount;
+  }
+
+  /**
+   * Returns the number of messages written since the last reset.
+   *
+   * @return the number of messages.
+   */
+  public int getMessagesSinceReset()
+  {
+    return messagesSinceReset;
+  }
+
+  /**
+   * Returns the number of bytes written since the last reset.
+   *
+   * @return the number of bytes.
+   */
+  public long getBytesSinceReset()
+  {
+    return counter.getByteCount() - bytesAtReset;
+  }
+
+  /**
+   * Returns the number of times the stream has been reset.
+   *
+   * @return the number of resets.
+   */
+  public long getResetCount()
+  {
+    return resetCount;
+  }
+}
@@ -0,0 +1,60 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.codec;
+
+import java.io.*;
+
+/**
+* The <code> SerializationCodec </code> encodes each message with Java
+* serialization, as a complete stream of its own. Any
+* <code>Serializable</code> object can therefore be exchanged, as with the
+* object streams used when no codec is set. It is the codec used by a
+* server in selector mode when no other codec has been set.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+*/
+public class SerializationCodec implements MessageCodec
+{
+  /**
+   * Encodes a message by serializing it.
+   *
+   * @param message the message to be sent.
+   * @return the serialized message.
+   * @exception IOException if the message is not serializable.
+   */
+  public byte[] encode(Object message) throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+
+    ObjectOutputStream output = new ObjectOutputStream(bytes);
+    output.writeObject(message);
+    output.close();
+
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes a message by deserializing it.
+   *
+   * @param payload the array containing the serialized message.
+   * @param offset the index of the first byte of the message.
+   * @param length the length of the message.
+   * @return the message received.
+   * @exception IOException if the payload is not a valid stream.
+   * @exception ClassNotFoundException if the class of the message is unknown.
+   */
+  public Object decode(byte[] payload, int offset, int length)
+    throws IOException, ClassNotFoundException
+  {
+    ObjectInputStream input = new ObjectInputStream(
+      new ByteArrayInputStream(payload, offset, length));
+
+    return input.readObject();
+  }
+}
@@ -0,0 +1,334 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.common;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+* An <code> AsyncObserver </code> notifies an observer with its own
+* executor, so that the thread notifying it, typically the thread
+* reading from the network, never waits for the observer. Each
+* notification is put in a bounded queue and returns immediately; the
+* notifications are then delivered to the observer one at a time, in
+* order, by the threads of the executor.<p>
+*
+* When the queue is full, the <code>ObserverOverflowPolicy</code>
+* decides which notification is discarded. The number of notifications
+* delivered, dropped and coalesced, and the lag of the observer, that is
+* how long its notifications wait before being delivered, are kept so
+* that a slow observer can be spotted.<p>
+*
+* An exception thrown by the observer is passed to the uncaught
+* exception handler of the thread delivering the notification, and the
+* following notifications are still delivered. An error is thrown to
+* the executor once the delivery has been submitted again, so the
+* following notifications are delivered as well.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.ObservableServer#addObserver(Observer, Executor, int, ObserverOverflowPolicy)
+* @see com.lloseng.ocsf.client.ObservableClient#addObserver(Observer, Executor, int, ObserverOverflowPolicy)
+*/
+public class AsyncObserver implements Observer
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The maximum number of notifications delivered in a row before the
+   * thread is given back to the executor.
+   */
+  private static final int BATCH_SIZE = 64;
+
+  // INSTANCE VARIABLES *********************************************
+
+  private final Observer observer;
+
+  private final Executor executor;
+
+  private final int capacity;
+
+  private final ObserverOverflowPolicy policy;
+
+  /**
+   * The notifications waiting to be delivered. Guarded by this.
+   */
+  private final ArrayDeque<Notification> queue = new ArrayDeque<>();
+
+  /**
+   * Indicates if a delivery has been submitted to the executor and has
+   * not finished. Guarded by this.
+   */
+  private boolean scheduled = false;
+
+  private long delivered = 0;
+
+  private long dropped = 0;
+
+  private long coalesced = 0;
+
+  /**
+   * The longest time a notification waited, in nanoseconds.
+   */
+  private long maxLag = 0;
+
+  /**
+   * The delivery submitted to the executor.
+   */
+  private final Runnable delivery = this::deliver;
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Creates an asynchronous observer.
+   *
+   * @param observer the observer notified.
+   * @param executor the executor delivering the notifications.
+   * @param capacity the number of notifications that can wait.
+   * @param policy what to do when the queue is full.
+   */
+  public AsyncObserver(Observer observer, Executor executor, int capacity,
+    ObserverOverflowPolicy policy)
+  {
+    if (observer == null || executor == null || policy == null)
+      throw new NullPointerException();
+    if (capacity < 1)
+      throw new IllegalArgumentException("capacity must be positive");
+
+    this.observer = observer;
+    this.executor = executor;
+    this.capacity = capacity;
+    this.policy = policy;
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Queues a notification for the observer. Never waits.
+   *
+   * @param observable the object notifying.
+   * @param arg the argument of the notification.
+   */
+  public void update(Observable observable, Object arg)
+  {
+    Notification notification =
+      new Notification(observable, retain(arg), System.nanoTime());
+
+    synchronized (this)
+    {
+      if (policy == ObserverOverflowPolicy.COALESCE)
+      {
+        coalesced += queue.size();
+        queue.clear();
+      }
+      else if (queue.size() >= capacity)
+      {
+        dropped++;
+        if (policy == ObserverOverflowPolicy.DROP_NEWEST)
+          return;
+        queue.poll();
+      }
+      queue.add(notification);
+
+      if (scheduled)
+        return;
+      scheduled = true;
+    }
+
+    schedule();
+  }
+
+  /**
+   * Returns the argument of a notification as it is kept until it is
+   * delivered. This implementation returns the argument itself; a
+   * subclass may copy an argument that is only valid during the
+   * notification.
+   *
+   * @param arg the argument of the notification.
+   * @return the argument to deliver.
+   */
+  protected Object retain(Object arg)
+  {
+    return arg;
+  }
+
+  /**
+   * Returns the observer notified.
+   *
+   * @return the observer.
+   */
+  public Observer getObserver()
+  {
+    return observer;
+  }
+
+  /**
+   * Returns the number of notifications waiting to be delivered.
+   *
+   * @return the number of notifications.
+   */
+  public synchronized int getQueuedCount()
+  {
+    return queue.size();
+  }
+
+  /**
+   * Returns the number of notifications delivered to the observer.
+   *
+   * @return the number of notifications.
+   */
+  public synchronized long getDeliveredCount()
+  {
+    return delivered;
+  }
+
+  /**
+   * Returns the number of notifications discarded because the queue was
+   * full, with policies <code>DROP_NEWEST</code> and
+   * <code>DROP_OLDEST</code>.
+   *
+   * @return the number of notifications.
+   */
+  public synchronized long getDroppedCount()
+  {
+    return dropped;
+  }
+
+  /**
+   * Returns the number of notifications replaced by a more recent one,
+   * with policy <code>COALESCE</code>.
+   *
+   * @return the number of notifications.
+   */
+  public synchronized long getCoalescedCount()
+  {
+    return coalesced;
+  }
+
+  /**
+   * Returns the current lag of the observer: how long the oldest
+   * notification waiting has been waiting.
+   *
+   * @param unit the unit of the result.
+   * @return the lag, or 0 if no notification is waiting.
+   */
+  public long getLag(TimeUnit unit)
+  {
+    Notification oldest;
+    synchronized (this)
+    {
+      oldest = queue.peek();
+    }
+    return oldest == null ? 0 :
+      unit.convert(System.nanoTime() - oldest.time, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the longest time a notification delivered has waited.
+   *
+   * @param unit the unit of the result.
+   * @return the lag.
+   */
+  public synchronized long getMaxLag(TimeUnit unit)
+  {
+    return unit.convert(maxLag, TimeUnit.NANOSECONDS);
+  }
+
+  public String toString()
+  {
+    return "AsyncObserver[" + observer + ", " + policy + "]";
+  }
+
+  /**
+   * Submits the delivery to the executor. If the executor refuses it,
+   * the notifications waiting are dropped.
+   */
+  private void schedule()
+  {
+    try
+    {
+      executor.execute(delivery);
+    }
+    catch (RejectedExecutionException e)
+    {
+      synchronized (this)
+      {
+        dropped += queue.size();
+        queue.clear();
+        scheduled = false;
+      }
+    }
+  }
+
+  /**
+   * Delivers a batch of notifications, then submits the delivery again
+   * if notifications are still waiting. The delivery is also submitted
+   * again when the observer throws an error, which is then thrown to the
+   * executor, so that the following notifications are not blocked.
+   */
+  private void deliver()
+  {
+    boolean drained = false;
+    try
+    {
+      for (int i=0; i<BATCH_SIZE; i++)
+      {
+        Notification notification;
+        synchronized (this)
+        {
+          notification = queue.poll();
+          if (notification == null)
+          {
+            scheduled = false;
+            drained = true;
+            return;
+          }
+          long lag = System.nanoTime() - notification.time;
+          if (lag > maxLag)
+            maxLag = lag;
+          delivered++;
+        }
+
+        try
+        {
+          observer.update(notification.observable, notification.arg);
+        }
+        catch (RuntimeException e)
+        {
+          Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+      }
+    }
+    finally
+    {
+      if (!drained)
+        schedule();
+    }
+  }
+
+// NESTED CLASSES ***************************************************
+
+  /**
+   * A notification waiting to be delivered.
+   */
+  private static final class Notification
+  {
+    final Observable observable;
+    final Object arg;
+    final long time;
+
+    Notification(Observable observable, Object arg, long time)
+    {
+      this.observable = observable;
+      this.arg = arg;
+      this.time = time;
+    }
+  }
+}
+// End of AsyncObserver class
@@ -0,0 +1,147 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.common;
+
+import java.io.*;
+
+/**
+* A <code> CorrelatedMessage </code> carries a request or a reply
+* together with a correlation id, so that a client can have several
+* requests outstanding on a single connection and match each reply
+* with its request, whatever the order in which the replies arrive.<p>
+*
+* A client sends a request with
+* <code>ObservableSWRClient.sendRequest()</code>. The server recognizes
+* it in <code>handleMessageFromClient</code> and answers it with
+* <code>reply()</code>, which keeps the id of the request:
+* <pre>
+* if (msg instanceof CorrelatedMessage)
+* {
+*   CorrelatedMessage request = (CorrelatedMessage)msg;
+*   client.sendToClient(request.reply(process(request.getMessage())));
+* }
+* </pre>
+*
+* Correlated messages are serializable, and are sent with whatever codec
+* the connection uses; the <code>BinaryCodec</code> passes them to its
+* fallback codec.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.client.ObservableSWRClient#sendRequest(Object)
+*/
+public final class CorrelatedMessage implements Serializable
+{
+  private static final long serialVersionUID = 1L;
+
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The id shared by a request and its reply.
+   */
+  private final long correlationId;
+
+  /**
+   * The request or the reply. It can be of any type, so it is written
+   * by <code>writeObject</code> rather than as a serializable field; it
+   * must be serializable when the message is.
+   */
+  private transient Object message;
+
+  /**
+   * Indicates if the message is a reply.
+   */
+  private final boolean reply;
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Creates a request.
+   *
+   * @param correlationId the id of the request, unique on its connection.
+   * @param message the request.
+   */
+  public CorrelatedMessage(long correlationId, Object message)
+  {
+    this(correlationId, message, false);
+  }
+
+  private CorrelatedMessage(long correlationId, Object message, boolean reply)
+  {
+    this.correlationId = correlationId;
+    this.message = message;
+    this.reply = reply;
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Creates the reply to this request.
+   *
+   * @param message the reply.
+   * @return the reply, with the id of this request.
+   */
+  public CorrelatedMessage reply(Object message)
+  {
+    return new CorrelatedMessage(correlationId, message, true);
+  }
+
+  /**
+   * Returns the id shared by the request and its reply.
+   *
+   * @return the correlation id.
+   */
+  public long getCorrelationId()
+  {
+    return correlationId;
+  }
+
+  /**
+   * Returns the request or the reply carried by this message.
+   *
+   * @return the message.
+   */
+  public Object getMessage()
+  {
+    return message;
+  }
+
+  /**
+   * Indicates if this message is a reply.
+   *
+   * @return true for a reply, false for a request.
+   */
+  public boolean isReply()
+  {
+    return reply;
+  }
+
+  public String toString()
+  {
+    return (reply ? "Reply[" : "Request[") + correlationId + "] " + message;
+  }
+
+  /**
+   * Writes the id, the kind and then the message carried.
+   *
+   * @serialData the default fields followed by the message.
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException
+  {
+    out.defaultWriteObject();
+    out.writeObject(message);
+  }
+
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    message = in.readObject();
+  }
+}
+// End of CorrelatedMessage class
@@ -0,0 +1,364 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.common;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+* A <code> MessagePublisher </code> is a <code>Flow.Publisher</code> of
+* the messages received on a connection, or on all the connections of a
+* server. The demand of its subscriber is propagated back to the thread
+* reading the messages: when the subscriber has not requested more
+* messages, that thread stops reading, the network buffers fill up, and
+* TCP flow control slows the sender down.<p>
+*
+* A publisher has at most one subscriber at a time; another subscriber
+* receives an <code>IllegalStateException</code> through
+* <code>onError</code>. Once its subscription has been completed or
+* cancelled, a new subscriber can subscribe, unless the publisher is
+* closed.<p>
+*
+* The thread reading the messages first reserves a unit of demand, with
+* <code>tryReserve()</code> or <code>awaitDemand()</code>, or is told
+* when there is some with <code>whenDemand()</code>, and then delivers
+* the message with <code>deliver()</code>, or gives the unit back with
+* <code>release()</code>. These methods are used by the framework; an
+* application only subscribes. Several threads can deliver messages to
+* the same publisher: the subscriber is always called by one of them at
+* a time.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.client.AbstractClient#messages()
+* @see com.lloseng.ocsf.server.AbstractServer#messages()
+* @see com.lloseng.ocsf.server.ConnectionToClient#messages()
+*/
+public final class MessagePublisher<T> implements Flow.Publisher<T>
+{
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The current subscription, or null if there is no subscriber.
+   */
+  private volatile Link current = null;
+
+  /**
+   * Indicates if the publisher is closed, in which case a new
+   * subscriber is completed immediately.
+   */
+  private volatile boolean closed = false;
+
+  /**
+   * The monitor on which the reading threads wait for demand.
+   */
+  private final Object signal = new Object();
+
+  /**
+   * The actions to run once, when there is demand or when the
+   * subscription ends.
+   */
+  private final Queue<Runnable> demandListeners =
+    new ConcurrentLinkedQueue<>();
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Subscribes to the messages received from now on.
+   *
+   * @param subscriber the subscriber.
+   */
+  public void subscribe(Flow.Subscriber<? super T> subscriber)
+  {
+    if (subscriber == null)
+      throw new NullPointerException();
+
+    Link link = new Link(subscriber);
+    synchronized (this)
+    {
+      if (closed || current != null)
+      {
+        link.cancelled = true;
+        subscriber.onSubscribe(link);
+        if (closed)
+          subscriber.onComplete();
+        else
+          subscriber.onError(
+            new IllegalStateException("already has a subscriber"));
+        return;
+      }
+
+      current = link;
+      subscriber.onSubscribe(link);
+    }
+  }
+
+  /**
+   * Indicates if the publisher has a subscriber.
+   *
+   * @return true if there is a subscriber.
+   */
+  public boolean isSubscribed()
+  {
+    return current != null;
+  }
+
+  /**
+   * Indicates if a message could be delivered now: there is no
+   * subscriber, or it has demand.
+   *
+   * @return true unless the subscriber has no demand.
+   */
+  public boolean hasDemand()
+  {
+    Link link = current;
+    return link == null || link.demand.get() > 0;
+  }
+
+  /**
+   * Takes a unit of the demand of the subscriber, for a message about
+   * to be delivered.
+   *
+   * @return true if a unit was reserved, false if there is no
+   *  subscriber or no demand.
+   */
+  public boolean tryReserve()
+  {
+    Link link = current;
+    if (link == null)
+      return false;
+
+    while (true)
+    {
+      long demand = link.demand.get();
+      if (demand == 0)
+        return false;
+      if (demand == Long.MAX_VALUE // Unbounded
+          || link.demand.compareAndSet(demand, demand - 1))
+        return true;
+    }
+  }
+
+  /**
+   * Gives back a unit of demand reserved for a message that will not be
+   * delivered.
+   */
+  public void release()
+  {
+    Link link = current;
+    if (link != null)
+      link.add(1);
+  }
+
+  /**
+   * Waits until the subscriber has demand, the subscription ends or the
+   * timeout expires, whichever comes first.
+   *
+   * @param timeout the maximum time to wait, in milliseconds.
+   * @exception InterruptedException if the thread is interrupted.
+   */
+  public void awaitDemand(long timeout) throws InterruptedException
+  {
+    synchronized (signal)
+    {
+      Link link = current;
+      if (link != null && link.demand.get() == 0)
+        signal.wait(timeout);
+    }
+  }
+
+  /**
+   * Runs an action once, as soon as the subscriber has demand or the
+   * subscription ends; immediately if it is already the case. The action
+   * is run by the thread that requested, cancelled or completed, and
+   * must therefore be short.
+   *
+   * @param action the action.
+   */
+  public void whenDemand(Runnable action)
+  {
+    demandListeners.add(action);
+
+    Link link = current;
+    if (link == null || link.demand.get() > 0)
+      signalDemand();
+  }
+
+  /**
+   * Delivers a message, for which a unit of demand has been reserved, to
+   * the subscriber. The message is dropped if the subscription has been
+   * cancelled meanwhile. If the subscriber throws an exception, its
+   * subscription is cancelled and the exception propagated.
+   *
+   * @param message the message.
+   */
+  public void deliver(T message)
+  {
+    synchronized (this)
+    {
+      Link link = current;
+      if (link == null || link.cancelled)
+        return;
+
+      try
+      {
+        link.subscriber.onNext(message);
+      }
+      catch (RuntimeException ex)
+      {
+        link.cancel();
+        throw ex;
+      }
+    }
+  }
+
+  /**
+   * Completes the current subscription, if any. A new subscriber can
+   * then subscribe.
+   */
+  public void complete()
+  {
+    end(null);
+  }
+
+  /**
+   * Ends the current subscription, if any, with an error. A new
+   * subscriber can then subscribe. An <code>EOFException</code>, which is
+   * how the other end closing the connection shows, completes the
+   * subscription instead.
+   *
+   * @param exception the error.
+   */
+  public void fail(Throwable exception)
+  {
+    end(exception instanceof EOFException ? null : exception);
+  }
+
+  /**
+   * Completes the current subscription and all the following ones.
+   */
+  public void close()
+  {
+    closed = true;
+    end(null);
+  }
+
+  /**
+   * Ends the current subscription with a completion or an error.
+   */
+  private void end(Throwable exception)
+  {
+    synchronized (this)
+    {
+      Link link = current;
+      if (link == null)
+        return;
+
+      current = null;
+      if (!link.cancelled)
+      {
+        link.cancelled = true;
+        if (exception == null)
+          link.subscriber.onComplete();
+        else
+          link.subscriber.onError(exception);
+      }
+    }
+    signalDemand();
+  }
+
+  /**
+   * Wakes up the threads waiting for demand and runs the actions
+   * waiting for it.
+   */
+  private void signalDemand()
+  {
+    synchronized (signal)
+    {
+      signal.notifyAll();
+    }
+
+    Runnable action;
+    while ((action = demandListeners.poll()) != null)
+      action.run();
+  }
+
+// NESTED CLASSES ***************************************************
+
+  /**
+   * The subscription of a subscriber.
+   */
+  private final class Link implements Flow.Subscription
+  {
+    final Flow.Subscriber<? super T> subscriber;
+
+    /**
+     * The number of messages requested and not yet delivered;
+     * <code>Long.MAX_VALUE</code> when unbounded.
+     */
+    final AtomicLong demand = new AtomicLong();
+
+    volatile boolean cancelled = false;
+
+    Link(Flow.Subscriber<? super T> subscriber)
+    {
+      this.subscriber = subscriber;
+    }
+
+    public void request(long n)
+    {
+      if (cancelled)
+        return;
+
+      if (n <= 0)
+      {
+        synchronized (MessagePublisher.this)
+        {
+          if (current == this)
+            current = null;
+          if (!cancelled)
+          {
+            cancelled = true;
+            subscriber.onError(new IllegalArgumentException(
+              "non-positive request: " + n));
+          }
+        }
+        signalDemand();
+        return;
+      }
+
+      add(n);
+    }
+
+    public void cancel()
+    {
+      cancelled = true;
+      synchronized (MessagePublisher.this)
+      {
+        if (current == this)
+          current = null;
+      }
+      signalDemand();
+    }
+
+    /**
+     * Adds to the demand, up to unbounded, and signals it if there was
+     * none.
+     */
+    void add(long n)
+    {
+      long previous = demand.getAndAccumulate(n,
+        (d, x) -> d + x < 0 ? Long.MAX_VALUE : d + x);
+      if (previous == 0)
+        signalDemand();
+    }
+  }
+}
+// End of MessagePublisher class
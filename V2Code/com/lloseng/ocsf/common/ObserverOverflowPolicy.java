@@ -0,0 +1,41 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.common;
+
+/**
+* The <code> ObserverOverflowPolicy </code> enumeration defines what
+* happens when an <code>AsyncObserver</code> is notified while its queue
+* is full, which means that the observer does not keep up with the
+* notifications. In no case does the notifying thread wait.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.common.AsyncObserver
+*/
+public enum ObserverOverflowPolicy
+{
+  /**
+   * The new notification is discarded. The observer receives the
+   * notifications that were already waiting.
+   */
+  DROP_NEWEST,
+
+  /**
+   * The oldest notification waiting is discarded to make room for the
+   * new one. The observer receives the most recent notifications.
+   */
+  DROP_OLDEST,
+
+  /**
+   * The notifications waiting are replaced by the new one, whatever the
+   * capacity of the queue, so that the observer only receives the
+   * latest. Suits an observer that displays a state rather than a
+   * history.
+   */
+  COALESCE
+}
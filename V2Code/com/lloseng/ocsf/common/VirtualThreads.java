@@ -0,0 +1,98 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.common;
+
+import java.util.concurrent.*;
+
+/**
+* The <code> VirtualThreads </code> class creates the threads of the
+* framework, as virtual threads when they are asked for and the Java
+* runtime supports them, and as platform threads otherwise. Virtual
+* threads appeared in Java 21; they are looked up at run time, so that
+* the framework still compiles and runs on Java 17, where the threads
+* asked to be virtual are platform threads.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+*/
+public final class VirtualThreads
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The factory of virtual threads, or null if the runtime has none.
+   */
+  private static final ThreadFactory VIRTUAL = virtualFactory();
+
+// CONSTRUCTORS *****************************************************
+
+  private VirtualThreads() {}
+
+// CLASS METHODS ****************************************************
+
+  /**
+   * Indicates if the Java runtime supports virtual threads.
+   *
+   * @return true if virtual threads are available.
+   */
+  public static boolean isSupported()
+  {
+    return VIRTUAL != null;
+  }
+
+  /**
+   * Creates a thread, not started.
+   *
+   * @param virtual true for a virtual thread, if they are supported.
+   * @param name the name of the thread, or null for a default name.
+   * @param task the task run by the thread.
+   * @return the thread.
+   */
+  public static Thread newThread(boolean virtual, String name,
+    Runnable task)
+  {
+    Thread thread = virtual && VIRTUAL != null ? VIRTUAL.newThread(task)
+      : new Thread(task);
+    if (name != null)
+      thread.setName(name);
+    return thread;
+  }
+
+  /**
+   * Creates and starts a thread.
+   *
+   * @param virtual true for a virtual thread, if they are supported.
+   * @param name the name of the thread, or null for a default name.
+   * @param task the task run by the thread.
+   * @return the thread.
+   */
+  public static Thread start(boolean virtual, String name, Runnable task)
+  {
+    Thread thread = newThread(virtual, name, task);
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * Looks up <code>Thread.ofVirtual().factory()</code>.
+   */
+  private static ThreadFactory virtualFactory()
+  {
+    try
+    {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      return (ThreadFactory)Class.forName("java.lang.Thread$Builder")
+        .getMethod("factory").invoke(builder);
+    }
+    catch (ReflectiveOperationException | RuntimeException ex)
+    {
+      return null; // Before Java 21
+    }
+  }
+}
+// End of VirtualThreads class
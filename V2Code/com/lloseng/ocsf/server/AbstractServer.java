@@ -5,9 +5,15 @@
 package com.lloseng.ocsf.server;
 
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 import java.io.*;
 
+import com.lloseng.ocsf.codec.*;
+import com.lloseng.ocsf.common.*;
+
 /**
 * The <code> AbstractServer </code> class maintains a thread that waits
 * for connection attempts from clients. When a connection attempt occurs
@@ -56,15 +62,75 @@ import java.io.*;
 * the <code>run</code> method.
 * <li> Method <code>isListening()</code> has been modified.
 * <li> Instance variable <code>readToStop</code> is now initialized to <code>true</code>
+* </ul>
+* The modifications made to this class in version 2.4 are:
+* <ul>
+* <li> The server can run in selector mode, set with
+* <code>setSelectorThreads()</code>. In this mode, the connections
+* to clients do not have their own thread; a small number of event
+* loops built on <code>java.nio.channels.Selector</code> service all
+* of them. The hook methods are the same in both modes.
+* <li> The blocking read loop of each connection can run on a virtual
+* thread, set with <code>setVirtualThreads()</code>.
+* <li> All the connections are kept in a registry, whatever the mode in
+* which they run, instead of being enumerated from the client thread
+* group. <code>getClientConnections()</code> is not synchronized anymore,
+* <code>getNumberOfClients()</code> takes constant time, and
+* <code>sendToAllClients()</code> iterates over the clients without any
+* allocation. A connection leaves the registry before
+* <code>clientDisconnected</code> is called. See also
+* <code>forEachClient()</code> and <code>getClientConnection()</code>.
+* <li> Messages from different clients can be handled in parallel, see
+* <code>setConcurrentDispatch()</code> and <code>setDispatchExecutor()</code>.
+* <li> A <code>MessageCodec</code> can be set to replace the object
+* streams used to exchange messages, see <code>setCodec()</code>.
+* <li> When a codec is used, <code>sendToAllClients()</code> encodes the
+* message once and sends the same bytes to every client.
+* <li> Messages can be written to the clients through bounded outbound
+* queues, so that a slow client does not block the senders. See
+* <code>setOutboundQueue()</code> and the <code>slowClientEvicted</code>
+* hook.
+* <li> The object streams of the clients can be reset periodically, so
+* that long-lived connections do not retain every object they have sent.
+* See <code>setResetPolicy()</code>.
+* <li> The streams of the clients are buffered, and a flush policy can
+* send bursts of messages in fewer system calls. See
+* <code>setFlushPolicy()</code>.
+* <li> The messages of all the clients can be consumed as a
+* <code>Flow.Publisher</code>, see <code>messages()</code>, and those of
+* one client with <code>ConnectionToClient.messages()</code>. The demand
+* of the subscribers pauses the reading of the connections.
 * </ul><p>
 *
+* <b>Concurrency of the hook methods.</b> By default, every call to
+* <code>handleMessageFromClient</code> is made while holding the lock of
+* the server, so that messages are handled one at a time whatever the
+* number of clients. When concurrent dispatch is enabled, this lock is not
+* taken and the following contract applies:
+* <ul>
+* <li> <code>handleMessageFromClient</code> may run concurrently for
+* different clients, but never concurrently for the same client. The
+* messages of a client are always handled in the order they were received.
+* <li> <code>clientConnected</code> is called before any message of
+* that client is handled, and <code>clientDisconnected</code> after the
+* last one. They may run concurrently with the handling of the messages
+* of other clients.
+* <li> <code>clientDisconnected</code> and <code>clientException</code>
+* keep their own synchronization, as declared.
+* <li> <code>listeningException</code>, <code>serverStarted</code>,
+* <code>serverStopped</code> and <code>serverClosed</code> are called
+* from the listening thread or the closing thread, as before.
+* </ul>
+* The subclass is then responsible for protecting the state shared
+* by different clients.<p>
+*
 * Project Name: OCSF (Object Client-Server Framework)<p>
 *
 * @author Dr Robert Lagani&egrave;re
 * @author Dr Timothy C. Lethbridge
 * @author Fran&ccedil;ois B&eacute;langer
 * @author Paul Holden
-* @version December 2003 (2.31)
+* @version October 2026 (2.4)
 * @see com.lloseng.ocsf.server.ConnectionToClient
 * @see com.lloseng.ocsf.server.AbstractConnectionFactory
 */
@@ -121,6 +187,89 @@ public abstract class AbstractServer implements Runnable
    * instances will be created. Added in version 2.3
    */
   private AbstractConnectionFactory connectionFactory = null;
+
+  /**
+   * The number of event loops used in selector mode.
+   * Set to 0 by default, meaning that each connection to a client
+   * has its own thread. Added in version 2.4
+   */
+  private int selectorThreads = 0;
+
+  /**
+   * The engine running the event loops in selector mode.
+   * Is null when the server is closed or in thread mode.
+   */
+  private volatile SelectorEngine selectorEngine = null;
+
+  /**
+   * Indicates if connections run on virtual threads.
+   * Set to false by default. Added in version 2.4
+   */
+  private boolean virtualThreads = false;
+
+  /**
+   * The connections to the clients. Added in version 2.4
+   */
+  private final ClientRegistry clients = new ClientRegistry();
+
+  /**
+   * Indicates if messages are handled without holding the lock of
+   * the server. Set to false by default. Added in version 2.4
+   */
+  private volatile boolean concurrentDispatch = false;
+
+  /**
+   * The executor on which messages are handled. Is null by default,
+   * meaning that messages are handled by the thread that read them.
+   * Added in version 2.4
+   */
+  private volatile Executor dispatchExecutor = null;
+
+  /**
+   * The publisher of the messages of all the clients.
+   * Added in version 2.4
+   */
+  private final MessagePublisher<OriginatorMessage> publisher =
+    new MessagePublisher<>();
+
+  /**
+   * The codec used to exchange messages with the clients.
+   * Is null by default, meaning that object streams are used, except
+   * in selector mode where Java serialization frames are used.
+   * Added in version 2.4
+   */
+  private volatile MessageCodec codec = null;
+
+  /**
+   * The capacity of the outbound queue of each client. Set to 0 by
+   * default, meaning that messages are written by the sender in thread
+   * mode, and that queues are not bounded in selector mode.
+   * Added in version 2.4
+   */
+  private volatile int outboundQueueCapacity = 0;
+
+  /**
+   * What to do when the outbound queue of a client is full.
+   */
+  private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DISCONNECT;
+
+  /**
+   * The maximum time a sender waits for room in a full queue
+   * with the <code>BLOCK</code> policy, in ms.
+   */
+  private volatile long outboundQueueTimeout = 0;
+
+  /**
+   * When the object streams of the clients are reset. The streams are
+   * never reset by default. Added in version 2.4
+   */
+  private volatile ResetPolicy resetPolicy = ResetPolicy.NEVER;
+
+  /**
+   * When the streams of the clients are flushed. After each message
+   * by default. Added in version 2.4
+   */
+  private volatile FlushPolicy flushPolicy = FlushPolicy.IMMEDIATE;
   
 // CONSTRUCTOR ******************************************************
 
@@ -163,7 +312,14 @@ public abstract class AbstractServer implements Runnable
     {
       if (serverSocket == null)
       {
-        serverSocket = new ServerSocket(getPort(), backlog);
+        if (selectorThreads > 0) // added in version 2.4
+        {
+          openSelectorMode();
+        }
+        else
+        {
+          serverSocket = new ServerSocket(getPort(), backlog);
+        }
       }
 
       serverSocket.setSoTimeout(timeout);
@@ -219,6 +375,12 @@ public abstract class AbstractServer implements Runnable
           catch(Exception ex) {}
         }
         serverSocket = null;
+
+        if (selectorEngine != null)
+        {
+          selectorEngine.shutdown();
+          selectorEngine = null;
+        }
       }
 
       try
@@ -228,6 +390,7 @@ public abstract class AbstractServer implements Runnable
       catch(InterruptedException ex) {}
       catch(NullPointerException ex) {} // When thread already dead.
 
+      publisher.complete(); // added in version 2.4
       serverClosed();
     }
   }
@@ -239,19 +402,46 @@ public abstract class AbstractServer implements Runnable
    * This method can be overriden, but if so it should still perform
    * the general function of sending to all clients, perhaps after some kind
    * of filtering is done. Any exception thrown while
-   * sending the message to a particular client is ignored.
+   * sending the message to a particular client is ignored.<p>
+   *
+   * When the clients exchange frames through a codec, the message is
+   * encoded only once and the same bytes are sent to all of them, unless
+   * their connection overrides <code>sendToClient</code>. With object
+   * streams, each stream has its own state and the message has to be
+   * serialized for each client.
    *
    * @param msg   Object The message to be sent
    */
   public void sendToAllClients(Object msg)
   {
-    Thread[] clientThreadList = getClientConnections();
+    // The registry never modifies this array
+    ConnectionToClient[] clientList = clients.connections();
+
+    // The frame of the message for the last codec encountered
+    MessageCodec frameCodec = null;
+    byte[] frame = null;
 
-    for (int i=0; i<clientThreadList.length; i++)
+    for (int i=0; i<clientList.length; i++)
     {
+      ConnectionToClient client = clientList[i];
       try
       {
-        ((ConnectionToClient)clientThreadList[i]).sendToClient(msg);
+        MessageCodec codec = client.getFrameCodec();
+        if (codec == null || client.isSendToClientOverridden())
+        {
+          client.sendToClient(msg);
+          continue;
+        }
+
+        if (codec != frameCodec) // added in version 2.4
+        {
+          frameCodec = codec;
+          frame = null;
+          frame = ConnectionToClient.encodeFrame(codec, msg);
+        }
+
+        if (frame != null)
+          client.sendFrame(frame);
       }
       catch (Exception ex) {}
     }
@@ -293,14 +483,37 @@ public abstract class AbstractServer implements Runnable
    * @return an array of <code>Thread</code> containing
    * <code>ConnectionToClient</code> instances.
    */
-  synchronized final public Thread[] getClientConnections()
+  final public Thread[] getClientConnections()
   {
-    Thread[] clientThreadList = new
-      Thread[clientThreadGroup.activeCount()];
+    ConnectionToClient[] clientList = clients.connections();
+    return Arrays.copyOf(clientList, clientList.length, Thread[].class);
+  }
 
-    clientThreadGroup.enumerate(clientThreadList);
+  /**
+   * Performs an action for each of the existing client connections.
+   * Unlike <code>getClientConnections()</code>, no array is created,
+   * which matters when it is done often with many clients. As with that
+   * method, clients connecting or disconnecting during the call may or
+   * may not be seen. Added in version 2.4
+   *
+   * @param action the action to perform for each connection.
+   */
+  final public void forEachClient(Consumer<? super ConnectionToClient> action)
+  {
+    clients.forEach(action);
+  }
 
-    return clientThreadList;
+  /**
+   * Returns the connection with the given id.
+   *
+   * @param id the id of the connection, as returned by
+   *  <code>ConnectionToClient.getConnectionId()</code>.
+   * @return the connection, or null if no such client is connected.
+   * @since version 2.4
+   */
+  final public ConnectionToClient getClientConnection(long id)
+  {
+    return clients.get(id);
   }
 
   /**
@@ -310,7 +523,7 @@ public abstract class AbstractServer implements Runnable
    */
   final public int getNumberOfClients()
   {
-    return clientThreadGroup.activeCount();
+    return clients.size();
   }
 
   /**
@@ -377,6 +590,316 @@ public abstract class AbstractServer implements Runnable
     this.connectionFactory = factory;
   }
 
+  /**
+   * Sets the number of event loops used to handle the clients.
+   * With the default value of 0, each connection to a client runs in
+   * its own thread. With a positive value, the server runs in selector
+   * mode: that many threads multiplex all the connections, which allows
+   * a very large number of mostly idle clients to be connected.
+   * The hook methods of a connection are then called from the event loop
+   * that services it, so they should not block.<p>
+   *
+   * In selector mode, messages are always exchanged as frames, using the
+   * codec of the server or Java serialization if none is set, and the
+   * clients must be configured with the same codec.
+   * The server must be closed and restarted for the change to be
+   * in effect. Added in version 2.4
+   *
+   * @param threads the number of event loops, or 0 for thread mode.
+   */
+  final public void setSelectorThreads(int threads)
+  {
+    if (threads < 0)
+      throw new IllegalArgumentException("negative number of threads");
+
+    this.selectorThreads = threads;
+  }
+
+  /**
+   * Sets whether the connections to clients run on virtual threads.
+   * A virtual thread keeps the simple blocking read loop of
+   * <code>ConnectionToClient</code> while costing much less than a
+   * platform thread, so that a very large number of clients can be
+   * connected. Such connections are not members of the client thread
+   * group. This setting has no effect in selector mode, and only applies
+   * to the connections accepted after the call. Virtual threads require
+   * Java 21; on an earlier runtime, the connections keep running on
+   * their own thread. Added in version 2.4
+   *
+   * @param virtualThreads true to run connections on virtual threads.
+   */
+  final public void setVirtualThreads(boolean virtualThreads)
+  {
+    this.virtualThreads = virtualThreads;
+  }
+
+  /**
+   * Returns true if connections run on virtual threads.
+   *
+   * @return true if connections run on virtual threads.
+   * @since version 2.4
+   */
+  final public boolean isVirtualThreads()
+  {
+    return virtualThreads;
+  }
+
+  /**
+   * Sets whether messages from different clients can be handled
+   * in parallel. When true, <code>handleMessageFromClient</code> is no
+   * longer called while holding the lock of the server, which lets a
+   * server use all the processors of the machine. The messages of a
+   * given client are still handled one at a time and in order. Refer to
+   * the class documentation for the complete contract.
+   * Added in version 2.4
+   *
+   * @param concurrent true to handle messages concurrently.
+   */
+  final public void setConcurrentDispatch(boolean concurrent)
+  {
+    this.concurrentDispatch = concurrent;
+  }
+
+  /**
+   * Returns true if messages from different clients can be handled
+   * in parallel.
+   *
+   * @return true if concurrent dispatch is enabled.
+   * @since version 2.4
+   */
+  final public boolean isConcurrentDispatch()
+  {
+    return concurrentDispatch;
+  }
+
+  /**
+   * Sets the executor used to handle the messages received from clients.
+   * When set, the thread that read a message hands it over to the executor
+   * and goes back to reading immediately, which matters most in selector
+   * mode where an event loop services many clients. Each connection
+   * submits its messages through its own serial queue, so that the
+   * messages of a client are still handled one at a time and in order, and
+   * <code>clientDisconnected</code> is called after the last one.
+   * Whether different clients are handled in parallel still depends on
+   * <code>setConcurrentDispatch()</code>. A message the executor refuses
+   * to run, for instance because it is a full bounded pool, is handled in
+   * the thread that read it instead.
+   * The executor applies to the connections accepted after the call.
+   * Added in version 2.4
+   *
+   * @param executor the executor, or null to handle messages in the
+   *  thread that read them.
+   */
+  final public void setDispatchExecutor(Executor executor)
+  {
+    this.dispatchExecutor = executor;
+  }
+
+  /**
+   * Returns the executor used to handle the messages received from
+   * clients.
+   *
+   * @return the executor, or null if messages are handled by the thread
+   *  that read them.
+   * @since version 2.4
+   */
+  final public Executor getDispatchExecutor()
+  {
+    return dispatchExecutor;
+  }
+
+  /**
+   * Returns a publisher of the messages received from all the clients,
+   * each one with the connection it came from. Its subscriber receives
+   * the messages before <code>handleMessageFromClient</code> is called,
+   * and may be called from the threads of different connections, one at
+   * a time. While it has not requested more messages, the connections
+   * stop reading from their clients once they have a message for it, so
+   * that the demand of the subscriber slows down the clients through
+   * TCP flow control. The subscription is completed when the server is
+   * closed; a new subscriber can then subscribe.
+   *
+   * @return the publisher.
+   * @since version 2.4
+   * @see ConnectionToClient#messages()
+   */
+  final public Flow.Publisher<OriginatorMessage> messages()
+  {
+    return publisher;
+  }
+
+  /**
+   * Sets the codec used to exchange messages with the clients.
+   * By default, messages are written to and read from object streams.
+   * With a codec, each message is instead sent as a frame encoded by the
+   * codec, which allows a more compact and faster encoding than Java
+   * serialization, such as the one of <code>BinaryCodec</code>.
+   * The clients must use the same codec. The codec applies to the
+   * connections accepted after the call. Added in version 2.4
+   *
+   * @param codec the codec, or null to use object streams.
+   * @see com.lloseng.ocsf.codec.MessageCodec
+   */
+  final public void setCodec(MessageCodec codec)
+  {
+    this.codec = codec;
+  }
+
+  /**
+   * Returns the codec used to exchange messages with the clients.
+   *
+   * @return the codec, or null if object streams are used.
+   * @since version 2.4
+   */
+  final public MessageCodec getCodec()
+  {
+    return codec;
+  }
+
+  /**
+   * Sets when the object streams of the clients are reset. An object
+   * stream keeps a reference to every object written to it, so that
+   * the memory used by a connection that is never reset grows with its
+   * traffic. The policy only applies when no codec is set, since a codec
+   * encodes each message independently. It applies to the connections
+   * accepted after the call. Added in version 2.4
+   *
+   * @param policy when the streams are reset, or null to never
+   *  reset them.
+   * @see com.lloseng.ocsf.codec.ResetPolicy
+   * @see ConnectionToClient#getHandleCount()
+   */
+  final public void setResetPolicy(ResetPolicy policy)
+  {
+    this.resetPolicy = policy == null ? ResetPolicy.NEVER : policy;
+  }
+
+  /**
+   * Returns when the object streams of the clients are reset.
+   *
+   * @return the reset policy.
+   * @since version 2.4
+   */
+  final public ResetPolicy getResetPolicy()
+  {
+    return resetPolicy;
+  }
+
+  /**
+   * Sets when the streams of the clients are flushed. By default, every
+   * message is sent as soon as it is written. A batching policy lets
+   * messages accumulate in the buffer of the connection until a number of
+   * them are waiting or a delay has elapsed, so that a burst of messages
+   * is sent in fewer system calls and TCP segments, at the cost of some
+   * latency. In selector mode, the event loop already writes the waiting
+   * messages together and the policy does not apply. The policy applies
+   * to the connections accepted after the call. Added in version 2.4
+   *
+   * @param policy when the streams are flushed, or null to flush
+   *  after each message.
+   * @see com.lloseng.ocsf.codec.FlushPolicy
+   * @see ConnectionToClient#sendToClient(Object, boolean)
+   */
+  final public void setFlushPolicy(FlushPolicy policy)
+  {
+    this.flushPolicy = policy == null ? FlushPolicy.IMMEDIATE : policy;
+  }
+
+  /**
+   * Returns when the streams of the clients are flushed.
+   *
+   * @return the flush policy.
+   * @since version 2.4
+   */
+  final public FlushPolicy getFlushPolicy()
+  {
+    return flushPolicy;
+  }
+
+  /**
+   * Sets the outbound queues of the clients. With a queue, sending a
+   * message to a client only adds it to the queue of that client, and a
+   * writer task writes it to the socket, so that a client that does not
+   * read its messages fast enough does not block the sender nor, through
+   * <code>sendToAllClients</code>, all the other clients. In thread
+   * mode, the writer task runs on a thread started whenever the queue
+   * stops being empty, which is virtual when the connections run on
+   * virtual threads, see <code>setVirtualThreads()</code>.<p>
+   *
+   * When a queue is full, the policy applies: the oldest message is
+   * dropped, the client is evicted, or the sender waits for room for at
+   * most the given timeout and then evicts the client. An evicted client
+   * is reported with the <code>slowClientEvicted</code> hook and its
+   * connection is closed.<p>
+   *
+   * In selector mode, messages are always queued; the capacity then only
+   * bounds the queue. A hook running on the event loop cannot wait for
+   * room, so the <code>BLOCK</code> policy evicts the client at once in
+   * that case. The settings apply to the connections accepted after the
+   * call. Added in version 2.4
+   *
+   * @param capacity the maximum number of messages waiting for each
+   *  client, or 0 to write messages directly in thread mode.
+   * @param policy what to do when a queue is full; not null.
+   * @param timeout the maximum time to wait for room with the
+   *  <code>BLOCK</code> policy, in ms.
+   */
+  final public void setOutboundQueue(int capacity, OverflowPolicy policy,
+    long timeout)
+  {
+    Objects.requireNonNull(policy, "policy");
+    if (capacity < 0 || timeout < 0)
+      throw new IllegalArgumentException("negative capacity or timeout");
+
+    this.outboundQueueCapacity = capacity;
+    this.overflowPolicy = policy;
+    this.outboundQueueTimeout = timeout;
+  }
+
+  /**
+   * Returns the capacity of the outbound queue of each client.
+   *
+   * @return the capacity, or 0 if there are no queues.
+   * @since version 2.4
+   */
+  final public int getOutboundQueueCapacity()
+  {
+    return outboundQueueCapacity;
+  }
+
+  /**
+   * Returns what happens when the outbound queue of a client is full.
+   *
+   * @return the overflow policy.
+   * @since version 2.4
+   */
+  final public OverflowPolicy getOverflowPolicy()
+  {
+    return overflowPolicy;
+  }
+
+  /**
+   * Returns the maximum time a sender waits for room in a full queue.
+   *
+   * @return the timeout in ms.
+   * @since version 2.4
+   */
+  final public long getOutboundQueueTimeout()
+  {
+    return outboundQueueTimeout;
+  }
+
+  /**
+   * Returns the number of event loops used in selector mode.
+   *
+   * @return the number of event loops, 0 in thread mode.
+   * @since version 2.4
+   */
+  final public int getSelectorThreads()
+  {
+    return selectorThreads;
+  }
+
 // RUN METHOD -------------------------------------------------------
 
   /**
@@ -407,16 +930,21 @@ public abstract class AbstractServer implements Runnable
           {
             if (!readyToStop)  // added in version 2.2
             {
+              ConnectionToClient client;
               if (connectionFactory == null) {
 
-                new ConnectionToClient(
+                client = new ConnectionToClient(
                   this.clientThreadGroup, clientSocket, this);
                   
               } else {        // added in version 2.3
 
-                connectionFactory.createConnection(
+                client = connectionFactory.createConnection(
                   this.clientThreadGroup, clientSocket, this);
               }
+
+              // Started once constructed, added in version 2.4
+              if (client != null)
+                client.open();
             }
           }
         }
@@ -486,6 +1014,19 @@ public abstract class AbstractServer implements Runnable
   synchronized protected void clientException(
     ConnectionToClient client, Throwable exception) {}
 
+  /**
+   * Hook method called when a client is evicted because its outbound
+   * queue is full, meaning that it does not read its messages fast
+   * enough. The connection is closed right after this call, and
+   * <code>clientDisconnected</code> will then be called as usual.
+   * The method is called by the thread that tried to send the message.
+   * The default implementation does nothing.
+   * Added in version 2.4
+   *
+   * @param client the client evicted.
+   */
+  protected void slowClientEvicted(ConnectionToClient client) {}
+
   /**
    * Hook method called when the server stops accepting
    * connections because an exception has been raised.
@@ -523,7 +1064,7 @@ public abstract class AbstractServer implements Runnable
    * This MUST be implemented by subclasses, who should respond to
    * messages.
    * This method is called by a synchronized method so it is also
-   * implcitly synchronized.
+   * implcitly synchronized, unless concurrent dispatch is enabled.
    *
    * @param msg   the message sent.
    * @param client the connection connected to the client that
@@ -535,22 +1076,130 @@ public abstract class AbstractServer implements Runnable
 
 // METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------
 
+  /**
+   * Returns the publisher of the messages of all the clients.
+   *
+   * @return the publisher.
+   */
+  final MessagePublisher<OriginatorMessage> getPublisher()
+  {
+    return publisher;
+  }
+
+  /**
+   * Opens the server channel and starts the event loops.
+   * The listening thread still accepts the connections, through
+   * the socket of the server channel.
+   *
+   * @exception IOException if an I/O error occurs.
+   */
+  private void openSelectorMode() throws IOException
+  {
+    ServerSocketChannel channel = ServerSocketChannel.open();
+    try
+    {
+      channel.bind(new InetSocketAddress(getPort()), backlog);
+      selectorEngine = new SelectorEngine(this, selectorThreads);
+    }
+    catch (IOException ex)
+    {
+      channel.close();
+      throw ex;
+    }
+    serverSocket = channel.socket();
+  }
+
+  /**
+   * Registers a connection and starts the thread reading the data sent
+   * by the client. In thread mode, the connection itself is started as
+   * a member of the client thread group. With virtual threads, if the
+   * runtime supports them, its <code>run</code> method is executed by a
+   * new virtual thread. The
+   * connection unregisters itself at the end of <code>run</code>.
+   *
+   * @param client the connection to start.
+   */
+  void startConnection(ConnectionToClient client)
+  {
+    registerConnection(client);
+    try
+    {
+      if (!virtualThreads || !VirtualThreads.isSupported())
+      {
+        client.start();
+        return;
+      }
+
+      Thread thread = VirtualThreads.newThread(true,
+        "ConnectionToClient " + client.getName(), client);
+      thread.setUncaughtExceptionHandler(
+        (t, exception) -> clientException(client, exception));
+      thread.start();
+    }
+    catch (RuntimeException | Error ex)
+    {
+      unregisterConnection(client);
+      throw ex;
+    }
+  }
+
+  /**
+   * Adds a connection to the connections of the server.
+   *
+   * @param client the connection.
+   */
+  void registerConnection(ConnectionToClient client)
+  {
+    clients.add(client);
+  }
+
+  /**
+   * Removes a connection from the connections of the server.
+   * Has no effect if it has already been removed.
+   *
+   * @param client the connection.
+   */
+  void unregisterConnection(ConnectionToClient client)
+  {
+    clients.remove(client);
+  }
+
+  /**
+   * Returns the engine of the server in selector mode.
+   *
+   * @return the engine, or null in thread mode.
+   */
+  SelectorEngine getSelectorEngine()
+  {
+    return selectorEngine;
+  }
+
   /**
    * Receives a command sent from the client to the server.
    * Called by the run method of <code>ConnectionToClient</code>
    * instances that are watching for messages coming from the server
    * This method is synchronized to ensure that whatever effects it has
-   * do not conflict with work being done by other threads. The method
+   * do not conflict with work being done by other threads, unless
+   * concurrent dispatch is enabled. The method
    * simply calls the <code>handleMessageFromClient</code> slot method.
    *
    * @param msg   the message sent.
    * @param client the connection connected to the client that
    *  sent the message.
    */
-  final synchronized void receiveMessageFromClient(
+  final void receiveMessageFromClient(
     Object msg, ConnectionToClient client)
   {
-    this.handleMessageFromClient(msg, client);
+    if (concurrentDispatch) // added in version 2.4
+    {
+      this.handleMessageFromClient(msg, client);
+      return;
+    }
+
+    synchronized (this)
+    {
+      this.handleMessageFromClient(msg, client);
+    }
   }
 }
 // End of AbstractServer Class
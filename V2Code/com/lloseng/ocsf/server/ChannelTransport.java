@@ -0,0 +1,551 @@
+// This file contains material supporting section 3.8 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import com.lloseng.ocsf.codec.*;
+
+/**
+* A <code> ChannelTransport </code> carries the data of one
+* <code> ConnectionToClient </code> when the server runs in selector mode.
+* It reads and writes the non-blocking channel of the client from the
+* event loop that owns it, and replaces the object streams used in
+* thread mode.<p>
+*
+* Since a message may arrive in several pieces, the messages are framed:
+* each message is sent as a four bytes length followed by its encoding by
+* the codec of the server, Java serialization by default. A client must
+* therefore be configured with the same codec, using
+* <code>AbstractClient.setCodec()</code>, in order to talk to a server
+* in selector mode.<p>
+*
+* Messages can be sent from any thread. The data that cannot be written
+* immediately is queued and written by the event loop as soon as the
+* channel becomes writable. The queue is bounded according to the
+* outbound queue settings of the server; when it overflows, the client
+* may be evicted. A deferred frame is only queued, and written with the
+* following frames by a single gathering write.<p>
+*
+* When a subscriber to the messages of the connection, or of the server,
+* has no demand, the transport stops decoding and stops watching the
+* channel for reading, so that the data of the client stays in the
+* network buffers. It resumes when the subscriber requests more
+* messages.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.SelectorEngine
+*/
+final class ChannelTransport
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The maximum number of queued frames written with a single
+   * gathering write.
+   */
+  private static final int MAX_GATHER = 64;
+
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The server that owns the connection.
+   */
+  private final AbstractServer server;
+
+  /**
+   * The connection carried by this transport.
+   */
+  private final ConnectionToClient connection;
+
+  /**
+   * The channel of the client.
+   */
+  private final SocketChannel channel;
+
+  /**
+   * The event loop that services the channel.
+   */
+  private final SelectorEngine.EventLoop loop;
+
+  /**
+   * The codec of the messages.
+   */
+  private final MessageCodec codec;
+
+  /**
+   * The registration of the channel with the selector of the loop.
+   * Null until the transport is attached.
+   */
+  private SelectionKey key;
+
+  /**
+   * The bytes of a message that has only been partially received.
+   * Null when there is no such message, which is the usual case
+   * for an idle client. Its size follows the bytes actually received,
+   * never the length announced by the client.
+   */
+  private ByteBuffer pending;
+
+  /**
+   * The data waiting to be written to the channel.
+   */
+  private final OutboundQueue<ByteBuffer> writeQueue;
+
+  /**
+   * Indicates if reading is paused until a subscriber has demand.
+   * Changed by the event loop while holding the lock of the write
+   * queue.
+   */
+  private volatile boolean paused = false;
+
+  /**
+   * Indicates if the transport has been closed.
+   */
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+// CONSTRUCTORS *****************************************************
+
+  ChannelTransport(AbstractServer server, ConnectionToClient connection,
+    SocketChannel channel, SelectorEngine.EventLoop loop, MessageCodec codec)
+  {
+    this.server = server;
+    this.connection = connection;
+    this.channel = channel;
+    this.loop = loop;
+    this.codec = codec;
+    this.writeQueue = new OutboundQueue<>(server.getOutboundQueueCapacity(),
+      server.getOverflowPolicy(), server.getOutboundQueueTimeout(),
+      frame -> frame.position() > 0);
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Returns the codec of the messages.
+   *
+   * @return the codec.
+   */
+  MessageCodec getCodec()
+  {
+    return codec;
+  }
+
+  /**
+   * Sends an encoded frame to the client. May be called from any thread.
+   * The array is not modified and may be shared by several transports,
+   * so that a message broadcast to many clients is only encoded once.
+   *
+   * @param bytes the length of the message followed by its payload.
+   * @param deferred true if the frame must wait for the next flush.
+   * @return false if the client must be evicted because its queue is full.
+   * @exception IOException if an I/O error occur when sending the
+   *    message.
+   */
+  boolean send(byte[] bytes, boolean deferred) throws IOException
+  {
+    ByteBuffer frame = ByteBuffer.wrap(bytes);
+
+    synchronized (writeQueue)
+    {
+      if (closed.get())
+        throw new SocketException("socket does not exist");
+
+      if (writeQueue.isEmpty() && !deferred)
+      {
+        channel.write(frame);
+        if (!frame.hasRemaining())
+          return true;
+      }
+
+      // The event loop cannot wait for itself to make room
+      if (!writeQueue.offer(frame, !loop.inLoop()))
+        return false;
+
+      if (!deferred)
+        watchWritable();
+
+      return true;
+    }
+  }
+
+  /**
+   * Makes the event loop write the queued frames, including the
+   * deferred ones.
+   *
+   * @exception IOException if the transport is closed.
+   */
+  void flush() throws IOException
+  {
+    synchronized (writeQueue)
+    {
+      if (closed.get())
+        throw new SocketException("socket does not exist");
+
+      if (!writeQueue.isEmpty())
+        watchWritable();
+    }
+  }
+
+  /**
+   * Asks the event loop to write the queue as soon as the channel
+   * is writable. Called while holding the lock of the queue.
+   *
+   * @exception SocketException if the channel has been closed by
+   *  another thread.
+   */
+  private void watchWritable() throws SocketException
+  {
+    if (key == null)
+      return;
+
+    // The key is cancelled when the channel is closed, possibly by
+    // another thread after the transport was found open
+    try
+    {
+      if (key.isValid())
+      {
+        key.interestOps(readInterest() | SelectionKey.OP_WRITE);
+        loop.selector().wakeup();
+        return;
+      }
+    }
+    catch (CancelledKeyException ex) { }
+
+    throw new SocketException("socket does not exist");
+  }
+
+  /**
+   * Returns the number of frames waiting to be written.
+   *
+   * @return the number of frames.
+   */
+  int getQueueSize()
+  {
+    return writeQueue.size();
+  }
+
+  /**
+   * Returns the number of frames dropped because the queue was full.
+   *
+   * @return the number of frames.
+   */
+  long getDroppedCount()
+  {
+    return writeQueue.getDroppedCount();
+  }
+
+  /**
+   * Closes the channel. The <code>clientDisconnected</code> hook is
+   * then called from the event loop.
+   * If the transport is already closed, this call has no effect.
+   *
+   * @exception IOException if an error occurs when closing the channel.
+   */
+  void close() throws IOException
+  {
+    if (!closed.compareAndSet(false, true))
+      return;
+
+    try
+    {
+      channel.close();
+    }
+    finally
+    {
+      writeQueue.clear(); // Releases the blocked senders
+      loop.execute(this::closed);
+    }
+  }
+
+// METHODS CALLED FROM THE EVENT LOOP -------------------------------
+
+  /**
+   * Makes the event loop attach the channel. Called once the
+   * connection can be reached through the server.
+   */
+  void start()
+  {
+    loop.execute(this::attach);
+  }
+
+  /**
+   * Registers the channel with the selector of the loop and
+   * notifies the server that a client is connected.
+   */
+  private void attach()
+  {
+    try
+    {
+      synchronized (writeQueue)
+      {
+        int ops = writeQueue.isEmpty() ? SelectionKey.OP_READ :
+          SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+        key = channel.register(loop.selector(), ops, this);
+      }
+      server.clientConnected(connection);
+    }
+    catch (Exception ex)
+    {
+      // The channel may have been closed in the meantime
+      if (!closed.get())
+        connection.transportFailed(ex);
+    }
+  }
+
+  /**
+   * Reads and writes the channel according to its readiness.
+   *
+   * @param key the selection key of the channel.
+   */
+  void process(SelectionKey key)
+  {
+    try
+    {
+      if (key.isReadable())
+        read();
+
+      if (key.isValid() && key.isWritable())
+        writeQueued();
+    }
+    catch (CancelledKeyException ex)
+    {
+      // The channel has been closed by another thread.
+    }
+    catch (Exception ex)
+    {
+      connection.transportFailed(ex);
+    }
+  }
+
+  /**
+   * Reads the available data and passes every complete message
+   * to the connection.
+   */
+  private void read() throws IOException
+  {
+    ByteBuffer buffer = loop.readBuffer();
+    buffer.clear();
+
+    if (channel.read(buffer) < 0)
+      throw new EOFException("Connection closed by the client");
+
+    buffer.flip();
+
+    if (pending == null)
+    {
+      decode(buffer);
+      if (buffer.hasRemaining())
+      {
+        pending = ByteBuffer.allocate(buffer.remaining());
+        pending.put(buffer);
+      }
+    }
+    else
+    {
+      if (pending.remaining() < buffer.remaining())
+      {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(
+          pending.capacity() * 2, pending.position() + buffer.remaining()));
+        pending.flip();
+        larger.put(pending);
+        pending = larger;
+      }
+      pending.put(buffer);
+      decodePending();
+    }
+  }
+
+  /**
+   * Extracts the complete messages from the data kept between reads.
+   */
+  private void decodePending() throws IOException
+  {
+    pending.flip();
+    decode(pending);
+
+    if (pending.hasRemaining())
+      pending.compact();
+    else
+      pending = null;
+  }
+
+  /**
+   * Extracts the complete messages from a buffer. The buffer is left
+   * positioned at the beginning of the first incomplete message.
+   */
+  private void decode(ByteBuffer buffer) throws IOException
+  {
+    while (buffer.remaining() >= 4 && !closed.get())
+    {
+      int length = frameLength(buffer) - 4;
+      if (buffer.remaining() < length + 4)
+        return;
+
+      if (!connection.reserveDemand())
+      {
+        pause();
+        return;
+      }
+
+      buffer.position(buffer.position() + 4);
+      byte[] payload = new byte[length];
+      buffer.get(payload);
+
+      Object msg;
+      try
+      {
+        msg = codec.decode(payload, 0, length);
+      }
+      catch (ClassNotFoundException ex) // when an unknown class is received
+      {
+        connection.releaseDemand();
+        server.clientException(connection, ex);
+        continue;
+      }
+
+      try
+      {
+        connection.messageReceived(msg);
+      }
+      catch (RuntimeException ex) // thrown by the message handlers
+      {
+        server.clientException(connection, ex);
+      }
+    }
+  }
+
+  /**
+   * Stops reading until a subscriber has demand. The messages already
+   * received stay in the buffer of the transport.
+   */
+  private void pause()
+  {
+    synchronized (writeQueue)
+    {
+      paused = true;
+      key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+    }
+    connection.whenDemand(() -> loop.execute(this::resume));
+  }
+
+  /**
+   * Decodes the messages kept while reading was paused, and reads the
+   * channel again unless the transport had to pause again.
+   */
+  private void resume()
+  {
+    if (!paused || closed.get())
+      return;
+
+    try
+    {
+      synchronized (writeQueue)
+      {
+        paused = false;
+      }
+      if (pending != null)
+        decodePending();
+
+      synchronized (writeQueue)
+      {
+        if (!paused && key.isValid())
+          key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+      }
+    }
+    catch (CancelledKeyException ex)
+    {
+      // The channel has been closed by another thread.
+    }
+    catch (Exception ex)
+    {
+      connection.transportFailed(ex);
+    }
+  }
+
+  /**
+   * Returns the interest in reading, none while reading is paused.
+   */
+  private int readInterest()
+  {
+    return paused ? 0 : SelectionKey.OP_READ;
+  }
+
+  /**
+   * Returns the total length of the frame starting at the position
+   * of the buffer, or 4 if its length has not been received yet.
+   */
+  private static int frameLength(ByteBuffer buffer)
+    throws StreamCorruptedException
+  {
+    if (buffer.remaining() < 4)
+      return 4;
+
+    int length = buffer.getInt(buffer.position());
+    if (length < 0 || length > MessageCodec.MAX_FRAME_LENGTH)
+      throw new StreamCorruptedException("invalid message length " + length);
+
+    return length + 4;
+  }
+
+  /**
+   * Writes the queued data to the channel. Stops watching for
+   * writability once the queue is empty.
+   */
+  private void writeQueued() throws IOException
+  {
+    ByteBuffer[] frames = new ByteBuffer[MAX_GATHER];
+
+    synchronized (writeQueue)
+    {
+      int count;
+      while ((count = writeQueue.peek(frames)) > 0)
+      {
+        // Gather as many queued frames as possible in one write
+        channel.write(frames, 0, count);
+
+        for (int i=0; i<count; i++)
+        {
+          if (frames[i].hasRemaining())
+            return;
+
+          writeQueue.poll();
+        }
+      }
+      key.interestOps(readInterest());
+    }
+  }
+
+  /**
+   * Releases the resources of the transport once it is closed and
+   * notifies the server that the client is disconnected.
+   */
+  private void closed()
+  {
+    writeQueue.clear();
+    pending = null;
+    connection.closeMessages();
+    server.unregisterConnection(connection);
+
+    try
+    {
+      connection.notifyDisconnected();
+    }
+    catch (RuntimeException ex)
+    {
+      server.clientException(connection, ex);
+    }
+  }
+}
+// End of ChannelTransport class
@@ -0,0 +1,194 @@
+// This file contains material supporting section 3.8 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+* The <code> ClientRegistry </code> keeps the connections of a server,
+* whatever the mode in which they run. It replaces the enumeration of
+* the client thread group used by the previous versions.<p>
+*
+* Connections are indexed by their id, and also kept in the order they
+* were added in an array where a disconnection only leaves a hole.
+* Connecting or disconnecting a client therefore takes constant time.
+* The connections are read, for every broadcast, from a copy of that
+* array without the holes, made the first time they are read after a
+* client has connected or disconnected. Reading them takes no lock and
+* allocates nothing while no client comes or goes, and any number of
+* connections and disconnections costs a single copy, made by the next
+* broadcast, which is itself proportional to the number of clients.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.AbstractServer#getClientConnections()
+*/
+final class ClientRegistry
+{
+  // CLASS VARIABLES ************************************************
+
+  private static final ConnectionToClient[] EMPTY = new ConnectionToClient[0];
+
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The connections, by id.
+   */
+  private final Map<Long, ConnectionToClient> byId =
+    new ConcurrentHashMap<>();
+
+  /**
+   * The connections, in the order they were added, and null where a
+   * connection has been removed. Each connection knows its position.
+   * Only used while holding the lock of the registry.
+   */
+  private ConnectionToClient[] slots = new ConnectionToClient[16];
+
+  /**
+   * The number of positions of <code>slots</code> used, holes included.
+   */
+  private int used = 0;
+
+  /**
+   * A copy of the connections, or null if it must be rebuilt. The array
+   * is replaced, never modified.
+   */
+  private volatile ConnectionToClient[] connections = EMPTY;
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Adds a connection. Has no effect if it is already registered.
+   *
+   * @param client the connection.
+   */
+  synchronized void add(ConnectionToClient client)
+  {
+    if (byId.putIfAbsent(client.getConnectionId(), client) != null)
+      return;
+
+    if (used == slots.length)
+    {
+      compact();
+      if (used > slots.length / 2)
+        slots = Arrays.copyOf(slots, slots.length * 2);
+    }
+    client.registryIndex = used;
+    slots[used++] = client;
+    connections = null;
+  }
+
+  /**
+   * Removes a connection. Has no effect if it is not registered.
+   *
+   * @param client the connection.
+   */
+  synchronized void remove(ConnectionToClient client)
+  {
+    if (!byId.remove(client.getConnectionId(), client))
+      return;
+
+    slots[client.registryIndex] = null;
+    client.registryIndex = -1;
+    if (byId.size() < used / 4)
+      compact();
+    connections = null;
+  }
+
+  /**
+   * Returns the connection with the given id.
+   *
+   * @param id the id of the connection.
+   * @return the connection, or null if there is none.
+   */
+  ConnectionToClient get(long id)
+  {
+    return byId.get(id);
+  }
+
+  /**
+   * Returns the number of connections.
+   *
+   * @return the number of connections.
+   */
+  int size()
+  {
+    return byId.size();
+  }
+
+  /**
+   * Returns the current connections. The array is shared and
+   * must not be modified.
+   *
+   * @return the connections.
+   */
+  ConnectionToClient[] connections()
+  {
+    ConnectionToClient[] current = connections;
+    return current != null ? current : rebuild();
+  }
+
+  /**
+   * Performs an action for each of the current connections.
+   *
+   * @param action the action.
+   */
+  void forEach(Consumer<? super ConnectionToClient> action)
+  {
+    ConnectionToClient[] current = connections();
+    for (int i=0; i<current.length; i++)
+    {
+      action.accept(current[i]);
+    }
+  }
+
+  /**
+   * Copies the connections into a new array, unless another thread
+   * has just done it.
+   *
+   * @return the connections.
+   */
+  private synchronized ConnectionToClient[] rebuild()
+  {
+    ConnectionToClient[] current = connections;
+    if (current == null)
+    {
+      current = new ConnectionToClient[byId.size()];
+      int j = 0;
+      for (int i=0; i<used; i++)
+      {
+        if (slots[i] != null)
+          current[j++] = slots[i];
+      }
+      connections = current;
+    }
+    return current;
+  }
+
+  /**
+   * Removes the holes left by the connections removed.
+   */
+  private void compact()
+  {
+    int j = 0;
+    for (int i=0; i<used; i++)
+    {
+      ConnectionToClient client = slots[i];
+      if (client != null)
+      {
+        client.registryIndex = j;
+        slots[j++] = client;
+      }
+    }
+    Arrays.fill(slots, j, used, null);
+    used = j;
+  }
+}
+// End of ClientRegistry class
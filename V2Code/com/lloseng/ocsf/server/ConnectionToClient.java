@@ -7,6 +7,11 @@ package com.lloseng.ocsf.server;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.lloseng.ocsf.codec.*;
+import com.lloseng.ocsf.common.*;
 
 /**
 * An instance of this class is created by the server when a client
@@ -46,6 +51,43 @@ import java.util.*;
 * <li> The call to <code>clientDisconnected</code> has been moved from
 * <code>close</code> to <code>run</code> method to garantee
 * that connection is really closed when this callback is called.
+* </ul>
+* The modifications made to this class in version 2.4 are:
+* <ul>
+* <li> When the server runs in selector mode, the connection does not
+* start its thread. Its data is then carried by a <code>ChannelTransport</code>
+* serviced by one of the event loops of the server.
+* <li> The thread of the connection is started by the server, which
+* runs it on a virtual thread instead when so configured. The constructor
+* no longer starts it: the server does, once the connection is fully
+* constructed.
+* <li> When the server has a dispatch executor, the messages of the
+* client are handled on that executor through a serial queue owned by
+* the connection, and so is the call to <code>clientDisconnected</code>.
+* <li> When the server has a codec, messages are exchanged as frames
+* encoded by that codec instead of through object streams.
+* <li> An encoded frame can be sent as is, which allows the server to
+* encode a broadcast message only once for all the clients.
+* <li> When the server has outbound queues, messages are queued and
+* written to the client by a writer task, so that a slow client does not
+* block the sender. A client whose queue overflows may be evicted.
+* <li> The object stream is reset according to the reset policy of the
+* server, and the number of objects it retains is available through
+* <code>getHandleCount()</code>.
+* <li> The streams are buffered and flushed according to the flush
+* policy of the server. Messages can be sent without being flushed, see
+* <code>sendToClient(Object, boolean)</code> and <code>flush()</code>.
+* <li> Each connection has a unique id, see <code>getConnectionId()</code>,
+* and removes itself from the registry of the server before
+* <code>clientDisconnected</code> is called.
+* <li> Information about the client can be saved as typed attributes,
+* identified by an <code>AttributeKey</code>, which are read without
+* locking nor hashing. The map used by <code>setInfo</code> and
+* <code>getInfo</code> is now thread-safe.
+* <li> The messages of the client can be consumed as a
+* <code>Flow.Publisher</code>, see <code>messages()</code>. When its
+* subscriber, or the one of the publisher of the server, has no demand,
+* the connection stops reading from the client.
 * </ul><p>
 *
 * Project Name: OCSF (Object Client-Server Framework)<p>
@@ -54,10 +96,39 @@ import java.util.*;
 * @author Dr Timothy C. Lethbridge
 * @author Fran&ccedil;ois B&eacute;langer
 * @author Paul Holden
-* @version December 2003 (2.31)
+* @version October 2026 (2.4)
 */
 public class ConnectionToClient extends Thread
 {
+// CLASS VARIABLES **************************************************
+
+  /**
+   * The time the thread of the connection waits for demand before
+   * checking whether the connection is being closed, in milliseconds.
+   */
+  private static final long DEMAND_WAIT = 100;
+
+  /**
+   * Remembers, for each class of connection, whether it overrides
+   * <code>sendToClient</code>.
+   */
+  private static final ClassValue<Boolean> SEND_OVERRIDDEN =
+    new ClassValue<Boolean>()
+    {
+      protected Boolean computeValue(Class<?> type)
+      {
+        try
+        {
+          return type.getMethod("sendToClient", Object.class)
+            .getDeclaringClass() != ConnectionToClient.class;
+        }
+        catch (NoSuchMethodException ex)
+        {
+          return true;
+        }
+      }
+    };
+
 // INSTANCE VARIABLES ***********************************************
 
   /**
@@ -80,22 +151,125 @@ public class ConnectionToClient extends Thread
   /**
   * Stream used to write to the client.
   */
-  private ObjectOutputStream output;
+  private ResettingObjectOutputStream output;
+
+  /**
+  * The codec used to exchange frames with the client.
+  * Null when object streams are used.
+  */
+  private MessageCodec codec;
+
+  /**
+  * Stream used to read frames from the client, when a codec is used.
+  */
+  private DataInputStream frameInput;
+
+  /**
+  * Stream used to write frames to the client, when a codec is used.
+  */
+  private DataOutputStream frameOutput;
+
+  /**
+  * The buffer between the output streams and the socket.
+  * Added in version 2.4
+  */
+  private BatchingOutputStream buffer;
 
   /**
   * Indicates if the thread is ready to stop. Set to true when closing
   * of the connection is initiated.
   */
-  private boolean readyToStop;
+  private volatile boolean readyToStop;
 
   /**
    * Map to save information about the client such as its login ID.
    * The initial size of the map is small since it is not expected
    * that concrete servers will want to store many different types of
    * information about each client. Used by the setInfo and getInfo
-   * methods.
+   * methods. Concurrent since version 2.4.
+   */
+  private final Map<String, Object> savedInfo = new ConcurrentHashMap<>(10);
+
+  /**
+   * The values of the attributes of the client, indexed by key.
+   * The array is replaced, never modified, when an attribute is set.
+   * Added in version 2.4
+   */
+  private volatile Object[] attributes = new Object[0];
+
+  /**
+   * The lock of the updates of the attributes. The connection itself is
+   * not used since it is a thread.
+   */
+  private final Object attributeLock = new Object();
+
+  /**
+   * The transport carrying the data of this connection when the
+   * server runs in selector mode. Null in thread mode. Assigned before
+   * the connection is registered with the server, so that any thread
+   * reaching the connection through the server sees it.
+   */
+  private volatile ChannelTransport transport = null;
+
+  /**
+   * The queue through which messages are handed over to the dispatch
+   * executor of the server. Created with the first message, only if
+   * the server has such an executor.
+   */
+  private SerialExecutor dispatcher = null;
+
+  /**
+   * The messages waiting to be written to the client, in thread mode,
+   * when the server has outbound queues. Contains frames when a codec
+   * is used. Null when messages are written by the sender.
+   */
+  private OutboundQueue<Object> outbound = null;
+
+  /**
+   * Indicates if a writer task is draining the outbound queue.
+   */
+  private final AtomicBoolean writerScheduled = new AtomicBoolean(false);
+
+  /**
+   * Indicates if the failure of the connection has been reported, so
+   * that the thread reading and the writer task do not both report it.
+   */
+  private final AtomicBoolean failureReported = new AtomicBoolean(false);
+
+  /**
+   * Indicates if the client has been evicted for being too slow.
+   */
+  private final AtomicBoolean evicted = new AtomicBoolean(false);
+
+  /**
+   * The publisher of the messages of the client. Added in version 2.4
+   */
+  private final MessagePublisher<Object> publisher = new MessagePublisher<>();
+
+  /**
+   * Indicate if a unit of demand has been reserved for the next message,
+   * from the subscriber of this connection and from the subscriber of
+   * the server. Only used by the thread reading the messages.
+   */
+  private boolean publisherReserved = false;
+  private boolean serverPublisherReserved = false;
+
+  /**
+   * The source of the connection ids.
    */
-  private HashMap savedInfo = new HashMap(10);
+  private static final AtomicLong nextConnectionId = new AtomicLong();
+
+  /**
+   * The unique id of this connection. Added in version 2.4
+   */
+  private final long connectionId = nextConnectionId.incrementAndGet();
+
+  /**
+   * The position of this connection in the registry of the server, or
+   * -1 if it is not registered. Only used by <code>ClientRegistry</code>,
+   * under its lock. Added in version 2.4
+   */
+  int registryIndex = -1;
 
 
 // CONSTRUCTORS *****************************************************
@@ -120,11 +294,32 @@ public class ConnectionToClient extends Thread
 
     clientSocket.setSoTimeout(0); // make sure timeout is infinite
 
+    if (isSelectorMode()) // added in version 2.4
+    {
+      readyToStop = false;
+      return; // The transport is created by open()
+    }
+
     //Initialize the objects streams
     try
     {
-      input = new ObjectInputStream(clientSocket.getInputStream());
-      output = new ObjectOutputStream(clientSocket.getOutputStream());
+      codec = server.getCodec();
+      buffer = new BatchingOutputStream(clientSocket.getOutputStream(),
+        server.getFlushPolicy());
+      if (codec != null) // added in version 2.4
+      {
+        frameInput = new DataInputStream(
+          new BufferedInputStream(clientSocket.getInputStream()));
+        frameOutput = new DataOutputStream(buffer);
+      }
+      else
+      {
+        input = new ObjectInputStream(
+          new BufferedInputStream(clientSocket.getInputStream()));
+        output = new ResettingObjectOutputStream(buffer,
+          server.getResetPolicy());
+        output.flush(); // The client waits for the header of the stream
+      }
     }
     catch (IOException ex)
     {
@@ -137,29 +332,158 @@ public class ConnectionToClient extends Thread
       throw ex;  // Rethrow the exception.
     }
 
+    if (server.getOutboundQueueCapacity() > 0) // added in version 2.4
+    {
+      outbound = new OutboundQueue<>(server.getOutboundQueueCapacity(),
+        server.getOverflowPolicy(), server.getOutboundQueueTimeout(), null);
+    }
+
     readyToStop = false;
-    start(); // Start the thread waits for data from the socket
   }
 
 // INSTANCE METHODS *************************************************
 
+  /**
+   * Starts exchanging data with the client. Called by the server once
+   * the connection is fully constructed, so that neither the server nor
+   * the thread reading the data can see a partially constructed
+   * connection. In selector mode, the transport is created before the
+   * connection is registered with the server and attached to an event
+   * loop; otherwise the thread that waits for data from the socket is
+   * started. Added in version 2.4
+   *
+   * @exception IOException if the channel cannot be configured.
+   */
+  final void open() throws IOException
+  {
+    if (!isSelectorMode())
+    {
+      server.startConnection(this);
+      return;
+    }
+
+    try
+    {
+      transport = server.getSelectorEngine().register(this,
+        clientSocket.getChannel());
+    }
+    catch (IOException ex)
+    {
+      try
+      {
+        closeAll();
+      }
+      catch (Exception exc) { }
+
+      throw ex;  // Rethrow the exception.
+    }
+
+    server.registerConnection(this);
+    transport.start();
+  }
+
+  /**
+   * Indicates if the data of the connection is carried by a transport
+   * serviced by the event loops of the server.
+   */
+  private boolean isSelectorMode()
+  {
+    return server.getSelectorEngine() != null
+      && clientSocket.getChannel() != null;
+  }
+
   /**
    * Sends an object to the client.
    * This method can be overriden, but if so it should still perform
    * the general function of sending to client, by calling the
    * <code>super.sendToClient()</code> method
-   * perhaps after some kind of filtering is done.
+   * perhaps after some kind of filtering is done.<p>
+   *
+   * When the server has outbound queues, the message is only queued and
+   * this method returns before it is actually written; a failure to write
+   * it then closes the connection.
    *
    * @param msg the message to be sent.
    * @exception IOException if an I/O error occur when sending the
-   *    message.
+   *    message, or if the client has been evicted because its queue
+   *    was full.
    */
   public void sendToClient(Object msg) throws IOException
   {
-    if (clientSocket == null || output == null)
+    send(msg, false);
+  }
+
+  /**
+   * Sends an object to the client, controlling when it is flushed.
+   * A message that is not flushed stays in the buffer of the connection
+   * until the next flush, which is triggered by a later message according
+   * to the flush policy of the server, by the delay of that policy, or by
+   * a call to <code>flush()</code>. A burst of messages can thus be sent
+   * in a few system calls by flushing only the last one.<p>
+   *
+   * This method does not call <code>sendToClient(Object)</code>, so the
+   * filtering made by a subclass overriding it does not apply. When the
+   * server has outbound queues, the writer task flushes the connection
+   * whenever its queue is empty. Added in version 2.4
+   *
+   * @param msg the message to be sent.
+   * @param flush true to flush the connection after the message.
+   * @exception IOException if an I/O error occur when sending the
+   *    message.
+   */
+  final public void sendToClient(Object msg, boolean flush) throws IOException
+  {
+    send(msg, true);
+
+    if (flush)
+      flush();
+  }
+
+  /**
+   * Sends the messages waiting in the buffer of the connection.
+   * Added in version 2.4
+   *
+   * @exception IOException if an I/O error occur when sending.
+   */
+  final public void flush() throws IOException
+  {
+    if (transport != null)
+    {
+      transport.flush();
+      return;
+    }
+
+    BatchingOutputStream buffer = this.buffer;
+    if (clientSocket == null || buffer == null)
       throw new SocketException("socket does not exist");
 
-    output.writeObject(msg);
+    buffer.flush();
+  }
+
+  /**
+   * Sends an object, either flushing it according to the flush policy
+   * or deferring it.
+   *
+   * @param msg the message to be sent.
+   * @param deferred true if the message must wait for the next flush.
+   * @exception IOException if an I/O error occur when sending.
+   */
+  private void send(Object msg, boolean deferred) throws IOException
+  {
+    MessageCodec codec = getFrameCodec();
+    if (codec != null)
+    {
+      sendFrame(encodeFrame(codec, msg), deferred);
+      return;
+    }
+
+    if (outbound != null)
+    {
+      enqueue(msg);
+      return;
+    }
+
+    writeObject(msg, deferred);
   }
 
   /**
@@ -200,6 +524,100 @@ public class ConnectionToClient extends Thread
         +" (" + clientSocket.getInetAddress().getHostAddress() + ")";
   }
 
+  /**
+   * Returns the id of this connection, which is unique among all the
+   * connections created in this virtual machine.
+   *
+   * @return the id of the connection.
+   * @since version 2.4
+   * @see AbstractServer#getClientConnection(long)
+   */
+  final public long getConnectionId()
+  {
+    return connectionId;
+  }
+
+  /**
+   * Returns a publisher of the messages received from the client. Its
+   * subscriber receives each message that the connection passes to the
+   * server, before <code>handleMessageFromClient</code> of the server is
+   * called. While the subscriber has not requested more messages, the
+   * connection stops reading from the client, so that the client is
+   * slowed down by TCP flow control rather than the messages piling up
+   * in the server. The subscription is completed when the connection is
+   * closed, or ends with the exception that closed it.
+   *
+   * @return the publisher.
+   * @since version 2.4
+   * @see AbstractServer#messages()
+   */
+  final public Flow.Publisher<Object> messages()
+  {
+    return publisher;
+  }
+
+  /**
+   * Returns the number of messages waiting to be written to the client.
+   * This is always 0 when the server has no outbound queues, except in
+   * selector mode.
+   *
+   * @return the number of messages waiting.
+   * @since version 2.4
+   */
+  public int getOutboundQueueSize()
+  {
+    if (transport != null)
+      return transport.getQueueSize();
+
+    return outbound == null ? 0 : outbound.size();
+  }
+
+  /**
+   * Returns the number of messages that were not sent to the client
+   * because its outbound queue was full, with the
+   * <code>DROP_OLDEST</code> policy.
+   *
+   * @return the number of messages dropped.
+   * @since version 2.4
+   */
+  public long getDroppedMessageCount()
+  {
+    if (transport != null)
+      return transport.getDroppedCount();
+
+    return outbound == null ? 0 : outbound.getDroppedCount();
+  }
+
+  /**
+   * Returns the number of objects retained by the object stream of this
+   * connection, that is the objects sent since the stream was last reset.
+   * This is always 0 when a codec is used.
+   *
+   * @return the number of objects.
+   * @since version 2.4
+   * @see AbstractServer#setResetPolicy(ResetPolicy)
+   */
+  public int getHandleCount()
+  {
+    ResettingObjectOutputStream output = this.output;
+    return output == null ? 0 : output.getHandleCount();
+  }
+
+  /**
+   * Returns the number of write operations made on the socket of this
+   * connection, each of them being a system call. Compared to the number
+   * of messages sent, it shows how well the messages are batched.
+   * Not available in selector mode.
+   *
+   * @return the number of write operations, or 0 in selector mode.
+   * @since version 2.4
+   */
+  public long getSocketWriteCount()
+  {
+    BatchingOutputStream buffer = this.buffer;
+    return buffer == null ? 0 : buffer.getWriteCount();
+  }
+
   /**
    * Saves arbitrary information about this client. Designed to be
    * used by concrete subclasses of AbstractServer. Based on a hash map.
@@ -209,7 +627,10 @@ public class ConnectionToClient extends Thread
    */
   public void setInfo(String infoType, Object info)
   {
-    savedInfo.put(infoType, info);
+    if (info == null) // the map does not accept nulls since version 2.4
+      savedInfo.remove(infoType);
+    else
+      savedInfo.put(infoType, info);
   }
 
   /**
@@ -223,6 +644,80 @@ public class ConnectionToClient extends Thread
     return savedInfo.get(infoType);
   }
 
+  /**
+   * Returns the value of an attribute of the client. This method does
+   * not lock, and can be called from any thread as often as needed,
+   * typically for each message received.
+   *
+   * @param key the key of the attribute.
+   * @return the value, or null if it has not been set.
+   * @since version 2.4
+   */
+  public <T> T getAttribute(AttributeKey<T> key)
+  {
+    Object[] attributes = this.attributes;
+    int index = key.index();
+
+    return index < attributes.length ?
+      key.getType().cast(attributes[index]) : null;
+  }
+
+  /**
+   * Sets the value of an attribute of the client.
+   *
+   * @param key the key of the attribute.
+   * @param value the value, or null to remove the attribute.
+   * @return the previous value, or null if it was not set.
+   * @since version 2.4
+   */
+  public <T> T setAttribute(AttributeKey<T> key, T value)
+  {
+    return updateAttribute(key, value, false);
+  }
+
+  /**
+   * Sets the value of an attribute of the client, unless it is already
+   * set. The test and the update are atomic.
+   *
+   * @param key the key of the attribute.
+   * @param value the value.
+   * @return the current value if it was already set, or null if the
+   *  value has been set.
+   * @since version 2.4
+   */
+  public <T> T setAttributeIfAbsent(AttributeKey<T> key, T value)
+  {
+    return updateAttribute(key, value, true);
+  }
+
+  /**
+   * Copies the attributes with a new value. Setting an attribute is rare
+   * compared to reading it, so the copy keeps reads simple and lock-free.
+   */
+  private <T> T updateAttribute(AttributeKey<T> key, T value,
+    boolean onlyIfAbsent)
+  {
+    key.getType().cast(value); // in case generics were bypassed
+
+    synchronized (attributeLock)
+    {
+      Object[] current = attributes;
+      int index = key.index();
+      T previous = index < current.length ?
+        key.getType().cast(current[index]) : null;
+
+      if (onlyIfAbsent && previous != null)
+        return previous;
+
+      Object[] updated =
+        Arrays.copyOf(current, Math.max(current.length, index + 1));
+      updated[index] = value;
+      attributes = updated;
+
+      return previous;
+    }
+  }
+
 // RUN METHOD -------------------------------------------------------
 
   /**
@@ -249,12 +744,10 @@ public class ConnectionToClient extends Thread
         try { // Added in version 2.31
         
           // wait to receive an object
-          msg = input.readObject();
-                  
-          if (!readyToStop && handleMessageFromClient(msg)) // Added in version 2.2
-          {
-            server.receiveMessageFromClient(msg, this);
-          }
+          msg = readMessage();
+
+          awaitDemand(); // added in version 2.4
+          messageReceived(msg);
           
         } catch(ClassNotFoundException ex) { // when an unknown class is received
         
@@ -268,7 +761,7 @@ public class ConnectionToClient extends Thread
     }
     catch (Exception exception)
     {
-      if (!readyToStop)
+      if (!readyToStop && failureReported.compareAndSet(false, true))
       {
         try
         {
@@ -276,11 +769,14 @@ public class ConnectionToClient extends Thread
         }
         catch (Exception ex) { }
 
+        publisher.fail(exception);
         server.clientException(this, exception);
       }
     } finally {
     
-        server.clientDisconnected(this);   // moved here in version 2.31
+        publisher.close(); // added in version 2.4
+        server.unregisterConnection(this); // added in version 2.4
+        notifyDisconnected();   // moved here in version 2.31
     }
   }
 
@@ -302,6 +798,476 @@ public class ConnectionToClient extends Thread
 
 // METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------
 
+  /**
+   * Passes a message received from the client to the server, unless
+   * the connection is being closed.
+   *
+   * @param msg the message received.
+   */
+  final void messageReceived(Object msg)
+  {
+    if (readyToStop || !handleMessageFromClient(msg)) // Added in version 2.2
+    {
+      releaseDemand();
+      return;
+    }
+
+    if (publisherReserved)
+    {
+      publisherReserved = false;
+      publisher.deliver(msg);
+    }
+    if (serverPublisherReserved)
+    {
+      serverPublisherReserved = false;
+      server.getPublisher().deliver(new OriginatorMessage(this, msg));
+    }
+
+    SerialExecutor dispatcher = getDispatcher();
+    if (dispatcher == null)
+    {
+      server.receiveMessageFromClient(msg, this);
+      return;
+    }
+
+    dispatcher.execute(() ->
+      {
+        if (readyToStop) // The connection was closed in the meantime
+          return;
+
+        try
+        {
+          server.receiveMessageFromClient(msg, this);
+        }
+        catch (RuntimeException ex) // thrown by handleMessageFromClient
+        {
+          server.clientException(this, ex);
+        }
+      });
+  }
+
+  /**
+   * Reserves, for the next message, a unit of the demand of the
+   * subscribers of this connection and of the server, if they have any.
+   * Only called from the thread reading the messages of the client.
+   *
+   * @return false if one of the subscribers has no demand, in which case
+   *  nothing is reserved.
+   */
+  final boolean reserveDemand()
+  {
+    MessagePublisher<OriginatorMessage> serverPublisher =
+      server.getPublisher();
+
+    publisherReserved = publisher.tryReserve();
+    if (!publisherReserved && publisher.isSubscribed())
+      return false;
+
+    serverPublisherReserved = serverPublisher.tryReserve();
+    if (!serverPublisherReserved && serverPublisher.isSubscribed())
+    {
+      releaseDemand();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Gives back the demand reserved for a message that is not passed to
+   * the server.
+   */
+  final void releaseDemand()
+  {
+    if (publisherReserved)
+      publisher.release();
+    if (serverPublisherReserved)
+      server.getPublisher().release();
+
+    publisherReserved = false;
+    serverPublisherReserved = false;
+  }
+
+  /**
+   * Runs an action once one of the subscribers without demand has
+   * some, or has gone. Used in selector mode, where the event loop
+   * cannot wait.
+   *
+   * @param action the action.
+   */
+  final void whenDemand(Runnable action)
+  {
+    (publisher.hasDemand() ? server.getPublisher() : publisher)
+      .whenDemand(action);
+  }
+
+  /**
+   * Completes the subscription to the messages of the client once the
+   * connection is closed, in selector mode.
+   */
+  final void closeMessages()
+  {
+    publisher.close();
+  }
+
+  /**
+   * Waits until a unit of demand is reserved for the message just read,
+   * or until the connection is being closed.
+   */
+  private void awaitDemand() throws InterruptedException
+  {
+    while (!readyToStop && !reserveDemand())
+    {
+      (publisher.hasDemand() ? server.getPublisher() : publisher)
+        .awaitDemand(DEMAND_WAIT);
+    }
+  }
+
+  /**
+   * Calls the <code>clientDisconnected</code> hook of the server. When
+   * messages are handled on the dispatch executor, the call is queued
+   * after the messages still waiting to be handled.
+   */
+  final void notifyDisconnected()
+  {
+    SerialExecutor dispatcher = this.dispatcher;
+    if (dispatcher == null)
+    {
+      server.clientDisconnected(this);
+      return;
+    }
+
+    dispatcher.execute(() ->
+      {
+        try
+        {
+          server.clientDisconnected(this);
+        }
+        catch (RuntimeException ex)
+        {
+          server.clientException(this, ex);
+        }
+      });
+  }
+
+  /**
+   * Returns the codec used to exchange frames with the client.
+   *
+   * @return the codec, or null if object streams are used.
+   */
+  final MessageCodec getFrameCodec()
+  {
+    return transport != null ? transport.getCodec() : codec;
+  }
+
+  /**
+   * Sends an encoded frame to the client. The array is not modified.
+   *
+   * @param frame the frame, as returned by <code>encodeFrame</code>.
+   * @exception IOException if an I/O error occur when sending the
+   *    frame.
+   */
+  final void sendFrame(byte[] frame) throws IOException
+  {
+    sendFrame(frame, false);
+  }
+
+  /**
+   * Sends an encoded frame to the client, either flushing it according
+   * to the flush policy or deferring it.
+   *
+   * @param frame the frame, as returned by <code>encodeFrame</code>.
+   * @param deferred true if the frame must wait for the next flush.
+   * @exception IOException if an I/O error occur when sending the
+   *    frame.
+   */
+  private void sendFrame(byte[] frame, boolean deferred) throws IOException
+  {
+    if (transport != null)
+    {
+      if (!transport.send(frame, deferred))
+      {
+        evict();
+        throw new SocketException("client evicted: outbound queue full");
+      }
+      return;
+    }
+
+    if (outbound != null)
+    {
+      enqueue(frame);
+      return;
+    }
+
+    writeFrame(frame, deferred);
+  }
+
+  /**
+   * Queues a message or a frame and makes sure that a writer task
+   * is draining the queue.
+   *
+   * @param item the message, or the frame if a codec is used.
+   * @exception IOException if the connection is closed or the client
+   *  has been evicted.
+   */
+  private void enqueue(Object item) throws IOException
+  {
+    if (readyToStop || clientSocket == null)
+      throw new SocketException("socket does not exist");
+
+    if (!outbound.offer(item, true))
+    {
+      evict();
+      throw new SocketException("client evicted: outbound queue full");
+    }
+
+    if (writerScheduled.compareAndSet(false, true))
+    {
+      VirtualThreads.start(server.isVirtualThreads(),
+        "Outbound writer " + getName(), this::drainOutbound);
+    }
+  }
+
+  /**
+   * Writes the queued messages until the queue is empty.
+   * Run by a writer task.
+   */
+  private void drainOutbound()
+  {
+    do
+    {
+      try
+      {
+        Object item;
+        while ((item = outbound.poll()) != null)
+        {
+          // Only flush once the queue is empty
+          boolean deferred = !outbound.isEmpty();
+          if (codec != null)
+            writeFrame((byte[])item, deferred);
+          else
+            writeObject(item, deferred);
+        }
+      }
+      catch (IOException ex)
+      {
+        writeFailed(ex);
+        return;
+      }
+      finally
+      {
+        writerScheduled.set(false);
+      }
+    }
+    // A message may have been queued after the last poll
+    while (!outbound.isEmpty() && writerScheduled.compareAndSet(false, true));
+  }
+
+  /**
+   * Closes the connection when a queued message cannot be written, and
+   * reports the failure, unless the connection was already being
+   * closed. The thread reading from the client then stops, and the
+   * client is disconnected as usual.
+   *
+   * @param exception the exception raised by the write.
+   */
+  private void writeFailed(IOException exception)
+  {
+    outbound.clear();
+    if (readyToStop || !failureReported.compareAndSet(false, true))
+      return;
+
+    readyToStop = true;
+    try
+    {
+      closeAll();
+    }
+    catch (Exception ex) { }
+
+    publisher.fail(exception);
+    server.clientException(this, exception);
+  }
+
+  /**
+   * Evicts the client because it is too slow: the
+   * <code>slowClientEvicted</code> hook of the server is called and
+   * the connection is closed. Only the first call has an effect.
+   */
+  private void evict()
+  {
+    if (!evicted.compareAndSet(false, true))
+      return;
+
+    try
+    {
+      server.slowClientEvicted(this);
+    }
+    finally
+    {
+      try
+      {
+        close();
+      }
+      catch (IOException ex) { }
+    }
+  }
+
+  /**
+   * Writes a message to the object stream.
+   *
+   * @param msg the message.
+   * @param deferred true if the message must wait for the next flush.
+   * @exception IOException if an I/O error occur when writing.
+   */
+  private void writeObject(Object msg, boolean deferred) throws IOException
+  {
+    ResettingObjectOutputStream output = this.output;
+    BatchingOutputStream buffer = this.buffer;
+    if (clientSocket == null || output == null)
+      throw new SocketException("socket does not exist");
+
+    // Several threads may send to the same client when messages
+    // are handled concurrently
+    synchronized (output)
+    {
+      output.writeMessage(msg);
+      buffer.messageWritten(deferred);
+    }
+  }
+
+  /**
+   * Writes a frame to the frame stream.
+   *
+   * @param frame the frame.
+   * @param deferred true if the frame must wait for the next flush.
+   * @exception IOException if an I/O error occur when writing.
+   */
+  private void writeFrame(byte[] frame, boolean deferred) throws IOException
+  {
+    DataOutputStream frameOutput = this.frameOutput;
+    BatchingOutputStream buffer = this.buffer;
+    if (clientSocket == null || frameOutput == null)
+      throw new SocketException("socket does not exist");
+
+    synchronized (frameOutput)
+    {
+      frameOutput.write(frame);
+      buffer.messageWritten(deferred);
+    }
+  }
+
+  /**
+   * Returns true if a subclass overrides <code>sendToClient</code>,
+   * in which case every message must go through it.
+   *
+   * @return true if <code>sendToClient</code> is overridden.
+   */
+  final boolean isSendToClientOverridden()
+  {
+    return SEND_OVERRIDDEN.get(getClass());
+  }
+
+  /**
+   * Encodes a message into a frame.
+   *
+   * @param codec the codec of the message.
+   * @param msg the message.
+   * @return the length of the encoded message followed by its bytes.
+   * @exception IOException if the message cannot be encoded.
+   */
+  static byte[] encodeFrame(MessageCodec codec, Object msg)
+    throws IOException
+  {
+    byte[] payload = codec.encode(msg);
+    byte[] frame = new byte[payload.length + 4];
+
+    frame[0] = (byte)(payload.length >>> 24);
+    frame[1] = (byte)(payload.length >>> 16);
+    frame[2] = (byte)(payload.length >>> 8);
+    frame[3] = (byte)payload.length;
+    System.arraycopy(payload, 0, frame, 4, payload.length);
+
+    return frame;
+  }
+
+  /**
+   * Reads the next message from the client, from the object stream or
+   * as a frame. A connection closed by another thread, whose streams
+   * are then null, is reported as a closed socket.
+   *
+   * @return the message.
+   * @exception IOException if an I/O error occur when reading.
+   * @exception ClassNotFoundException if the class of the message is
+   *  unknown.
+   */
+  private Object readMessage() throws IOException, ClassNotFoundException
+  {
+    if (codec != null)
+      return readFrame();
+
+    ObjectInputStream input = this.input;
+    if (input == null) // closed by another thread
+      throw new SocketException("socket does not exist");
+
+    return input.readObject();
+  }
+
+  /**
+   * Reads the next frame sent by the client and decodes it.
+   *
+   * @return the message received.
+   * @exception IOException if an I/O error occurs when reading.
+   * @exception ClassNotFoundException if the class of the message is unknown.
+   */
+  private Object readFrame() throws IOException, ClassNotFoundException
+  {
+    DataInputStream frameInput = this.frameInput;
+    if (frameInput == null) // closed by another thread
+      throw new SocketException("socket does not exist");
+
+    byte[] payload = MessageCodec.readFrame(frameInput);
+    return codec.decode(payload, 0, payload.length);
+  }
+
+  /**
+   * Returns the serial queue to the dispatch executor of the server,
+   * creating it if needed. Only called from the thread reading the
+   * messages of the client.
+   *
+   * @return the queue, or null if the server has no dispatch executor.
+   */
+  private SerialExecutor getDispatcher()
+  {
+    if (dispatcher == null)
+    {
+      Executor executor = server.getDispatchExecutor();
+      if (executor != null)
+        dispatcher = new SerialExecutor(executor);
+    }
+    return dispatcher;
+  }
+
+  /**
+   * Called by the transport when the connection cannot be used anymore.
+   * As in the <code>run</code> method, the connection is closed and the
+   * server is notified, unless the connection was already being closed.
+   *
+   * @param exception the exception raised.
+   */
+  final void transportFailed(Exception exception)
+  {
+    if (!readyToStop)
+    {
+      try
+      {
+        closeAll();
+      }
+      catch (Exception ex) { }
+
+      publisher.fail(exception);
+      server.clientException(this, exception);
+    }
+  }
+
   /**
    * Closes all connection to the server.
    *
@@ -314,10 +1280,18 @@ public class ConnectionToClient extends Thread
 
     try
     {
+      // Close the channel, in selector mode
+      if (transport != null)
+        transport.close();
+
       // Close the socket
       if (clientSocket != null)
         clientSocket.close();
 
+      // The messages still buffered cannot be sent anymore
+      if (buffer != null)
+        buffer.discard();
+
       // Close the output stream
       if (output != null)
         output.close();
@@ -325,6 +1299,13 @@ public class ConnectionToClient extends Thread
       // Close the input stream
       if (input != null)
         input.close();
+
+      // Close the frame streams
+      if (frameOutput != null)
+        frameOutput.close();
+
+      if (frameInput != null)
+        frameInput.close();
     }
     finally
     {
@@ -334,6 +1315,9 @@ public class ConnectionToClient extends Thread
       // when they are garbage collected.
       output = null;
       input = null;
+      frameOutput = null;
+      frameInput = null;
+      buffer = null;
       clientSocket = null;
     }
   }
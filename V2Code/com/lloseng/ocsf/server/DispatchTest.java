@@ -0,0 +1,362 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+* The <code> DispatchTest </code> class checks the classes through which
+* the server hands the messages to the application: the
+* <code>SerialExecutor</code> of each connection, which must keep the
+* messages of a client in order, and the <code>OriginatorRing</code> of
+* the <code>ObservableOriginatorServer</code>, which must deliver every
+* message published, in order, even when it is closed or when an
+* observer fails.<p>
+*
+* Type <code>java com.lloseng.ocsf.server.DispatchTest</code> to run it.
+* Each failed check is printed, and the exit status is the number of
+* failed checks.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+*/
+public class DispatchTest
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The maximum time to wait for the messages of a check, in seconds.
+   */
+  private static final long TIMEOUT = 10;
+
+  /**
+   * The number of checks that failed.
+   */
+  private static int failures = 0;
+
+  // CLASS METHODS **************************************************
+
+  /**
+   * Runs the checks.
+   *
+   * @param args not used.
+   */
+  public static void main(String[] args) throws Exception
+  {
+    // The failures provoked on purpose are not printed
+    Thread.setDefaultUncaughtExceptionHandler((thread, e) -> {});
+
+    testSerialOrder();
+    testSerialRejected();
+    testSerialFailure();
+    testRingOrder(1024);
+    testRingOrder(1);
+    testRingClose();
+    testRingCloseWhilePublishing();
+    testRingFailure();
+    testRingReentrant();
+
+    System.out.println(failures == 0 ? "All checks passed" :
+      failures + " checks failed");
+    System.exit(failures);
+  }
+
+  /**
+   * Submits tasks from several threads to a serial executor running on
+   * a pool: the tasks of each thread run in order, one at a time.
+   */
+  private static void testSerialOrder() throws Exception
+  {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    SerialExecutor serial = new SerialExecutor(pool);
+    int threads = 3, tasks = 20000;
+    int[] last = new int[threads];
+    Arrays.fill(last, -1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicBoolean ordered = new AtomicBoolean(true);
+    AtomicBoolean overlapped = new AtomicBoolean(false);
+    CountDownLatch done = new CountDownLatch(threads * tasks);
+
+    Thread[] submitters = new Thread[threads];
+    for (int t=0; t<threads; t++)
+    {
+      int submitter = t;
+      submitters[t] = new Thread(() ->
+      {
+        for (int i=0; i<tasks; i++)
+        {
+          int number = i;
+          serial.execute(() ->
+          {
+            if (running.incrementAndGet() != 1)
+              overlapped.set(true);
+            if (last[submitter] != number - 1)
+              ordered.set(false);
+            last[submitter] = number;
+            running.decrementAndGet();
+            done.countDown();
+          });
+        }
+      });
+      submitters[t].start();
+    }
+
+    check(done.await(TIMEOUT, TimeUnit.SECONDS), "serial: all tasks run");
+    check(ordered.get(), "serial: tasks of each thread in order");
+    check(!overlapped.get(), "serial: one task at a time");
+    pool.shutdown();
+  }
+
+  /**
+   * Submits tasks to a serial executor whose executor refuses them: the
+   * submitting thread runs them, in order.
+   */
+  private static void testSerialRejected()
+  {
+    SerialExecutor serial = new SerialExecutor(task ->
+    {
+      throw new RejectedExecutionException();
+    });
+    List<Integer> run = new ArrayList<>();
+    for (int i=0; i<200; i++)
+    {
+      int number = i;
+      serial.execute(() -> run.add(number));
+    }
+
+    boolean ordered = run.size() == 200;
+    for (int i=0; i<run.size(); i++)
+      ordered &= run.get(i) == i;
+    check(ordered, "serial: refused tasks run by the caller, in order");
+  }
+
+  /**
+   * Submits tasks to a serial executor, one of which fails: the
+   * following tasks still run.
+   */
+  private static void testSerialFailure() throws Exception
+  {
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    SerialExecutor serial = new SerialExecutor(pool);
+    CountDownLatch done = new CountDownLatch(99);
+    for (int i=0; i<100; i++)
+    {
+      int number = i;
+      serial.execute(() ->
+      {
+        if (number == 10)
+          throw new IllegalStateException("task " + number);
+        done.countDown();
+      });
+    }
+
+    check(done.await(TIMEOUT, TimeUnit.SECONDS),
+      "serial: tasks following a failure run");
+    pool.shutdown();
+  }
+
+  /**
+   * Publishes messages from several threads: the observer receives all
+   * of them, those of each thread in order.
+   *
+   * @param capacity the capacity of the ring.
+   */
+  private static void testRingOrder(int capacity) throws Exception
+  {
+    int threads = 4, messages = 50000;
+    Receiver receiver = new Receiver(threads);
+    OriginatorRing ring = new OriginatorRing(capacity, receiver);
+
+    Thread[] publishers = publish(ring, threads, messages);
+    for (Thread publisher : publishers)
+      publisher.join();
+
+    check(receiver.await(threads * messages),
+      "ring of " + capacity + ": all messages received");
+    check(receiver.ordered, "ring of " + capacity + ": messages in order");
+    ring.close();
+  }
+
+  /**
+   * Closes a ring holding messages: they are all delivered, then the
+   * thread of the ring ends and the messages published afterwards are
+   * delivered by the thread publishing them.
+   */
+  private static void testRingClose() throws Exception
+  {
+    List<Thread> dispatchers = new CopyOnWriteArrayList<>();
+    AtomicInteger received = new AtomicInteger();
+    OriginatorRing ring = new OriginatorRing(16, message ->
+    {
+      dispatchers.add(Thread.currentThread());
+      received.incrementAndGet();
+    });
+
+    for (int i=0; i<1000; i++)
+      ring.publish(null, i, null);
+    ring.close();
+    check(ring.isClosed(), "close: ring closed");
+
+    Thread dispatcher = dispatchers.get(0);
+    dispatcher.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+    check(received.get() == 1000, "close: messages drained");
+    check(!dispatcher.isAlive(), "close: dispatching thread ended");
+
+    ring.publish(null, "late", null);
+    check(received.get() == 1001, "close: late message received");
+    check(dispatchers.get(dispatchers.size() - 1) == Thread.currentThread(),
+      "close: late message delivered by the publishing thread");
+  }
+
+  /**
+   * Closes a ring while threads are publishing: no message is lost and
+   * those of each thread stay in order.
+   */
+  private static void testRingCloseWhilePublishing() throws Exception
+  {
+    int threads = 4, messages = 20000;
+    Receiver receiver = new Receiver(threads);
+    OriginatorRing ring = new OriginatorRing(64, receiver);
+
+    Thread[] publishers = publish(ring, threads, messages);
+    Thread.sleep(5);
+    ring.close();
+    for (Thread publisher : publishers)
+      publisher.join();
+
+    check(receiver.await(threads * messages),
+      "close while publishing: all messages received");
+    check(receiver.ordered, "close while publishing: messages in order");
+  }
+
+  /**
+   * Publishes messages to an observer that throws an error: the
+   * following messages are still delivered.
+   */
+  private static void testRingFailure() throws Exception
+  {
+    AtomicInteger received = new AtomicInteger();
+    OriginatorRing ring = new OriginatorRing(8, message ->
+    {
+      received.incrementAndGet();
+      if (((Integer)message.getMessage()) % 10 == 0)
+        throw new AssertionError("message " + message.getMessage());
+    });
+
+    // A ring stopped by the error would block the publishing thread
+    Thread publisher = new Thread(() ->
+    {
+      for (int i=0; i<100; i++)
+        ring.publish(null, i, null);
+    });
+    publisher.setDaemon(true);
+    publisher.start();
+
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+    while (received.get() < 100 && System.nanoTime() < end)
+      Thread.sleep(1);
+    check(received.get() == 100, "failure: messages following an error received");
+    ring.close();
+  }
+
+  /**
+   * Publishes a message from the observer itself: it is delivered at
+   * once, since the thread delivering cannot wait for itself.
+   */
+  private static void testRingReentrant() throws Exception
+  {
+    List<Object> received = new CopyOnWriteArrayList<>();
+    OriginatorRing[] ring = new OriginatorRing[1];
+    ring[0] = new OriginatorRing(2, message ->
+    {
+      Object content = message.getMessage();
+      if ("outer".equals(content))
+        ring[0].publish(null, "inner", null);
+      received.add(content);
+    });
+
+    ring[0].publish(null, "outer", null);
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+    while (received.size() < 2 && System.nanoTime() < end)
+      Thread.sleep(1);
+    check(List.of("inner", "outer").equals(received),
+      "reentrant: message published by the observer received");
+    ring[0].close();
+  }
+
+  /**
+   * Starts threads each publishing numbered messages to a ring.
+   */
+  private static Thread[] publish(OriginatorRing ring, int threads,
+    int messages)
+  {
+    Thread[] publishers = new Thread[threads];
+    for (int t=0; t<threads; t++)
+    {
+      int publisher = t;
+      publishers[t] = new Thread(() ->
+      {
+        for (int i=0; i<messages; i++)
+          ring.publish(null, new int[] {publisher, i}, null);
+      });
+      publishers[t].start();
+    }
+    return publishers;
+  }
+
+  private static void check(boolean condition, String name)
+  {
+    if (!condition)
+    {
+      failures++;
+      System.out.println("FAILED: " + name);
+    }
+  }
+
+// NESTED CLASSES ***************************************************
+
+  /**
+   * Receives the messages published by <code>publish</code> and checks
+   * that those of each thread arrive in order. The messages are
+   * delivered by one thread at a time.
+   */
+  private static final class Receiver
+    implements Consumer<OriginatorMessage>
+  {
+    private final int[] next;
+
+    private final AtomicInteger received = new AtomicInteger();
+
+    volatile boolean ordered = true;
+
+    Receiver(int threads)
+    {
+      next = new int[threads];
+    }
+
+    public synchronized void accept(OriginatorMessage message)
+    {
+      int[] content = (int[])message.getMessage();
+      if (next[content[0]]++ != content[1])
+        ordered = false;
+      received.incrementAndGet();
+    }
+
+    boolean await(int count) throws InterruptedException
+    {
+      long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+      while (received.get() < count && System.nanoTime() < end)
+        Thread.sleep(1);
+      return received.get() == count;
+    }
+  }
+}
+// End of DispatchTest class
@@ -10,7 +10,27 @@ package com.lloseng.ocsf.server;
 * <code> OriginatorMessage </code> instances to its observers.
 * This class should be used when the observers need to know
 * the orginator of the messages received. The originator
-* is null when the message sent concerns the server.
+* is null when the message sent concerns the server.<p>
+*
+* The modifications made to this class in version 2.4 are:
+* <ul>
+* <li> The events are also published on the event bus of the server,
+* where the originator and the exception are fields of the
+* <code>ServerEvent</code>.
+* <li> The hook methods are not synchronized anymore, and the
+* <code>OriginatorMessage</code> instances are only created when the
+* server has observers.
+* <li> A server created with a ring size notifies its observers from a
+* single thread, with <code>OriginatorMessage</code> instances taken
+* from a ring and recycled, so that no object is created per message:
+* the observers are notified from a copy of their list, without taking
+* the lock of the server. The observers must then not keep the messages they receive, and the
+* exceptions are only carried by <code>getException()</code>: the
+* message is <code>CLIENT_EXCEPTION</code> or
+* <code>LISTENING_EXCEPTION</code> alone. The asynchronous observers
+* receive copies of the messages. The thread of the ring ends when the
+* server is closed, and a new ring is created when it is started again.
+* </ul><p>
 *
 * Project Name: OCSF (Object Client-Server Framework)<p>
 *
@@ -18,11 +38,28 @@ package com.lloseng.ocsf.server;
 * @author Dr Timothy C. Lethbridge
 * @author Fran&ccedil;ois B&eacute;langer
 * @author Paul Holden
-* @version February 2001 (2.12)
+* @version October 2026 (2.4)
 * @see com.lloseng.ocsf.server.OriginatorMessage
 */
 public class ObservableOriginatorServer extends ObservableServer
 {
+  // Instance variables ***********************************************
+
+  /**
+   * The number of messages in the ring through which the observers are
+   * notified, or 0 if they are notified by the threads calling the hook
+   * methods.
+   * Added in version 2.4
+   */
+  private final int ringSize;
+
+  /**
+   * The ring, created when the first message is published and replaced
+   * when the server is started again after being closed.
+   * Added in version 2.4
+   */
+  private volatile OriginatorRing ring;
+
   // Constructor ******************************************************
 
   /**
@@ -33,6 +70,31 @@ public class ObservableOriginatorServer extends ObservableServer
   public ObservableOriginatorServer(int port)
   {
     super(port);
+    ringSize = 0;
+  }
+
+  /**
+   * Constructs a new server that notifies its observers through a ring
+   * of recycled messages. The observers are notified, in order, by a
+   * single daemon thread, and each message they receive is only valid
+   * until their <code>update</code> method returns; an observer that
+   * needs it later must copy it. A thread calling a hook method only
+   * waits for the observers when the ring is full.
+   * Added in version 2.4
+   *
+   * @param port the port on which to listen.
+   * @param ringSize the number of messages in the ring, rounded up to a
+   *  power of two, at most 2<sup>30</sup>.
+   */
+  public ObservableOriginatorServer(int port, int ringSize)
+  {
+    super(port);
+    if (ringSize < 1)
+      throw new IllegalArgumentException("ring size must be positive");
+    if (ringSize > 1 << 30)
+      throw new IllegalArgumentException("ring size too large");
+
+    this.ringSize = ringSize;
   }
 
   // Instance methods ************************************************
@@ -46,11 +108,11 @@ public class ObservableOriginatorServer extends ObservableServer
    * @param message The message received from the client.
    * @param client The connection to the client.
    */
-  protected synchronized void handleMessageFromClient
+  protected void handleMessageFromClient
     (Object message, ConnectionToClient client)
   {
-    setChanged();
-    notifyObservers(new OriginatorMessage(client, message));
+    publish(ServerEvent.Kind.MESSAGE, client, message, null);
+    notifyOriginator(client, message, null);
   }
 
   /**
@@ -62,10 +124,10 @@ public class ObservableOriginatorServer extends ObservableServer
    *
    * @param client the connection connected to the client.
    */
-  protected synchronized void clientConnected(ConnectionToClient client)
+  protected void clientConnected(ConnectionToClient client)
   {
-    setChanged();
-    notifyObservers(new OriginatorMessage(client, CLIENT_CONNECTED));
+    publish(ServerEvent.Kind.CLIENT_CONNECTED, client, null, null);
+    notifyOriginator(client, CLIENT_CONNECTED, null);
   }
 
   /**
@@ -77,10 +139,10 @@ public class ObservableOriginatorServer extends ObservableServer
    *
    * @param client the connection connected to the client.
    */
-  synchronized protected void clientDisconnected(ConnectionToClient client)
+  protected void clientDisconnected(ConnectionToClient client)
   {
-    setChanged();
-    notifyObservers(new OriginatorMessage(client, CLIENT_DISCONNECTED));
+    publish(ServerEvent.Kind.CLIENT_DISCONNECTED, client, null, null);
+    notifyOriginator(client, CLIENT_DISCONNECTED, null);
   }
 
 
@@ -96,13 +158,11 @@ public class ObservableOriginatorServer extends ObservableServer
    * @param client the client that raised the exception.
    * @param Throwable the exception thrown.
    */
-  synchronized protected void clientException(
+  protected void clientException(
     ConnectionToClient client, Throwable exception)
   {
-    setChanged();
-    notifyObservers(
-      new OriginatorMessage(client,
-        CLIENT_EXCEPTION + exception.getMessage()));
+    publish(ServerEvent.Kind.CLIENT_EXCEPTION, client, null, exception);
+    notifyOriginator(client, CLIENT_EXCEPTION, exception);
   }
 
   /**
@@ -116,12 +176,10 @@ public class ObservableOriginatorServer extends ObservableServer
    *
    * @param exception the exception raised.
    */
-  protected synchronized void listeningException(Throwable exception)
+  protected void listeningException(Throwable exception)
   {
-    setChanged();
-    notifyObservers(
-      new OriginatorMessage(null,
-        LISTENING_EXCEPTION + exception.getMessage()));
+    publish(ServerEvent.Kind.LISTENING_EXCEPTION, null, null, exception);
+    notifyOriginator(null, LISTENING_EXCEPTION, exception);
   }
 
   /**
@@ -131,10 +189,13 @@ public class ObservableOriginatorServer extends ObservableServer
    * containing the message defined by the static variable SERVER_STARTED.
    * The originator is set to null.
    */
-  protected synchronized void serverStarted()
+  protected void serverStarted()
   {
-    setChanged();
-    notifyObservers(new OriginatorMessage(null, SERVER_STARTED));
+    OriginatorRing current = ring;
+    if (current != null && current.isClosed())
+      openRing(current);
+    publish(ServerEvent.Kind.SERVER_STARTED, null, null, null);
+    notifyOriginator(null, SERVER_STARTED, null);
   }
 
   /**
@@ -144,10 +205,10 @@ public class ObservableOriginatorServer extends ObservableServer
    * containing the message defined by the static variable SERVER_STOPPED.
    * The originator is set to null.
    */
-  synchronized protected void serverStopped()
+  protected void serverStopped()
   {
-    setChanged();
-    notifyObservers(new OriginatorMessage(null, SERVER_STOPPED));
+    publish(ServerEvent.Kind.SERVER_STOPPED, null, null, null);
+    notifyOriginator(null, SERVER_STOPPED, null);
   }
 
   /**
@@ -157,9 +218,68 @@ public class ObservableOriginatorServer extends ObservableServer
    * containing the message defined by the static variable SERVER_CLOSED.
    * The originator is set to null.
    */
-  synchronized protected void serverClosed()
+  protected void serverClosed()
+  {
+    publish(ServerEvent.Kind.SERVER_CLOSED, null, null, null);
+    notifyOriginator(null, SERVER_CLOSED, null);
+
+    OriginatorRing current = ring;
+    if (current != null)
+      current.close();
+  }
+
+  // Methods to be used from within the framework only ***************
+
+  /**
+   * Copies the recycled messages kept by asynchronous observers.
+   */
+  Object detach(Object arg)
+  {
+    if (ringSize == 0 || !(arg instanceof OriginatorMessage))
+      return arg;
+
+    OriginatorMessage message = (OriginatorMessage)arg;
+    return new OriginatorMessage(message.getOriginator(),
+      message.getMessage(), message.getException());
+  }
+
+  /**
+   * Notifies the observers, if there are any, with an
+   * <code>OriginatorMessage</code>. Without a ring, the message of an
+   * exception is followed by the message of the exception, as before
+   * version 2.4.
+   */
+  private void notifyOriginator(ConnectionToClient client, Object message,
+    Throwable exception)
+  {
+    if (!isObserved())
+      return;
+
+    if (ringSize > 0)
+    {
+      OriginatorRing current = ring;
+      if (current == null)
+        current = openRing(null);
+      current.publish(client, message, exception);
+    }
+    else if (exception != null)
+      notifyObserversOf(new OriginatorMessage(client,
+        message + exception.getMessage(), exception));
+    else
+      notifyObserversOf(new OriginatorMessage(client, message));
+  }
+
+  /**
+   * Creates a ring, unless another thread has already replaced the one
+   * given.
+   *
+   * @param previous the ring to replace, or null.
+   * @return the current ring.
+   */
+  private synchronized OriginatorRing openRing(OriginatorRing previous)
   {
-    setChanged();
-    notifyObservers(new OriginatorMessage(null, SERVER_CLOSED));
+    if (ring == previous)
+      ring = new OriginatorRing(ringSize, this::updateObservers);
+    return ring;
   }
 }
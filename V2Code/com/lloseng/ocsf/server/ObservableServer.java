@@ -5,19 +5,38 @@
 package com.lloseng.ocsf.server;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.io.*;
 import java.net.*;
 
+import com.lloseng.ocsf.common.*;
+
 /**
  * This class acts as a subclass of <code>AbstractServer</code>
  * and is also an <code>Observable</code> class.
  * This means that when a message is received, all observers
- * are notified.
+ * are notified.<p>
+ *
+ * The modifications made to this class in version 2.4 are:
+ * <ul>
+ * <li> Each hook method also publishes a typed <code>ServerEvent</code>
+ * on the bus returned by <code>getEventBus()</code>. Its listeners
+ * subscribe per kind of event and are called without any lock, so
+ * that the messages received do not contend with each other nor with
+ * the connections and disconnections.
+ * <li> The hook methods are not synchronized anymore. The lock of the
+ * server is only taken to notify the observers, when there are some.
+ * <li> An observer can be registered with its own executor and bounded
+ * queue, so that it is notified asynchronously.
+ * <li> <code>setConcurrentDispatch()</code> and
+ * <code>setVirtualThreads()</code> of <code>AbstractServer</code> are
+ * also offered by this class, and so is <code>messages()</code>.
+ * </ul><p>
  *
  * @author Fran&ccedil;ois B&eacute;lange
  * @author Dr Timothy C. Lethbridge
  * @author Dr Robert Lagani&egrave;re
- * @version August 2000
+ * @version October 2026 (2.4)
  */
 
 public class ObservableServer extends Observable
@@ -67,7 +86,26 @@ public class ObservableServer extends Observable
   /**
    * The service used to simulate multiple class inheritance.
    */
-  private AdaptableServer service;
+  private volatile AdaptableServer service;
+
+  /**
+   * The port given to the constructor, used to create the service().
+   */
+  private final int port;
+
+  /**
+   * The bus on which the events are published. Added in version 2.4
+   */
+  private final ServerEventBus events = new ServerEventBus();
+
+  /**
+   * A copy of the observers, replaced whenever one is added or deleted,
+   * so that the server knows without taking its lock whether it has
+   * observers, and the ring of an <code>ObservableOriginatorServer</code>
+   * can notify them without creating any object.
+   * Added in version 2.4
+   */
+  private volatile Observer[] observers = new Observer[0];
 
 
   //Constructor *****************************************************
@@ -79,7 +117,30 @@ public class ObservableServer extends Observable
    */
   public ObservableServer(int port)
   {
-    service = new AdaptableServer(port, this);
+    this.port = port;
+  }
+
+  /**
+   * Returns the service, created on first use rather than in the
+   * constructor, so that the service is never given a server whose
+   * subclasses are not yet initialized.
+   * Added in version 2.4
+   *
+   * @return the service.
+   */
+  private AdaptableServer service()
+  {
+    AdaptableServer current = service;
+    if (current == null)
+    {
+      synchronized (this)
+      {
+        current = service;
+        if (current == null)
+          service = current = new AdaptableServer(port, this);
+      }
+    }
+    return current;
   }
 
   //Instance methods ************************************************
@@ -89,7 +150,7 @@ public class ObservableServer extends Observable
    */
   final public void listen() throws IOException
   {
-    service.listen();
+    service().listen();
   }
 
   /**
@@ -97,7 +158,7 @@ public class ObservableServer extends Observable
    */
   final public void stopListening()
   {
-    service.stopListening();
+    service().stopListening();
   }
 
   /**
@@ -105,7 +166,7 @@ public class ObservableServer extends Observable
    */
   final public void close() throws IOException
   {
-    service.close();
+    service().close();
   }
 
   /**
@@ -115,7 +176,7 @@ public class ObservableServer extends Observable
    */
   public void sendToAllClients(Object msg)
   {
-    service.sendToAllClients(msg);
+    service().sendToAllClients(msg);
   }
 
 // ACCESSING METHODS ------------------------------------------------
@@ -125,7 +186,7 @@ public class ObservableServer extends Observable
    */
   final public boolean isListening()
   {
-    return service.isListening();
+    return service().isListening();
   }
 
   /**
@@ -139,7 +200,7 @@ public class ObservableServer extends Observable
    */
   final public Thread[] getClientConnections()
   {
-    return service.getClientConnections();
+    return service().getClientConnections();
   }
 
   /**
@@ -147,7 +208,7 @@ public class ObservableServer extends Observable
    */
   final public int getNumberOfClients()
   {
-    return service.getNumberOfClients();
+    return service().getNumberOfClients();
   }
 
   /**
@@ -155,7 +216,7 @@ public class ObservableServer extends Observable
    */
   final public int getPort()
   {
-    return service.getPort();
+    return service().getPort();
   }
 
   /**
@@ -166,7 +227,7 @@ public class ObservableServer extends Observable
    */
   final public void setPort(int port)
   {
-    service.setPort(port);
+    service().setPort(port);
   }
 
   /**
@@ -179,7 +240,7 @@ public class ObservableServer extends Observable
    */
   final public void setTimeout(int timeout)
   {
-    service.setTimeout(timeout);
+    service().setTimeout(timeout);
   }
 
   /**
@@ -193,19 +254,135 @@ public class ObservableServer extends Observable
    */
   final public void setBacklog(int backlog)
   {
-    service.setBacklog(backlog);
+    service().setBacklog(backlog);
+  }
+
+  /**
+   * Sets whether messages from different clients can be handled
+   * in parallel.
+   *
+   * @param concurrent true to handle messages concurrently.
+   * @see AbstractServer#setConcurrentDispatch(boolean)
+   */
+  final public void setConcurrentDispatch(boolean concurrent)
+  {
+    service().setConcurrentDispatch(concurrent);
+  }
+
+  /**
+   * Sets whether the connections to clients run on virtual threads.
+   *
+   * @param virtualThreads true to run connections on virtual threads.
+   * @see AbstractServer#setVirtualThreads(boolean)
+   */
+  final public void setVirtualThreads(boolean virtualThreads)
+  {
+    service().setVirtualThreads(virtualThreads);
+  }
+
+  /**
+   * Returns a publisher of the messages received from all the clients.
+   *
+   * @return the publisher.
+   * @see AbstractServer#messages()
+   */
+  final public Flow.Publisher<OriginatorMessage> messages()
+  {
+    return service().messages();
+  }
+
+  /**
+   * Returns the bus on which the events of the server are published.
+   * Listeners subscribed to it receive typed events, per kind, without
+   * taking the lock of the server. Added in version 2.4
+   *
+   * @return the event bus.
+   */
+  final public ServerEventBus getEventBus()
+  {
+    return events;
+  }
+
+// OBSERVABLE METHODS -----------------------------------------------
+
+  public synchronized void addObserver(Observer o)
+  {
+    int count = countObservers();
+    super.addObserver(o);
+    if (countObservers() > count)
+    {
+      Observer[] current = Arrays.copyOf(observers, count + 1);
+      current[count] = o;
+      observers = current;
+    }
   }
 
+  /**
+   * Adds an observer notified with its own executor. The thread that
+   * notifies the observers only puts the notification in the bounded
+   * queue of the observer and never waits for it, so that a slow
+   * observer, such as one updating a user interface, does not hold up
+   * the reading of messages. To remove the observer, pass the
+   * <code>AsyncObserver</code> returned to <code>deleteObserver()</code>.
+   * Added in version 2.4
+   *
+   * @param o the observer.
+   * @param executor the executor notifying the observer.
+   * @param capacity the number of notifications that can wait.
+   * @param policy what to do when the queue of the observer is full.
+   * @return the observer registered, which gives the number of
+   *  notifications dropped and the lag of the observer.
+   */
+  public AsyncObserver addObserver(Observer o, Executor executor,
+    int capacity, ObserverOverflowPolicy policy)
+  {
+    AsyncObserver async = new AsyncObserver(o, executor, capacity, policy)
+    {
+      protected Object retain(Object arg)
+      {
+        return detach(arg);
+      }
+    };
+    addObserver(async);
+    return async;
+  }
+
+  public synchronized void deleteObserver(Observer o)
+  {
+    super.deleteObserver(o);
+
+    Observer[] current = observers;
+    for (int i=0; i<current.length; i++)
+    {
+      if (current[i].equals(o))
+      {
+        Observer[] copy = new Observer[current.length - 1];
+        System.arraycopy(current, 0, copy, 0, i);
+        System.arraycopy(current, i + 1, copy, i, copy.length - i);
+        observers = copy;
+        return;
+      }
+    }
+  }
+
+  public synchronized void deleteObservers()
+  {
+    super.deleteObservers();
+    observers = new Observer[0];
+  }
+
+// HOOK METHODS -----------------------------------------------------
+
   /**
    * Hook method called each time a new client connection is
    * accepted. The method may be overridden by subclasses.
    *
    * @param client the connection connected to the client.
    */
-  protected synchronized void clientConnected(ConnectionToClient client)
+  protected void clientConnected(ConnectionToClient client)
   {
-    setChanged();
-    notifyObservers(CLIENT_CONNECTED);
+    publish(ServerEvent.Kind.CLIENT_CONNECTED, client, null, null);
+    notifyObserversOf(CLIENT_CONNECTED);
   }
 
   /**
@@ -214,10 +391,10 @@ public class ObservableServer extends Observable
    *
    * @param client the connection with the client.
    */
-  protected synchronized void clientDisconnected(ConnectionToClient client)
+  protected void clientDisconnected(ConnectionToClient client)
   {
-    setChanged();
-    notifyObservers(CLIENT_DISCONNECTED);
+    publish(ServerEvent.Kind.CLIENT_DISCONNECTED, client, null, null);
+    notifyObserversOf(CLIENT_DISCONNECTED);
   }
 
   /**
@@ -230,11 +407,11 @@ public class ObservableServer extends Observable
    * @param client the client that raised the exception.
    * @param exception the exception raised.
    */
-  protected synchronized void clientException(ConnectionToClient client,
+  protected void clientException(ConnectionToClient client,
                                         Throwable exception)
   {
-    setChanged();
-    notifyObservers(CLIENT_EXCEPTION);
+    publish(ServerEvent.Kind.CLIENT_EXCEPTION, client, null, exception);
+    notifyObserversOf(CLIENT_EXCEPTION);
     try
     {
       client.close();
@@ -251,10 +428,10 @@ public class ObservableServer extends Observable
    *
    * @param exception the exception raised.
    */
-  protected synchronized void listeningException(Throwable exception)
+  protected void listeningException(Throwable exception)
   {
-    setChanged();
-    notifyObservers(LISTENING_EXCEPTION);
+    publish(ServerEvent.Kind.LISTENING_EXCEPTION, null, null, exception);
+    notifyObserversOf(LISTENING_EXCEPTION);
     stopListening();
   }
 
@@ -263,30 +440,30 @@ public class ObservableServer extends Observable
    * connections for any reason.  This method may be overriden by
    * subclasses.
    */
-  synchronized protected void serverStopped()
+  protected void serverStopped()
   {
-    setChanged();
-    notifyObservers(SERVER_STOPPED);
+    publish(ServerEvent.Kind.SERVER_STOPPED, null, null, null);
+    notifyObserversOf(SERVER_STOPPED);
   }
 
   /**
    * This method is called when the server is closed.
    * This method may be overriden by subclasses.
    */
-  synchronized protected void serverClosed()
+  protected void serverClosed()
   {
-    setChanged();
-    notifyObservers(SERVER_CLOSED);
+    publish(ServerEvent.Kind.SERVER_CLOSED, null, null, null);
+    notifyObserversOf(SERVER_CLOSED);
   }
 
   /**
    * This method is called when the server starts listening for
    * connections. The method may be overridden by subclasses.
    */
-  protected synchronized void serverStarted()
+  protected void serverStarted()
   {
-    setChanged();
-    notifyObservers(SERVER_STARTED);
+    publish(ServerEvent.Kind.SERVER_STARTED, null, null, null);
+    notifyObserversOf(SERVER_STARTED);
   }
 
   /**
@@ -300,10 +477,78 @@ public class ObservableServer extends Observable
    * @param client The connection to the client.
    * @see com.lloseng.ocsf.server.ObservableOriginatorServer
    */
-  protected synchronized void handleMessageFromClient
+  protected void handleMessageFromClient
     (Object message, ConnectionToClient client)
   {
-     setChanged();
-     notifyObservers(message);
+    publish(ServerEvent.Kind.MESSAGE, client, message, null);
+    notifyObserversOf(message);
+  }
+
+// METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------
+
+  /**
+   * Publishes an event on the event bus, if it has listeners for its
+   * kind, so that no event is created otherwise.
+   */
+  final void publish(ServerEvent.Kind kind, ConnectionToClient client,
+    Object message, Throwable exception)
+  {
+    if (events.hasListeners(kind))
+      events.publish(new ServerEvent(kind, client, message, exception));
+  }
+
+  /**
+   * Indicates if the server has observers, so that a subclass only
+   * creates the argument of a notification when it is received.
+   */
+  final boolean isObserved()
+  {
+    return observers.length > 0;
+  }
+
+  /**
+   * Returns the argument of a notification as it is kept by an
+   * asynchronous observer, copied if it is only valid during the
+   * notification.
+   */
+  Object detach(Object arg)
+  {
+    return arg;
+  }
+
+  /**
+   * Notifies the observers, if there are any. Setting the change and
+   * notifying is done under the lock of the server, as it was before
+   * version 2.4, so that no notification is lost; without observers the
+   * lock is not taken.
+   *
+   * @param arg the argument sent to the observers.
+   */
+  final void notifyObserversOf(Object arg)
+  {
+    if (observers.length == 0)
+      return;
+
+    synchronized (this)
+    {
+      setChanged();
+      notifyObservers(arg);
+    }
+  }
+
+  /**
+   * Notifies the observers from the copy kept by the server, in the
+   * same order as <code>notifyObservers</code>, but without taking the
+   * lock of the server nor creating any object. The caller must make
+   * sure that the observers are not notified by several threads at the
+   * same time. Added in version 2.4
+   *
+   * @param arg the argument sent to the observers.
+   */
+  final void updateObservers(Object arg)
+  {
+    Observer[] current = observers;
+    for (int i = current.length-1; i>=0; i--)
+      current[i].update(this, arg);
   }
 }
@@ -6,10 +6,20 @@ package com.lloseng.ocsf.server;
 
 /**
  * A message class used by the Observable layer of the OCSF in order to conserve
- * information about the originator of a message.
+ * information about the originator of a message.<p>
+ *
+ * The modifications made to this class in version 2.4 are:
+ * <ul>
+ * <li> The exception raised, for the messages notifying an exception,
+ * is kept in a field, returned by <code>getException()</code>.
+ * <li> An instance can be recycled by the ring of an
+ * <code>ObservableOriginatorServer</code>, in which case it is only
+ * valid during the notification of the observers.
+ * </ul>
  *
  * @author Dr. Robert Lagani&egrave;re
- * @version July 2001
+ * @version October 2026 (2.4)
+ * @see com.lloseng.ocsf.server.ObservableOriginatorServer#ObservableOriginatorServer(int, int)
  */
 public class OriginatorMessage
 {
@@ -23,6 +33,11 @@ public class OriginatorMessage
    */
   private Object message;
 
+  /**
+   * The exception raised, or null. Added in version 2.4
+   */
+  private Throwable exception;
+
 // Constructor ***************************************************************
 
   /**
@@ -32,9 +47,24 @@ public class OriginatorMessage
    * @param message The contents of the message
    */
   public OriginatorMessage(ConnectionToClient originator, Object message)
+  {
+    this(originator, message, null);
+  }
+
+  /**
+   * Constructs an instance of an OriginatorMessage that notifies an
+   * exception. Added in version 2.4
+   *
+   * @param originator The client who created this message
+   * @param message The contents of the message
+   * @param exception The exception raised
+   */
+  public OriginatorMessage(ConnectionToClient originator, Object message,
+    Throwable exception)
   {
     this.originator = originator;
     this.message = message;
+    this.exception = exception;
   }
 
 // Accessor methods *********************************************************
@@ -58,4 +88,27 @@ public class OriginatorMessage
   {
     return message;
   }
+
+  /**
+   * Returns the exception raised, for a message notifying an exception.
+   * Added in version 2.4
+   *
+   * @return The exception, or null.
+   */
+  public Throwable getException()
+  {
+    return exception;
+  }
+
+// Methods to be used from within the framework only ************************
+
+  /**
+   * Sets the contents of a recycled message.
+   */
+  void set(ConnectionToClient originator, Object message, Throwable exception)
+  {
+    this.originator = originator;
+    this.message = message;
+    this.exception = exception;
+  }
 }
@@ -0,0 +1,230 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+* An <code> OriginatorRing </code> hands the messages of an
+* <code>ObservableOriginatorServer</code> over to a single thread, which
+* notifies the observers, through a ring of
+* <code>OriginatorMessage</code> instances created once and recycled.<p>
+*
+* A thread publishing a message claims the next position of the ring,
+* waits for its slot to be free if the ring is full, fills the slot and
+* marks it as ready. The dispatching thread consumes the slots in the
+* order of their positions, clears them and frees them for the next
+* turn of the ring. No object is created per message, and the threads
+* publishing messages never wait for the observers unless the ring is
+* full.<p>
+*
+* Once the ring is closed, the dispatching thread notifies the messages
+* already published and ends. The messages published after that are
+* given to the observer directly, by the publishing thread.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.ObservableOriginatorServer#ObservableOriginatorServer(int, int)
+*/
+final class OriginatorRing implements Runnable
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The time a publishing thread waits before checking again whether
+   * its slot is free, in nanoseconds.
+   */
+  private static final long FULL_WAIT = 1000;
+
+  /**
+   * The value given to the next position by the dispatching thread when
+   * it ends, so that the positions claimed afterwards are negative.
+   */
+  private static final long CLOSED = Long.MIN_VALUE / 2;
+
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The recycled messages.
+   */
+  private final OriginatorMessage[] slots;
+
+  /**
+   * The state of each slot. A slot is free for the position equal to
+   * its sequence, and ready to be dispatched when its sequence is one
+   * more than that position.
+   */
+  private final AtomicLongArray sequences;
+
+  private final int mask;
+
+  /**
+   * The next position to be claimed.
+   */
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * The next position to be dispatched. Only used by the dispatching
+   * thread.
+   */
+  private long head = 0;
+
+  /**
+   * Receives the messages, in the dispatching thread.
+   */
+  private final Consumer<OriginatorMessage> observer;
+
+  private final Thread dispatcher;
+
+  /**
+   * Indicates if the dispatching thread is about to park, so that the
+   * publishing threads know they have to wake it up.
+   */
+  private volatile boolean waiting = false;
+
+  /**
+   * Indicates if the ring has been closed.
+   */
+  private volatile boolean closed = false;
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Creates a ring and starts its dispatching thread.
+   *
+   * @param capacity the number of slots, rounded up to a power of two,
+   *  at least 2 and at most 2<sup>30</sup>.
+   * @param observer receives the messages. It must not keep them.
+   */
+  OriginatorRing(int capacity, Consumer<OriginatorMessage> observer)
+  {
+    int size = capacity <= 1 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+    slots = new OriginatorMessage[size];
+    sequences = new AtomicLongArray(size);
+    mask = size - 1;
+    for (int i=0; i<size; i++)
+    {
+      slots[i] = new OriginatorMessage(null, null);
+      sequences.set(i, i);
+    }
+    this.observer = observer;
+
+    dispatcher = new Thread(this, "Observer dispatch");
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Publishes a message. Waits if the ring is full. When called by the
+   * dispatching thread, from an observer, the message is given to the
+   * observer directly, since that thread cannot wait for itself.
+   *
+   * @param originator the client concerned, or null.
+   * @param message the message.
+   * @param exception the exception raised, or null.
+   */
+  void publish(ConnectionToClient originator, Object message,
+    Throwable exception)
+  {
+    if (Thread.currentThread() == dispatcher)
+    {
+      observer.accept(new OriginatorMessage(originator, message, exception));
+      return;
+    }
+
+    long position = tail.getAndIncrement();
+    if (position < 0)
+    {
+      // The dispatching thread has ended: the publishing threads take
+      // turns to notify the observer.
+      synchronized (this)
+      {
+        observer.accept(new OriginatorMessage(originator, message, exception));
+      }
+      return;
+    }
+
+    int index = (int)position & mask;
+    while (sequences.get(index) != position)
+    {
+      LockSupport.unpark(dispatcher);
+      LockSupport.parkNanos(this, FULL_WAIT);
+    }
+
+    slots[index].set(originator, message, exception);
+    sequences.set(index, position + 1);
+    if (waiting)
+      LockSupport.unpark(dispatcher);
+  }
+
+  /**
+   * Closes the ring. The dispatching thread ends once it has notified
+   * the messages already published.
+   */
+  void close()
+  {
+    closed = true;
+    LockSupport.unpark(dispatcher);
+  }
+
+  /**
+   * @return true if the ring has been closed.
+   */
+  boolean isClosed()
+  {
+    return closed;
+  }
+
+  /**
+   * The loop of the dispatching thread. Ends when the ring is closed and
+   * every position claimed has been dispatched.
+   */
+  public void run()
+  {
+    while (true)
+    {
+      int index = (int)head & mask;
+      if (sequences.get(index) != head + 1)
+      {
+        if (closed)
+        {
+          // A position claimed but not yet filled must still be dispatched.
+          if (tail.compareAndSet(head, CLOSED))
+            return;
+          Thread.onSpinWait();
+          continue;
+        }
+
+        waiting = true;
+        if (sequences.get(index) != head + 1 && !closed)
+          LockSupport.park(this);
+        waiting = false;
+        continue;
+      }
+
+      OriginatorMessage slot = slots[index];
+      try
+      {
+        observer.accept(slot);
+      }
+      catch (Throwable e) // the ring must go on, or publishers would wait forever
+      {
+        dispatcher.getUncaughtExceptionHandler()
+          .uncaughtException(dispatcher, e);
+      }
+      slot.set(null, null, null);
+      sequences.set(index, head + slots.length);
+      head++;
+    }
+  }
+}
+// End of OriginatorRing class
@@ -0,0 +1,250 @@
+// This file contains material supporting section 3.8 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+* An <code> OutboundQueue </code> holds the data waiting to be written
+* to a client. Its capacity is bounded and its
+* <code> OverflowPolicy </code> decides what to do when it is full.<p>
+*
+* The queue is its own lock. A transport that needs to perform several
+* operations atomically, such as writing directly to the client when the
+* queue is empty, synchronizes on the queue; a sender blocked by the
+* <code>BLOCK</code> policy releases that lock while waiting.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.AbstractServer#setOutboundQueue(int, OverflowPolicy, long)
+*/
+final class OutboundQueue<E>
+{
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The items of the queue, oldest first.
+   */
+  private final ArrayDeque<E> items = new ArrayDeque<>();
+
+  /**
+   * The maximum number of items.
+   */
+  private final int capacity;
+
+  /**
+   * What to do when the queue is full.
+   */
+  private final OverflowPolicy policy;
+
+  /**
+   * The maximum time to wait for room with the BLOCK policy, in ms.
+   */
+  private final long timeout;
+
+  /**
+   * Tells whether an item has already been partially written, in which
+   * case it cannot be dropped without corrupting the stream.
+   * Null if items are always removed before being written.
+   */
+  private final Predicate<E> started;
+
+  /**
+   * The number of senders waiting for room.
+   */
+  private int waiting = 0;
+
+  /**
+   * The number of items dropped so far.
+   */
+  private long dropped = 0;
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Constructs a queue.
+   *
+   * @param capacity the maximum number of items, or 0 for no limit.
+   * @param policy what to do when the queue is full.
+   * @param timeout the maximum time to wait for room, in ms.
+   * @param started tells whether an item has been partially written,
+   *  or null.
+   */
+  OutboundQueue(int capacity, OverflowPolicy policy, long timeout,
+    Predicate<E> started)
+  {
+    this.capacity = capacity > 0 ? capacity : Integer.MAX_VALUE;
+    this.policy = policy;
+    this.timeout = timeout;
+    this.started = started;
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Adds an item to the queue, applying the overflow policy if the
+   * queue is full.
+   *
+   * @param item the item to add.
+   * @param mayBlock false if the caller cannot wait, in which case the
+   *  BLOCK policy behaves as DISCONNECT.
+   * @return false if the client must be evicted.
+   * @exception InterruptedIOException if interrupted while waiting.
+   */
+  synchronized boolean offer(E item, boolean mayBlock)
+    throws InterruptedIOException
+  {
+    if (items.size() >= capacity)
+    {
+      switch (policy)
+      {
+        case DROP_OLDEST:
+          dropOldest();
+          break;
+
+        case BLOCK:
+          if (!mayBlock || !awaitRoom())
+            return false;
+          break;
+
+        default:
+          return false;
+      }
+    }
+
+    items.add(item);
+    return true;
+  }
+
+  /**
+   * Returns the oldest item without removing it.
+   *
+   * @return the oldest item, or null if the queue is empty.
+   */
+  synchronized E peek()
+  {
+    return items.peek();
+  }
+
+  /**
+   * Removes and returns the oldest item.
+   *
+   * @return the oldest item, or null if the queue is empty.
+   */
+  synchronized E poll()
+  {
+    E item = items.poll();
+    if (item != null && waiting > 0)
+      notifyAll();
+
+    return item;
+  }
+
+  /**
+   * Copies the oldest items into an array, without removing them.
+   *
+   * @param batch the array to fill.
+   * @return the number of items copied.
+   */
+  synchronized int peek(E[] batch)
+  {
+    int count = 0;
+    Iterator<E> iterator = items.iterator();
+    while (count < batch.length && iterator.hasNext())
+    {
+      batch[count++] = iterator.next();
+    }
+    return count;
+  }
+
+  /**
+   * Removes all the items, and wakes up the waiting senders.
+   */
+  synchronized void clear()
+  {
+    items.clear();
+    notifyAll();
+  }
+
+  /**
+   * @return true if the queue is empty.
+   */
+  synchronized boolean isEmpty()
+  {
+    return items.isEmpty();
+  }
+
+  /**
+   * @return the number of items in the queue.
+   */
+  synchronized int size()
+  {
+    return items.size();
+  }
+
+  /**
+   * @return the number of items dropped because the queue was full.
+   */
+  synchronized long getDroppedCount()
+  {
+    return dropped;
+  }
+
+  /**
+   * Removes the oldest item that has not started to be written.
+   */
+  private void dropOldest()
+  {
+    Iterator<E> iterator = items.iterator();
+    while (iterator.hasNext())
+    {
+      E item = iterator.next();
+      if (started == null || !started.test(item))
+      {
+        iterator.remove();
+        dropped++;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Waits until there is room in the queue or the timeout expires.
+   *
+   * @return true if there is room.
+   */
+  private boolean awaitRoom() throws InterruptedIOException
+  {
+    long deadline = System.nanoTime() + timeout * 1000000L;
+    waiting++;
+    try
+    {
+      while (items.size() >= capacity)
+      {
+        long remaining = (deadline - System.nanoTime()) / 1000000L;
+        if (remaining <= 0)
+          return false;
+
+        wait(remaining);
+      }
+      return true;
+    }
+    catch (InterruptedException ex)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while sending");
+    }
+    finally
+    {
+      waiting--;
+    }
+  }
+}
+// End of OutboundQueue class
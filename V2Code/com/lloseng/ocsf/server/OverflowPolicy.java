@@ -0,0 +1,40 @@
+// This file contains material supporting section 3.8 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+/**
+* The <code> OverflowPolicy </code> enumeration defines what happens
+* when a message is sent to a client whose outbound queue is full,
+* which means that the client does not read its messages as fast as
+* the server produces them.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.AbstractServer#setOutboundQueue(int, OverflowPolicy, long)
+*/
+public enum OverflowPolicy
+{
+  /**
+   * The oldest message waiting in the queue is discarded to make room
+   * for the new one. The client misses messages but stays connected.
+   */
+  DROP_OLDEST,
+
+  /**
+   * The client is evicted: the <code>slowClientEvicted</code> hook of
+   * the server is called and the connection is closed.
+   */
+  DISCONNECT,
+
+  /**
+   * The sender waits until there is room in the queue, for at most
+   * the timeout of the queue. The client is evicted if the queue is
+   * still full after that time.
+   */
+  BLOCK
+}
@@ -0,0 +1,268 @@
+// This file contains material supporting section 3.8 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.lloseng.ocsf.codec.*;
+
+/**
+* The <code> SelectorEngine </code> class is the alternative
+* transport used by <code> AbstractServer </code> when it is configured
+* with selector threads. Instead of one thread per client, a small
+* fixed number of event loops multiplex all the client channels
+* using <code> java.nio.channels.Selector </code>.<p>
+*
+* Connections are accepted by the listening thread of the server, as
+* in thread mode, and then handed over to one of the event loops in
+* round-robin order. All the hook methods of the server are called
+* from the event loop that owns the connection.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.AbstractServer#setSelectorThreads(int)
+* @see com.lloseng.ocsf.server.ChannelTransport
+*/
+final class SelectorEngine
+{
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The server that owns this engine.
+   */
+  private final AbstractServer server;
+
+  /**
+   * The event loops. Each one runs in its own thread.
+   */
+  private final EventLoop[] loops;
+
+  /**
+   * Used to distribute new connections among the event loops.
+   */
+  private final AtomicInteger nextLoop = new AtomicInteger();
+
+  /**
+   * The codec used when the server has none, since messages
+   * must be framed in selector mode.
+   */
+  private final MessageCodec defaultCodec = new SerializationCodec();
+
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Constructs and starts the engine.
+   *
+   * @param server the server that owns this engine.
+   * @param threads the number of event loops.
+   * @exception IOException if a selector cannot be opened.
+   */
+  SelectorEngine(AbstractServer server, int threads) throws IOException
+  {
+    this.server = server;
+    this.loops = new EventLoop[threads];
+
+    try
+    {
+      for (int i=0; i<threads; i++)
+      {
+        loops[i] = new EventLoop(i);
+      }
+    }
+    catch (IOException ex)
+    {
+      shutdown();
+      throw ex;
+    }
+
+    for (int i=0; i<threads; i++)
+    {
+      loops[i].start();
+    }
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Assigns a newly accepted connection to one of the event loops.
+   * The channel is only registered with that loop, and the
+   * <code>clientConnected</code> hook called from it, once the
+   * transport returned is started.
+   *
+   * @param connection the connection to the client.
+   * @param channel the channel of the accepted socket.
+   * @return the transport used by the connection.
+   * @exception IOException if the channel cannot be configured.
+   */
+  ChannelTransport register(ConnectionToClient connection,
+    SocketChannel channel) throws IOException
+  {
+    channel.configureBlocking(false);
+
+    EventLoop loop =
+      loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    MessageCodec codec = server.getCodec();
+    if (codec == null)
+      codec = defaultCodec;
+
+    ChannelTransport transport =
+      new ChannelTransport(server, connection, channel, loop, codec);
+
+    return transport;
+  }
+
+  /**
+   * Stops all the event loops. The connections should have been
+   * closed before this method is called.
+   */
+  void shutdown()
+  {
+    for (int i=0; i<loops.length; i++)
+    {
+      if (loops[i] != null)
+        loops[i].shutdown();
+    }
+  }
+
+// INNER CLASSES ----------------------------------------------------
+
+  /**
+   * A thread that waits on a selector and services the channels
+   * registered with it. Tasks submitted from other threads are
+   * queued and run by the loop between two selections.
+   */
+  final class EventLoop extends Thread
+  {
+    /**
+     * The selector of this loop.
+     */
+    private final Selector selector;
+
+    /**
+     * The tasks to be run by this loop.
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Buffer shared by all the channels of this loop to read
+     * incoming data. Channels only keep their own buffer when
+     * a message has been partially received.
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    /**
+     * Indicates if the loop is ready to stop.
+     */
+    private volatile boolean readyToStop = false;
+
+    EventLoop(int index) throws IOException
+    {
+      super("OCSF selector " + index);
+      selector = Selector.open();
+    }
+
+    /**
+     * Returns the selector of this loop.
+     */
+    Selector selector()
+    {
+      return selector;
+    }
+
+    /**
+     * Returns the read buffer of this loop.
+     */
+    ByteBuffer readBuffer()
+    {
+      return readBuffer;
+    }
+
+    /**
+     * Indicates if the current thread is this loop.
+     */
+    boolean inLoop()
+    {
+      return Thread.currentThread() == this;
+    }
+
+    /**
+     * Runs a task in this loop, as soon as possible.
+     *
+     * @param task the task to run.
+     */
+    void execute(Runnable task)
+    {
+      tasks.add(task);
+      selector.wakeup();
+    }
+
+    /**
+     * Asks the loop to stop.
+     */
+    void shutdown()
+    {
+      readyToStop = true;
+      selector.wakeup();
+    }
+
+    /**
+     * Selects the ready channels and services them.
+     * Not to be called.
+     */
+    public void run()
+    {
+      try
+      {
+        while (!readyToStop)
+        {
+          selector.select();
+          runTasks();
+
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext())
+          {
+            SelectionKey key = keys.next();
+            keys.remove();
+
+            ChannelTransport transport = (ChannelTransport)key.attachment();
+            transport.process(key);
+          }
+        }
+      }
+      catch (IOException ex)
+      {
+        // The selector is no longer usable; let the connections die.
+      }
+      finally
+      {
+        runTasks();
+        try
+        {
+          selector.close();
+        }
+        catch (IOException ex) {}
+      }
+    }
+
+    private void runTasks()
+    {
+      Runnable task;
+      while ((task = tasks.poll()) != null)
+      {
+        task.run();
+      }
+    }
+  }
+}
+// End of SelectorEngine class
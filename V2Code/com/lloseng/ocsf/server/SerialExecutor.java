@@ -0,0 +1,151 @@
+// This file contains material supporting section 3.8 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+* A <code> SerialExecutor </code> runs the tasks submitted to it one at a
+* time and in submission order, using the threads of another executor.
+* Each connection to a client has its own serial executor when the server
+* dispatches messages with an executor, which preserves the order of the
+* messages of each client while different clients are handled in
+* parallel.<p>
+*
+* After a number of consecutive tasks, the serial executor gives its
+* thread back to the underlying executor so that a very active client
+* cannot monopolize a thread.<p>
+*
+* If the underlying executor refuses to run the tasks, for instance
+* because it is a bounded pool that is full or shut down, they are run by
+* the thread submitting them instead, so that they are neither lost nor
+* reordered. A task throwing an exception does not prevent the following
+* ones from running; the exception is propagated to the thread that ran
+* the task.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.AbstractServer#setDispatchExecutor(Executor)
+*/
+final class SerialExecutor implements Executor
+{
+  // CLASS VARIABLES ************************************************
+
+  /**
+   * The maximum number of tasks run in a row on the same thread.
+   */
+  private static final int BATCH_SIZE = 64;
+
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The executor providing the threads.
+   */
+  private final Executor executor;
+
+  /**
+   * The tasks waiting to be run.
+   */
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The number of tasks submitted but not yet completed. The thread
+   * that makes it leave zero is responsible for scheduling the drain.
+   */
+  private final AtomicInteger pending = new AtomicInteger();
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Constructs a serial executor.
+   *
+   * @param executor the executor providing the threads.
+   */
+  SerialExecutor(Executor executor)
+  {
+    this.executor = executor;
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Submits a task. It will run after all the tasks submitted before.
+   *
+   * @param task the task.
+   */
+  public void execute(Runnable task)
+  {
+    tasks.add(task);
+    if (pending.getAndIncrement() == 0)
+    {
+      schedule();
+    }
+  }
+
+  /**
+   * Submits the drain to the executor. If the executor refuses it,
+   * the tasks are run by the calling thread, one batch at a time, until
+   * the executor accepts it or no task is left.
+   */
+  private void schedule()
+  {
+    while (true)
+    {
+      try
+      {
+        executor.execute(this::drain);
+        return;
+      }
+      catch (RejectedExecutionException ex)
+      {
+        if (!runBatch())
+          return;
+      }
+    }
+  }
+
+  /**
+   * Runs the queued tasks, then schedules itself again if the
+   * batch was exhausted before the queue.
+   */
+  private void drain()
+  {
+    if (runBatch())
+      schedule();
+  }
+
+  /**
+   * Runs a batch of the queued tasks. If a task throws an exception,
+   * the remaining tasks are scheduled before it is propagated.
+   *
+   * @return true if tasks remain to be run.
+   */
+  private boolean runBatch()
+  {
+    for (int i=0; i<BATCH_SIZE; i++)
+    {
+      try
+      {
+        tasks.poll().run();
+      }
+      catch (RuntimeException | Error ex)
+      {
+        if (pending.decrementAndGet() > 0)
+          schedule();
+        throw ex;
+      }
+
+      if (pending.decrementAndGet() == 0)
+        return false;
+    }
+    return true;
+  }
+}
+// End of SerialExecutor class
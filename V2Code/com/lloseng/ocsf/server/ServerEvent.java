@@ -0,0 +1,124 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+/**
+* A <code> ServerEvent </code> is what an <code>ObservableServer</code>
+* publishes on its <code>ServerEventBus</code> each time one of its hook
+* methods is called. Unlike the strings sent to the observers, such as
+* <code>ObservableServer.CLIENT_CONNECTED</code>, an event has a kind
+* that can be tested without comparing strings, and carries the client,
+* the message and the exception concerned as separate fields.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.ServerEventBus
+*/
+public final class ServerEvent
+{
+  /**
+   * The kinds of events, one for each hook method of the server.
+   */
+  public enum Kind
+  {
+    /** A message has been received from a client. */
+    MESSAGE,
+    /** A client has connected. */
+    CLIENT_CONNECTED,
+    /** A client has disconnected. */
+    CLIENT_DISCONNECTED,
+    /** An exception has been raised by the connection to a client. */
+    CLIENT_EXCEPTION,
+    /** An exception has been raised while listening. */
+    LISTENING_EXCEPTION,
+    /** The server has started listening. */
+    SERVER_STARTED,
+    /** The server has stopped listening. */
+    SERVER_STOPPED,
+    /** The server has been closed. */
+    SERVER_CLOSED
+  }
+
+  // INSTANCE VARIABLES *********************************************
+
+  private final Kind kind;
+
+  private final ConnectionToClient client;
+
+  private final Object message;
+
+  private final Throwable exception;
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Creates an event.
+   *
+   * @param kind the kind of the event.
+   * @param client the client concerned, or null.
+   * @param message the message received, or null.
+   * @param exception the exception raised, or null.
+   */
+  public ServerEvent(Kind kind, ConnectionToClient client, Object message,
+    Throwable exception)
+  {
+    if (kind == null)
+      throw new NullPointerException();
+
+    this.kind = kind;
+    this.client = client;
+    this.message = message;
+    this.exception = exception;
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * @return the kind of the event.
+   */
+  public Kind getKind()
+  {
+    return kind;
+  }
+
+  /**
+   * @return the client concerned, or null if the event concerns the
+   *  server.
+   */
+  public ConnectionToClient getClient()
+  {
+    return client;
+  }
+
+  /**
+   * @return the message received, for a <code>MESSAGE</code> event,
+   *  or null.
+   */
+  public Object getMessage()
+  {
+    return message;
+  }
+
+  /**
+   * @return the exception raised, for a <code>CLIENT_EXCEPTION</code>
+   *  or <code>LISTENING_EXCEPTION</code> event, or null.
+   */
+  public Throwable getException()
+  {
+    return exception;
+  }
+
+  public String toString()
+  {
+    return "ServerEvent[" + kind
+      + (client == null ? "" : ", " + client)
+      + (message == null ? "" : ", " + message)
+      + (exception == null ? "" : ", " + exception) + "]";
+  }
+}
+// End of ServerEvent class
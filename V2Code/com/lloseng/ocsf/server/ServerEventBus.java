@@ -0,0 +1,162 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+* A <code> ServerEventBus </code> delivers the events of a server to the
+* listeners that subscribed to their kind. It replaces, for the
+* listeners using it, the <code>Observable</code> mechanism, which takes
+* the lock of the server and copies the list of observers for every
+* message.<p>
+*
+* Each kind of event has its own array of listeners, which is replaced
+* when a listener subscribes or unsubscribes, never modified. Publishing
+* an event therefore takes no lock, and the messages received from the
+* clients do not contend with the connections and disconnections, nor
+* with each other. Subscribing is more costly, but much less frequent.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.ObservableServer#getEventBus()
+*/
+public final class ServerEventBus
+{
+  // CLASS VARIABLES ************************************************
+
+  private static final ServerEventListener[] NONE = new ServerEventListener[0];
+
+  private static final ServerEvent.Kind[] KINDS = ServerEvent.Kind.values();
+
+  // INSTANCE VARIABLES *********************************************
+
+  /**
+   * The listeners of each kind of event, by ordinal of the kind.
+   */
+  private final AtomicReferenceArray<ServerEventListener[]> listeners =
+    new AtomicReferenceArray<>(KINDS.length);
+
+// CONSTRUCTORS *****************************************************
+
+  /**
+   * Creates a bus with no listener.
+   */
+  public ServerEventBus()
+  {
+    for (int i=0; i<KINDS.length; i++)
+      listeners.set(i, NONE);
+  }
+
+// INSTANCE METHODS *************************************************
+
+  /**
+   * Subscribes a listener to a kind of events. A listener subscribed
+   * twice receives the events twice.
+   *
+   * @param kind the kind of events.
+   * @param listener the listener.
+   */
+  public void subscribe(ServerEvent.Kind kind, ServerEventListener listener)
+  {
+    if (listener == null)
+      throw new NullPointerException();
+
+    int i = kind.ordinal();
+    ServerEventListener[] current, updated;
+    do
+    {
+      current = listeners.get(i);
+      updated = Arrays.copyOf(current, current.length + 1);
+      updated[current.length] = listener;
+    }
+    while (!listeners.compareAndSet(i, current, updated));
+  }
+
+  /**
+   * Subscribes a listener to all the kinds of events.
+   *
+   * @param listener the listener.
+   */
+  public void subscribe(ServerEventListener listener)
+  {
+    for (ServerEvent.Kind kind : KINDS)
+      subscribe(kind, listener);
+  }
+
+  /**
+   * Unsubscribes a listener from a kind of events. Has no effect if it
+   * is not subscribed.
+   *
+   * @param kind the kind of events.
+   * @param listener the listener.
+   */
+  public void unsubscribe(ServerEvent.Kind kind, ServerEventListener listener)
+  {
+    int i = kind.ordinal();
+    ServerEventListener[] current, updated;
+    do
+    {
+      current = listeners.get(i);
+      int index = -1;
+      for (int j=0; j<current.length && index < 0; j++)
+      {
+        if (current[j] == listener)
+          index = j;
+      }
+      if (index < 0)
+        return;
+
+      updated = new ServerEventListener[current.length - 1];
+      System.arraycopy(current, 0, updated, 0, index);
+      System.arraycopy(current, index + 1, updated, index,
+        current.length - index - 1);
+    }
+    while (!listeners.compareAndSet(i, current, updated));
+  }
+
+  /**
+   * Unsubscribes a listener from all the kinds of events.
+   *
+   * @param listener the listener.
+   */
+  public void unsubscribe(ServerEventListener listener)
+  {
+    for (ServerEvent.Kind kind : KINDS)
+      unsubscribe(kind, listener);
+  }
+
+  /**
+   * Indicates if a kind of events has listeners. Lets a publisher avoid
+   * creating events that nobody receives.
+   *
+   * @param kind the kind of events.
+   * @return true if at least one listener is subscribed to the kind.
+   */
+  public boolean hasListeners(ServerEvent.Kind kind)
+  {
+    return listeners.get(kind.ordinal()).length > 0;
+  }
+
+  /**
+   * Delivers an event to the listeners of its kind, in the order they
+   * subscribed, in the calling thread. An exception thrown by a
+   * listener is propagated to the publisher, and the following
+   * listeners do not receive the event.
+   *
+   * @param event the event.
+   */
+  public void publish(ServerEvent event)
+  {
+    ServerEventListener[] current = listeners.get(event.getKind().ordinal());
+    for (int i=0; i<current.length; i++)
+      current[i].handleEvent(event);
+  }
+}
+// End of ServerEventBus class
@@ -0,0 +1,30 @@
+// This file contains material supporting the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package com.lloseng.ocsf.server;
+
+/**
+* A <code> ServerEventListener </code> receives the events published on
+* a <code>ServerEventBus</code> for the kinds it subscribed to.<p>
+*
+* Project Name: OCSF (Object Client-Server Framework)<p>
+*
+* @author Dr Robert Lagani&egrave;re
+* @author Dr Timothy C. Lethbridge
+* @version October 2026 (2.4)
+* @see com.lloseng.ocsf.server.ServerEventBus#subscribe(ServerEvent.Kind, ServerEventListener)
+*/
+@FunctionalInterface
+public interface ServerEventListener
+{
+  /**
+   * Handles an event. Called by the thread that published it, which is
+   * usually the thread of the client concerned, so this method should
+   * return quickly and may be called by several threads at once.
+   *
+   * @param event the event.
+   */
+  void handleEvent(ServerEvent event);
+}
+// End of ServerEventListener interface
@@ -19,6 +19,9 @@ import java.net.*;
  * Several public service methods are provided to application that use this
  * framework.
  * <p>
+ * When a reconnect policy is set, a connection lost because of an exception
+ * is re-established automatically, see <code>setReconnectPolicy()</code>.
+ * <p>
  * Project Name: OCSF (Object Client-Server Framework)
  * <p>
  * 
@@ -57,9 +60,20 @@ public abstract class AbstractClient implements Runnable {
 
 	/**
 	 * Indicates if the thread is ready to stop. Needed so that the loop in the
-	 * run method knows when to stop waiting for incoming messages.
+	 * run method knows when to stop waiting for incoming messages. Also tells
+	 * the reconnecting thread that the connection was closed on purpose.
+	 */
+	private volatile boolean	readyToStop	= false;
+
+	/**
+	 * How to reconnect when the connection is lost, or null not to.
+	 */
+	private volatile ReconnectPolicy	reconnectPolicy	= null;
+
+	/**
+	 * The thread re-establishing a lost connection, or null.
 	 */
-	private boolean				readyToStop	= false;
+	private volatile Thread		reconnector	= null;
 
 	/**
 	 * The server's host name.
@@ -158,6 +172,11 @@ public abstract class AbstractClient implements Runnable {
 		// Prevent the thread from looping any more
 		readyToStop = true;
 
+		// Stop reconnecting, if the connection had been lost
+		Thread reconnector = this.reconnector;
+		if (reconnector != null)
+			reconnector.interrupt();
+
 		try {
 			closeAll();
 		} finally {
@@ -175,6 +194,36 @@ public abstract class AbstractClient implements Runnable {
 		return clientReader != null && clientReader.isAlive();
 	}
 
+	/**
+	 * Sets how to reconnect when the connection to the server is lost because
+	 * of an exception. The <code>connectionException</code> hook is called
+	 * first; the attempts are then made by a separate thread, and once the
+	 * connection is back the <code>connectionReestablished</code> hook is
+	 * called so that the client can repeat its handshake with the server. If
+	 * every attempt fails, <code>reconnectFailed</code> is called. Closing the
+	 * connection stops the attempts.
+	 *
+	 * @param policy
+	 *            the reconnect policy, or null not to reconnect.
+	 */
+	final public void setReconnectPolicy(ReconnectPolicy policy) {
+		this.reconnectPolicy = policy;
+	}
+
+	/**
+	 * @return the reconnect policy, or null.
+	 */
+	final public ReconnectPolicy getReconnectPolicy() {
+		return reconnectPolicy;
+	}
+
+	/**
+	 * @return true if the client is trying to re-establish a lost connection.
+	 */
+	final public boolean isReconnecting() {
+		return reconnector != null;
+	}
+
 	/**
 	 * @return the port number.
 	 */
@@ -233,6 +282,7 @@ public abstract class AbstractClient implements Runnable {
 		Object msg;
 
 		// Loop waiting for data
+		boolean lost = false;
 
 		try {
 			while (!readyToStop) {
@@ -252,10 +302,14 @@ public abstract class AbstractClient implements Runnable {
 				} catch (Exception ex) {
 				}
 
+				lost = true;
 				connectionException(exception);
 			}
 		} finally {
 			clientReader = null;
+
+			if (lost && reconnectPolicy != null && !readyToStop)
+				startReconnecting();
 		}
 	}
 
@@ -289,6 +343,28 @@ public abstract class AbstractClient implements Runnable {
 	protected void connectionEstablished() {
 	}
 
+	/**
+	 * Hook method called, from the reconnecting thread, after a lost
+	 * connection has been re-established according to the reconnect policy.
+	 * The default implementation does nothing. It may be overridden by
+	 * subclasses to repeat their handshake with the server, such as logging
+	 * in again.
+	 */
+	protected void connectionReestablished() {
+	}
+
+	/**
+	 * Hook method called when the reconnect policy gives up re-establishing
+	 * a lost connection. The default implementation does nothing.
+	 *
+	 * @param attempts
+	 *            the number of attempts made.
+	 * @param exception
+	 *            the exception raised by the last attempt, or null.
+	 */
+	protected void reconnectFailed(int attempts, Exception exception) {
+	}
+
 	/**
 	 * Handles a message sent from the server to this client. This MUST be
 	 * implemented by subclasses, who should respond to messages.
@@ -300,6 +376,60 @@ public abstract class AbstractClient implements Runnable {
 
 	// METHODS TO BE USED FROM WITHIN THE FRAMEWORK ONLY ----------------
 
+	/**
+	 * Starts the thread re-establishing the connection.
+	 */
+	private void startReconnecting() {
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				reconnect();
+			}
+		}, "Reconnect to " + host + ":" + port);
+		reconnector = thread;
+		thread.start();
+	}
+
+	/**
+	 * Tries to open the connection again according to the reconnect policy,
+	 * until it succeeds, the policy gives up, or the connection is closed or
+	 * opened by the application meanwhile.
+	 */
+	private void reconnect() {
+		ReconnectPolicy policy = reconnectPolicy;
+		Exception lastException = null;
+		int attempt = 0;
+
+		try {
+			while (policy != null && policy.allowsAttempt(attempt)) {
+				try {
+					Thread.sleep(policy.nextDelay(attempt));
+				} catch (InterruptedException e) {
+					return; // the connection was closed
+				}
+				attempt++;
+
+				if (readyToStop || isConnected())
+					return;
+
+				try {
+					openConnection();
+				} catch (IOException e) {
+					lastException = e;
+					continue;
+				}
+
+				connectionReestablished();
+				return;
+			}
+
+			if (!readyToStop)
+				reconnectFailed(attempt, lastException);
+		} finally {
+			if (reconnector == Thread.currentThread())
+				reconnector = null;
+		}
+	}
+
 	/**
 	 * Closes all aspects of the connection to the server.
 	 * 
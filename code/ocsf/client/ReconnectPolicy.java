@@ -0,0 +1,118 @@
+// This file contains material supporting section 3.7 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package ocsf.client;
+
+import java.util.concurrent.*;
+
+/**
+ * The <code> ReconnectPolicy </code> tells an <code> AbstractClient </code>
+ * how to reconnect when its connection to the server is lost.
+ * <p>
+ * The delay before each attempt is drawn at random up to a bound that
+ * doubles with each attempt, from the initial delay up to the maximum delay
+ * ("full jitter"). When a server restarts, its clients therefore reconnect
+ * spread over time instead of all at once.
+ * <p>
+ * Project Name: OCSF (Object Client-Server Framework)
+ * <p>
+ *
+ * @author Dr. Robert Lagani&egrave;re
+ * @author Dr. Timothy C. Lethbridge
+ * @version October 2026
+ * @see AbstractClient#setReconnectPolicy(ReconnectPolicy)
+ */
+public final class ReconnectPolicy {
+
+	// INSTANCE VARIABLES ***********************************************
+
+	/**
+	 * The bound of the delay before the first attempt, in milliseconds.
+	 */
+	private final long	initialDelay;
+
+	/**
+	 * The largest bound of the delay before an attempt, in milliseconds.
+	 */
+	private final long	maxDelay;
+
+	/**
+	 * The number of attempts before giving up, or 0 to never give up.
+	 */
+	private final int	maxAttempts;
+
+	// CONSTRUCTORS *****************************************************
+
+	/**
+	 * Constructs a reconnect policy.
+	 *
+	 * @param initialDelay
+	 *            the bound of the delay before the first attempt, in
+	 *            milliseconds.
+	 * @param maxDelay
+	 *            the largest bound of the delay before an attempt, in
+	 *            milliseconds.
+	 * @param maxAttempts
+	 *            the number of attempts before giving up, or 0 to never
+	 *            give up.
+	 */
+	public ReconnectPolicy(long initialDelay, long maxDelay, int maxAttempts) {
+		if (initialDelay <= 0 || maxDelay < initialDelay || maxAttempts < 0)
+			throw new IllegalArgumentException("Invalid reconnect policy");
+
+		this.initialDelay = initialDelay;
+		this.maxDelay = maxDelay;
+		this.maxAttempts = maxAttempts;
+	}
+
+	// INSTANCE METHODS *************************************************
+
+	/**
+	 * Returns the delay to wait before an attempt.
+	 *
+	 * @param attempt
+	 *            the number of the attempt, starting at 0.
+	 * @return the delay, in milliseconds.
+	 */
+	public long nextDelay(int attempt) {
+		long bound = maxDelay;
+		if (attempt < 63 && initialDelay <= maxDelay >> attempt)
+			bound = initialDelay << attempt;
+
+		return ThreadLocalRandom.current().nextLong(bound) + 1;
+	}
+
+	/**
+	 * Indicates if an attempt can be made.
+	 *
+	 * @param attempt
+	 *            the number of the attempt, starting at 0.
+	 * @return true if the attempt can be made.
+	 */
+	public boolean allowsAttempt(int attempt) {
+		return maxAttempts == 0 || attempt < maxAttempts;
+	}
+
+	/**
+	 * @return the bound of the delay before the first attempt.
+	 */
+	public long getInitialDelay() {
+		return initialDelay;
+	}
+
+	/**
+	 * @return the largest bound of the delay before an attempt.
+	 */
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	/**
+	 * @return the number of attempts before giving up, or 0.
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+}
+// end of ReconnectPolicy class
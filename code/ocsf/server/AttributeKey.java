@@ -0,0 +1,107 @@
+// This file contains material supporting section 3.8 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package ocsf.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An <code>AttributeKey</code> identifies a typed piece of information saved
+ * in a <code>ConnectionToClient</code>, such as the login ID of the client.
+ * Unlike the strings used with <code>setInfo</code>, a key knows the type of
+ * its value, so that no cast is needed, and gives direct access to the value
+ * without any hashing.
+ * <p>
+ * Keys are compared by identity: two keys created with the same name are
+ * different keys. They are meant to be created once and kept in constants.
+ * <p>
+ * Project Name: OCSF (Object Client-Server Framework)
+ * <p>
+ * 
+ * @author Dr Robert Lagani&egrave;re
+ * @author Dr Timothy C. Lethbridge
+ * @version October 2026
+ * @see ocsf.server.ConnectionToClient#getAttribute(AttributeKey)
+ */
+public final class AttributeKey<T> {
+	// CLASS VARIABLES **************************************************
+
+	/**
+	 * The number of keys created so far.
+	 */
+	private static final AtomicInteger	count	= new AtomicInteger();
+
+	// INSTANCE VARIABLES ***********************************************
+
+	/**
+	 * The name of the key, used for display only.
+	 */
+	private final String				name;
+
+	/**
+	 * The type of the values.
+	 */
+	private final Class<T>				type;
+
+	/**
+	 * The position of the values of this key in the attributes of the
+	 * connections.
+	 */
+	private final int					index;
+
+	// CONSTRUCTORS *****************************************************
+
+	private AttributeKey(String name, Class<T> type) {
+		this.name = name;
+		this.type = type;
+		this.index = count.getAndIncrement();
+	}
+
+	/**
+	 * Creates a new key.
+	 * 
+	 * @param name
+	 *            the name of the key.
+	 * @param type
+	 *            the type of the values.
+	 * @return the key.
+	 */
+	public static <T> AttributeKey<T> create(String name, Class<T> type) {
+		if (name == null || type == null)
+			throw new NullPointerException();
+
+		return new AttributeKey<T>(name, type);
+	}
+
+	// INSTANCE METHODS *************************************************
+
+	/**
+	 * Returns the name of the key.
+	 * 
+	 * @return the name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the type of the values.
+	 * 
+	 * @return the type.
+	 */
+	public Class<T> getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the position of the values of this key.
+	 */
+	int index() {
+		return index;
+	}
+
+	public String toString() {
+		return "AttributeKey[" + name + "]";
+	}
+}
@@ -6,7 +6,9 @@ package ocsf.server;
 
 import java.io.*;
 import java.net.*;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An instance of this class is created by the server when a client connects. It
@@ -60,9 +62,23 @@ public class ConnectionToClient extends Thread {
 	 * Map to save information about the client such as its login ID. The
 	 * initial size of the map is small since it is not expected that concrete
 	 * servers will want to store many different types of information about each
-	 * client. Used by the setInfo and getInfo methods.
+	 * client. Used by the setInfo and getInfo methods. Concurrent, since it is
+	 * read by the threads of all the clients when broadcasting.
 	 */
-	private HashMap				savedInfo	= new HashMap(10);
+	private final Map<String, Object>	savedInfo	= new ConcurrentHashMap<String, Object>(10);
+
+	/**
+	 * The values of the typed attributes of the client, indexed by key. The
+	 * array is replaced, never modified, when an attribute is set, so that it
+	 * can be read without locking.
+	 */
+	private volatile Object[]	attributes	= new Object[0];
+
+	/**
+	 * The lock of the updates of the attributes. The connection itself is not
+	 * used since it is a thread.
+	 */
+	private final Object		attributeLock	= new Object();
 
 	// CONSTRUCTORS *****************************************************
 
@@ -178,7 +194,10 @@ public class ConnectionToClient extends Thread {
 	 *            the information itself.
 	 */
 	public void setInfo(String infoType, Object info) {
-		savedInfo.put(infoType, info);
+		if (info == null) // the map does not accept nulls
+			savedInfo.remove(infoType);
+		else
+			savedInfo.put(infoType, info);
 	}
 
 	/**
@@ -192,6 +211,73 @@ public class ConnectionToClient extends Thread {
 		return savedInfo.get(infoType);
 	}
 
+	/**
+	 * Returns the value of an attribute of the client. This method does not
+	 * lock, and can be called from any thread as often as needed, typically
+	 * for each message received.
+	 * 
+	 * @param key
+	 *            the key of the attribute.
+	 * @return the value, or null if it has not been set.
+	 */
+	public <T> T getAttribute(AttributeKey<T> key) {
+		Object[] attributes = this.attributes;
+		int index = key.index();
+
+		return index < attributes.length ? key.getType().cast(attributes[index]) : null;
+	}
+
+	/**
+	 * Sets the value of an attribute of the client.
+	 * 
+	 * @param key
+	 *            the key of the attribute.
+	 * @param value
+	 *            the value, or null to remove the attribute.
+	 * @return the previous value, or null if it was not set.
+	 */
+	public <T> T setAttribute(AttributeKey<T> key, T value) {
+		return updateAttribute(key, value, false);
+	}
+
+	/**
+	 * Sets the value of an attribute of the client, unless it is already set.
+	 * The test and the update are atomic.
+	 * 
+	 * @param key
+	 *            the key of the attribute.
+	 * @param value
+	 *            the value.
+	 * @return the current value if it was already set, or null if the value
+	 *         has been set.
+	 */
+	public <T> T setAttributeIfAbsent(AttributeKey<T> key, T value) {
+		return updateAttribute(key, value, true);
+	}
+
+	/**
+	 * Copies the attributes with a new value. Setting an attribute is rare
+	 * compared to reading it, so the copy keeps reads simple and lock-free.
+	 */
+	private <T> T updateAttribute(AttributeKey<T> key, T value, boolean onlyIfAbsent) {
+		key.getType().cast(value); // in case generics were bypassed
+
+		synchronized (attributeLock) {
+			Object[] current = attributes;
+			int index = key.index();
+			T previous = index < current.length ? key.getType().cast(current[index]) : null;
+
+			if (onlyIfAbsent && previous != null)
+				return previous;
+
+			Object[] updated = Arrays.copyOf(current, Math.max(current.length, index + 1));
+			updated[index] = value;
+			attributes = updated;
+
+			return previous;
+		}
+	}
+
 	// RUN METHOD -------------------------------------------------------
 
 	/**
@@ -0,0 +1,358 @@
+// This file contains material supporting section 10.9 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+/*
+ * LoadGenerator.java   2026-10-18
+ *
+ * Copyright (c) 2026 Robert Laganiere and Timothy C. Lethbridge.
+ * All Rights Reserved.
+ *
+ */
+package ocsftester;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import ocsf.client.*;
+
+/**
+* The <code> LoadGenerator </code> class is a headless driver that
+* puts a chat server under load, such as the <code>EchoServer</code> of
+* the simple chat application. Unlike the <code>ClientsFrame</code>,
+* it does not open any window and can simulate thousands of clients.<p>
+*
+* Each simulated session behaves like a <code>ChatClient</code>: it
+* connects, sends <code>#login</code> followed by its login ID, and then
+* sends messages at a fixed rate. The server broadcasts every message to
+* all the clients, so each session receives its own messages back; the
+* time between the sending of a message and its return is the latency
+* reported, along with the throughput and the number of errors.<p>
+*
+* Type <code>java ocsftester.LoadGenerator [options]</code> to start it.
+* The options are:
+* <ul>
+* <li> <code>-host</code> and <code>-port</code>: the server,
+*      localhost:5555 by default.
+* <li> <code>-clients</code>: the number of sessions, 100 by default.
+* <li> <code>-rate</code>: the messages sent per second by each session,
+*      1 by default.
+* <li> <code>-duration</code>: the length of the measure, in seconds,
+*      30 by default.
+* <li> <code>-rampup</code>: the time taken to open all the sessions,
+*      in seconds, 5 by default.
+* <li> <code>-size</code>: the length of the messages, 32 by default.
+* <li> <code>-csv</code>: prints the results as CSV.
+* </ul>
+* Since every message is received by every session, the load on the
+* server grows with the square of the number of sessions.
+*
+* @author Dr. Robert Lagani&egrave;re
+* @version October 2026
+* @see ocsftester.ClientsFrame
+*/
+public class LoadGenerator
+{
+  private String host = "localhost";
+  private int port = 5555;
+  private int clients = 100;
+  private double rate = 1;
+  private int duration = 30;
+  private int rampUp = 5;
+  private int size = 32;
+  private boolean csv = false;
+
+  private final List<LoadClient> sessions =
+    Collections.synchronizedList(new ArrayList<LoadClient>());
+
+  private final AtomicLong connectErrors = new AtomicLong();
+  private final AtomicLong sendErrors = new AtomicLong();
+  private final AtomicLong connectionErrors = new AtomicLong();
+
+  /**
+   * Indicates if the messages are measured. The sessions only start
+   * recording once they are all connected.
+   */
+  private volatile boolean measuring = false;
+
+  public LoadGenerator(String[] arg)
+  {
+    for (int i=0; i<arg.length; i++)
+    {
+      String option = arg[i];
+      if (option.equals("-csv"))
+      {
+        csv = true;
+        continue;
+      }
+      if (i + 1 >= arg.length)
+        throw new IllegalArgumentException("missing value for " + option);
+
+      String value = arg[++i];
+      if (option.equals("-host"))
+        host = value;
+      else if (option.equals("-port"))
+        port = Integer.parseInt(value);
+      else if (option.equals("-clients"))
+        clients = Integer.parseInt(value);
+      else if (option.equals("-rate"))
+        rate = Double.parseDouble(value);
+      else if (option.equals("-duration"))
+        duration = Integer.parseInt(value);
+      else if (option.equals("-rampup"))
+        rampUp = Integer.parseInt(value);
+      else if (option.equals("-size"))
+        size = Integer.parseInt(value);
+      else
+        throw new IllegalArgumentException("unknown option " + option);
+    }
+  }
+
+  /**
+   * Opens the sessions, sends the messages for the duration of the
+   * measure and prints the results.
+   */
+  public void run() throws InterruptedException
+  {
+    ScheduledExecutorService timer = Executors.newScheduledThreadPool(
+      Math.max(2, Runtime.getRuntime().availableProcessors()));
+    long period = Math.max(1, (long)(1000000 / rate)); // in microseconds
+    String padding = "x".repeat(size);
+
+    // Open the sessions progressively, as real users would
+    long pause = clients > 0 ? rampUp * 1000000L / clients : 0;
+    for (int i=0; i<clients; i++)
+    {
+      LoadClient session = new LoadClient("user" + i, padding);
+      try
+      {
+        session.openConnection();
+        session.sendToServer("#login " + session.logInID);
+        sessions.add(session);
+        timer.scheduleAtFixedRate(session::sendNext,
+          ThreadLocalRandom.current().nextLong(period), period,
+          TimeUnit.MICROSECONDS);
+      }
+      catch (IOException ex)
+      {
+        connectErrors.incrementAndGet();
+      }
+      TimeUnit.MICROSECONDS.sleep(pause);
+    }
+
+    // Measure
+    measuring = true;
+    long start = System.nanoTime();
+    Thread.sleep(duration * 1000L);
+    measuring = false;
+    double elapsed = (System.nanoTime() - start) / 1e9;
+
+    timer.shutdownNow();
+    timer.awaitTermination(10, TimeUnit.SECONDS);
+    synchronized (sessions)
+    {
+      for (LoadClient session : sessions)
+        session.stop();
+    }
+
+    report(elapsed);
+  }
+
+  /**
+   * Prints the latency, throughput and errors.
+   */
+  private void report(double elapsed)
+  {
+    long sent = 0, echoed = 0, received = 0, latencyCount = 0;
+    for (LoadClient session : sessions)
+    {
+      sent += session.sent.get();
+      echoed += session.echoed.get();
+      received += session.received.get();
+      latencyCount += session.latencies.size();
+    }
+
+    long[] latencies = new long[(int)latencyCount];
+    int n = 0;
+    for (LoadClient session : sessions)
+    {
+      n = session.latencies.copyTo(latencies, n);
+    }
+    Arrays.sort(latencies, 0, n);
+
+    double p50 = percentile(latencies, n, 0.50);
+    double p99 = percentile(latencies, n, 0.99);
+    double p999 = percentile(latencies, n, 0.999);
+    double max = n == 0 ? 0 : latencies[n - 1] / 1000.0;
+    long errors = connectErrors.get() + sendErrors.get()
+      + connectionErrors.get();
+
+    if (csv)
+    {
+      System.out.println("clients,rate,duration,sent,echoed,received,"
+        + "sent_per_s,received_per_s,p50_ms,p99_ms,p999_ms,max_ms,"
+        + "connect_errors,send_errors,connection_errors");
+      System.out.printf(Locale.ROOT,
+        "%d,%.2f,%.1f,%d,%d,%d,%.1f,%.1f,%.3f,%.3f,%.3f,%.3f,%d,%d,%d%n",
+        clients, rate, elapsed, sent, echoed, received, sent / elapsed,
+        received / elapsed, p50, p99, p999, max, connectErrors.get(),
+        sendErrors.get(), connectionErrors.get());
+      return;
+    }
+
+    System.out.println("Sessions:   " + sessions.size() + " of " + clients
+      + " at " + rate + " msg/s for " + duration + " s");
+    System.out.printf(Locale.ROOT, "Sent:       %d (%.1f msg/s)%n",
+      sent, sent / elapsed);
+    System.out.printf(Locale.ROOT,
+      "Received:   %d (%.1f msg/s), %d of them echoes%n",
+      received, received / elapsed, echoed);
+    System.out.printf(Locale.ROOT,
+      "Latency:    p50 %.3f ms, p99 %.3f ms, p999 %.3f ms, max %.3f ms%n",
+      p50, p99, p999, max);
+    System.out.println("Errors:     " + errors + " (connect "
+      + connectErrors.get() + ", send " + sendErrors.get()
+      + ", connection " + connectionErrors.get() + ")");
+  }
+
+  /**
+   * Returns a percentile of sorted latencies, in milliseconds.
+   */
+  private static double percentile(long[] sorted, int n, double fraction)
+  {
+    if (n == 0)
+      return 0;
+
+    int index = (int)Math.ceil(fraction * n) - 1;
+    return sorted[Math.max(0, Math.min(n - 1, index))] / 1000.0;
+  }
+
+  /**
+   * Starts the load generator.
+   */
+  public static void main(String[] arg) throws InterruptedException
+  {
+    new LoadGenerator(arg).run();
+    System.exit(0);
+  }
+
+  /**
+   * A simulated chat session.
+   */
+  private class LoadClient extends AbstractClient
+  {
+    private final String logInID;
+    private final String padding;
+
+    /**
+     * The prefix of the messages of this session, as broadcast by
+     * the server.
+     */
+    private final String echoPrefix;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong echoed = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final LatencyList latencies = new LatencyList();
+
+    private volatile boolean stopping = false;
+
+    LoadClient(String logInID, String padding)
+    {
+      super(host, port);
+      this.logInID = logInID;
+      this.padding = padding;
+      this.echoPrefix = logInID + " > load ";
+    }
+
+    /**
+     * Sends the next message, stamped with the time it is sent.
+     * Called by the timer.
+     */
+    void sendNext()
+    {
+      if (stopping || !measuring)
+        return;
+
+      try
+      {
+        sendToServer("load " + System.nanoTime() + " " + padding);
+        sent.incrementAndGet();
+      }
+      catch (IOException ex)
+      {
+        sendErrors.incrementAndGet();
+      }
+    }
+
+    void stop()
+    {
+      stopping = true;
+      try
+      {
+        closeConnection();
+      }
+      catch (IOException ex) { }
+    }
+
+    protected void handleMessageFromServer(Object msg)
+    {
+      if (!measuring)
+        return;
+
+      received.incrementAndGet();
+
+      String message = msg.toString();
+      if (!message.startsWith(echoPrefix))
+        return;
+
+      int end = message.indexOf(' ', echoPrefix.length());
+      if (end < 0)
+        return;
+
+      try
+      {
+        long sentAt = Long.parseLong(message.substring(echoPrefix.length(), end));
+        latencies.add((System.nanoTime() - sentAt) / 1000); // in microseconds
+        echoed.incrementAndGet();
+      }
+      catch (NumberFormatException ex) { }
+    }
+
+    protected void connectionException(Exception exception)
+    {
+      if (!stopping)
+        connectionErrors.incrementAndGet();
+    }
+  }
+
+  /**
+   * The latencies measured by a session. Written by the thread of the
+   * session and read once the measure is over.
+   */
+  private static class LatencyList
+  {
+    private long[] values = new long[256];
+    private int size = 0;
+
+    synchronized void add(long value)
+    {
+      if (size == values.length)
+        values = Arrays.copyOf(values, size * 2);
+      values[size++] = value;
+    }
+
+    synchronized int size()
+    {
+      return size;
+    }
+
+    synchronized int copyTo(long[] target, int offset)
+    {
+      int count = Math.min(size, target.length - offset);
+      System.arraycopy(values, 0, target, offset, count);
+      return offset + count;
+    }
+  }
+}
@@ -33,6 +33,12 @@ public class ClientConsole implements ChatIF {
      */
     ChatClient client;
 
+    /**
+     * The commands that can be typed on the console.
+     */
+    private final CommandRegistry<ClientConsole> commands =
+            new CommandRegistry<ClientConsole>();
+
     //Constructors ****************************************************
 
     /**
@@ -42,6 +48,19 @@ public class ClientConsole implements ChatIF {
      * @param port The port to connect on.
      */
     public ClientConsole(String logInID, String host, int port) {
+        commands.register("quit", "#quit: Client terminates.", ClientConsole::quit);
+        commands.register("logoff", "#logoff: Connection to server terminates.", ClientConsole::logOff);
+        commands.register("sethost", "#sethost <host>: Set a new host name.", ClientConsole::setHost);
+        commands.register("setport", "#setport <port>: Set a new port address.", ClientConsole::setPort);
+        commands.register("login", "#login: Connect to server.", ClientConsole::logIn);
+        commands.register("gethost", "#gethost: Returns host name.", ClientConsole::getHost);
+        commands.register("getport", "#getport: Returns port address.", ClientConsole::getPort);
+        commands.register("msg", "#msg <user> <message>: Send a private message.", ClientConsole::forwardToServer);
+        commands.register("join", "#join <room>: Move to a chat room.", ClientConsole::joinRoom);
+        commands.register("leave", "#leave: Move back to the default room.", ClientConsole::leaveRoom);
+        commands.register("rooms", "#rooms: List the chat rooms.", ClientConsole::listRooms);
+        commands.register("history", "#history [count]: Show the last messages of the room.", ClientConsole::forwardToServer);
+        commands.register("help", null, ClientConsole::help);
         try {
             client = new ChatClient(logInID, host, port, this);
             client.connectClient(); //separated the client connection to server so that a client can be created without a server running
@@ -57,6 +76,16 @@ public class ClientConsole implements ChatIF {
 
     //Instance methods ************************************************
 
+    /**
+     * Returns the commands that can be typed on the console. New
+     * commands can be registered with it.
+     *
+     * @return the command registry.
+     */
+    public CommandRegistry<ClientConsole> getCommands() {
+        return commands;
+    }
+
     /**
      * This method waits for input from the console.  Once it is
      * received, it sends it to the client's message handler.
@@ -70,66 +99,9 @@ public class ClientConsole implements ChatIF {
                 message = fromConsole.readLine();
                 if (!message.startsWith("#")) { //if message doesn't start with # it deals with it as a object to display
                     client.handleMessageFromClientUI(message);
-                } else {
-                    message = message.substring(1); //removes the # from the string
-                    if (message.equals("quit")) {
-                        client.quit();
-                    } else if (message.equals("logoff")) {
-                        client.logOff();
-                    } else if (message.startsWith("setport ")) {
-                        if (client.isConnected()) {
-                            System.out.println("Please Log-off first.");
-                        } else {
-                            try {
-                                message = message.substring(8); //keeps only the value of the new port
-                                client.setPort(Integer.parseInt(message));
-                                System.out.println("New port: " +client.getPort());
-                            } catch (NumberFormatException e) {
-                                System.out.println("Invalid input. Using default port");
-                                client.setPort(DEFAULT_PORT);
-                            }
-                        }
-                    } else if (message.startsWith("sethost ")) {
-                        if (client.isConnected()) {
-                            System.out.println("Please Log-off first.");
-                        } else {
-                            client.setHost(message.substring(8)); //keeps only the value of the new host
-                            System.out.println("New host: " + client.getHost());
-                        }
-                    } else if (message.equals("login")) {
-                        if (client.isConnected()) {
-                            System.out.println("Client already connected.");
-
-                        } else {
-                            try {
-                                client.openConnection();
-                                System.out.println("Connection established.");
-                                client.sendToServer("#login " + client.getLogInID()); //re-sends a log in attempt, this counts as a new connection
-                            } catch (Exception e) { //if values given do not connect to server, the client will try to connect by using default data
-                                System.out.println("Unable to connect to port " + client.getPort() + " and host " + client.getHost() + ". Connecting to default port " + DEFAULT_PORT + " and default host localhost");
-                                client.setPort(DEFAULT_PORT);
-                                client.setHost("localhost");
-                                client.openConnection();
-                                client.sendToServer("#login " + client.getLogInID());
-                            }
-                        }
-                    } else if (message.equals("gethost")) {
-                        System.out.println("The current host name is: " + client.getHost());
-                    } else if (message.equals("getport")) {
-                        System.out.println("The current port is: " + client.getPort());
-                    } else if (message.equals("help")) {
-                        System.out.println("#quit: Client terminates.");
-                        System.out.println("#logoff: Connection to server terminates.");
-                        System.out.println("#sethost <host>: Set a new host name.");
-                        System.out.println("#setport <port>: Set a new port address.");
-                        System.out.println("#login: Connect to server.");
-                        System.out.println("#gethost: Returns host name.");
-                        System.out.println("#getport: Returns port address.");
-                    } else {
-                        System.out.println("Unrecognized command. For help type #help");
-                    }
+                } else if (!commands.dispatch(this, message)) {
+                    System.out.println("Unrecognized command. For help type #help");
                 }
-
             }
         } catch (
                 Exception ex) {
@@ -140,6 +112,85 @@ public class ClientConsole implements ChatIF {
     }
 
 
+    private void quit(String command, int argument) {
+        client.quit();
+    }
+
+    private void logOff(String command, int argument) {
+        client.logOff();
+    }
+
+    private void setPort(String command, int argument) {
+        if (client.isConnected()) {
+            System.out.println("Please Log-off first.");
+        } else {
+            try {
+                client.setPort(Integer.parseInt(command.substring(argument))); //keeps only the value of the new port
+                System.out.println("New port: " + client.getPort());
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input. Using default port");
+                client.setPort(DEFAULT_PORT);
+            }
+        }
+    }
+
+    private void setHost(String command, int argument) {
+        if (client.isConnected()) {
+            System.out.println("Please Log-off first.");
+        } else {
+            client.setHost(command.substring(argument)); //keeps only the value of the new host
+            System.out.println("New host: " + client.getHost());
+        }
+    }
+
+    private void logIn(String command, int argument) throws IOException {
+        if (client.isConnected()) {
+            System.out.println("Client already connected.");
+        } else {
+            try {
+                client.openConnection();
+                System.out.println("Connection established.");
+                client.sendToServer("#login " + client.getLogInID()); //re-sends a log in attempt, this counts as a new connection
+            } catch (Exception e) { //if values given do not connect to server, the client will try to connect by using default data
+                System.out.println("Unable to connect to port " + client.getPort() + " and host " + client.getHost() + ". Connecting to default port " + DEFAULT_PORT + " and default host localhost");
+                client.setPort(DEFAULT_PORT);
+                client.setHost("localhost");
+                client.openConnection();
+                client.sendToServer("#login " + client.getLogInID());
+            }
+        }
+    }
+
+    private void getHost(String command, int argument) {
+        System.out.println("The current host name is: " + client.getHost());
+    }
+
+    private void getPort(String command, int argument) {
+        System.out.println("The current port is: " + client.getPort());
+    }
+
+    private void forwardToServer(String command, int argument) {
+        client.handleMessageFromClientUI(command); //private messages and history are handled by the server
+    }
+
+    private void joinRoom(String command, int argument) {
+        client.joinRoom(command.substring(argument));
+    }
+
+    private void leaveRoom(String command, int argument) {
+        client.leaveRoom();
+    }
+
+    private void listRooms(String command, int argument) {
+        client.listRooms();
+    }
+
+    private void help(String command, int argument) {
+        for (String line : commands.getUsage()) {
+            System.out.println(line);
+        }
+    }
+
     /**
      * This method overrides the method in the ChatIF interface.  It
      * displays a message onto the screen. It also deals with the disconnect
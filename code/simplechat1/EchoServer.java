@@ -4,9 +4,17 @@
 
 import java.io.*;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import common.ChatIF;
+import common.CommandRegistry;
 import ocsf.server.*;
+import server.AsyncLogger;
+import server.ChatJournal;
+import server.MailboxStore;
+import server.RoomDirectory;
+import server.SessionDirectory;
 
 /**
  * This class overrides some of the methods in the abstract
@@ -25,12 +33,78 @@ public class EchoServer extends AbstractServer{
      * The default port to listen on.
      */
     final public static int DEFAULT_PORT = 5555;
+
+    /**
+     * The control message sent to a client before its connection is
+     * closed on purpose, so that it does not try to reconnect.
+     */
+    final public static String TERMINATE_COMMAND = "#terminate";
+
+    /**
+     * The login ID of a client, saved in its connection.
+     */
+    final public static AttributeKey<String> LOGIN_ID =
+            AttributeKey.create("logInID", String.class);
+
+    /**
+     * The directory where the history of the rooms is kept.
+     */
+    final public static String HISTORY_DIRECTORY = "history";
+
+    /**
+     * The directory where the messages to users not logged on are kept
+     * when there are too many to keep in memory.
+     */
+    final public static String MAILBOX_DIRECTORY = "mailboxes";
+
+    /**
+     * The number of messages of its room shown to a client that logs on.
+     */
+    final public static int REPLAY_COUNT = 20;
+
+    /**
+     * The most messages a client can ask for with #history.
+     */
+    final public static int MAX_REPLAY_COUNT = 1000;
     //Instance variables *************************************************
 
     /**
      * The default port to listen on.
      */
     Arrays clients;
+
+    /**
+     * The clients logged on, by login ID.
+     */
+    private final SessionDirectory sessions = new SessionDirectory();
+
+    /**
+     * The chat rooms and their members.
+     */
+    private final RoomDirectory rooms = new RoomDirectory();
+
+    /**
+     * The commands the clients can send.
+     */
+    private final CommandRegistry<ConnectionToClient> commands =
+            new CommandRegistry<ConnectionToClient>();
+
+    /**
+     * The log of the server. The messages received are logged at level
+     * DEBUG, the connections and disconnections at level INFO.
+     */
+    private final AsyncLogger log = new AsyncLogger();
+
+    /**
+     * The history of the rooms, or null if it could not be opened.
+     */
+    private final ChatJournal journal;
+
+    /**
+     * The private messages to users not logged on, or null if they
+     * cannot be kept.
+     */
+    private final MailboxStore mailboxes;
     //Constructors ****************************************************
 
     /**
@@ -40,11 +114,104 @@ public class EchoServer extends AbstractServer{
      */
     public EchoServer(int port) {
         super(port);
+        journal = openJournal();
+        mailboxes = openMailboxes();
+        commands.register("login", "#login <loginID>: Log on to the server.", this::logIn);
+        commands.register("msg", "#msg <user> <message>: Send a private message.", this::sendPrivateMessage);
+        commands.register("join", "#join <room>: Move to a chat room.", this::joinRoom);
+        commands.register("leave", "#leave: Move back to the default room.", this::leaveRoom);
+        commands.register("rooms", "#rooms: List the chat rooms.", this::listRooms);
+        commands.register("history", "#history [count]: Show the last messages of the room.", this::showHistory);
     }
 
 
     //Instance methods ************************************************
 
+    /**
+     * Returns the directory of the clients logged on.
+     *
+     * @return the session directory.
+     */
+    public SessionDirectory getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Returns the chat rooms.
+     *
+     * @return the room directory.
+     */
+    public RoomDirectory getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Returns the commands the clients can send. New commands can be
+     * registered with it.
+     *
+     * @return the command registry.
+     */
+    public CommandRegistry<ConnectionToClient> getCommands() {
+        return commands;
+    }
+
+    /**
+     * Returns the history of the rooms.
+     *
+     * @return the journal, or null if it could not be opened.
+     */
+    public ChatJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Opens the history of the rooms.
+     *
+     * @return the journal, or null if it cannot be opened, in which case
+     *         the server runs without history.
+     */
+    private ChatJournal openJournal() {
+        try {
+            return new ChatJournal(new File(HISTORY_DIRECTORY));
+        } catch (IOException | RuntimeException e) {
+            log.warning("Chat history disabled: {}", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the private messages to users not logged on.
+     *
+     * @return the mailboxes, or null if they could not be created.
+     */
+    public MailboxStore getMailboxes() {
+        return mailboxes;
+    }
+
+    /**
+     * Creates the mailboxes of the users not logged on.
+     *
+     * @return the mailboxes, or null if they cannot be created, in which
+     *         case private messages to users not logged on are refused.
+     */
+    private MailboxStore openMailboxes() {
+        try {
+            return new MailboxStore(new File(MAILBOX_DIRECTORY));
+        } catch (IOException | RuntimeException e) {
+            log.warning("Offline messages disabled: {}", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the log of the server.
+     *
+     * @return the logger.
+     */
+    public AsyncLogger getLog() {
+        return log;
+    }
+
     /**
      * The void speaketh
      */
@@ -63,40 +230,282 @@ public class EchoServer extends AbstractServer{
 
     /**
      * This method handles any messages received from the client.
+     * Commands are handled by the command registry; any other message
+     * is sent to the room of the client.
      *
      * @param msg    The message received from the client.
      * @param client The connection from which the message originated.
      */
     public void handleMessageFromClient(Object msg, ConnectionToClient client) {
-        String message;
-        message = msg.toString();
-        if (message.startsWith("#login ")) {
-            if (client.getInfo("logInID") == null) {
-                String logInID = message.substring(7);
-                System.out.println("Message received: " + message + " from " + client.getInfo("logInID"));
-                client.setInfo("logInID", logInID);
-                System.out.println(client.getInfo("logInID") + " has logged on");
-                sendToAllClients(client.getInfo("logInID") + " has logged on");
-            } else {
-                try {
-                    client.sendToClient("You are already logged in.");
-                } catch (Exception e) {
-                }
+        String message = msg.toString();
+        try {
+            if (commands.dispatch(client, message)) {
+                return;
+            }
+            String logInID = requireLogIn(client);
+            if (logInID == null) {
+                return;
             }
+            log.debug("Message received: {} from {} with log-in ID {}", message, client.getInetAddress(), logInID); //the connection may be closed when the event is written
+
+            String room = rooms.getRoom(client);
+            String line = logInID + " > " + message;
+            rooms.sendToRoom(room, line); //only the members of the room receive it
+            if (journal != null) {
+                journal.append(room, line);
+            }
+        } catch (IOException e) {
+            // The client disconnected in the meantime
+        }
+    }
+
+    /**
+     * Returns the login ID of a client. A client that has not logged on
+     * is told so and disconnected.
+     *
+     * @param client The connection of the client.
+     * @return the login ID, or null if the client has not logged on.
+     */
+    private String requireLogIn(ConnectionToClient client) throws IOException {
+        String logInID = client.getAttribute(LOGIN_ID);
+        if (logInID == null) {
+            terminate(client, "No log-in ID detected. Terminating client.");
+        }
+        return logInID;
+    }
+
+    /**
+     * Tells a client why it is terminated, then sends it the control
+     * message that stops it from reconnecting and closes its connection.
+     *
+     * @param client The connection of the client.
+     * @param reason The message shown to the client.
+     */
+    private void terminate(ConnectionToClient client, String reason) throws IOException {
+        client.sendToClient(reason);
+        client.sendToClient(TERMINATE_COMMAND);
+        client.close();
+    }
+
+    /**
+     * This method handles the #login command, which registers the login
+     * ID of a client and puts it in the default room.
+     *
+     * @param client   The connection of the client.
+     * @param command  The command.
+     * @param argument The position of the login ID in the command.
+     */
+    private void logIn(ConnectionToClient client, String command, int argument) throws IOException {
+        String logInID = command.substring(argument);
+        if (logInID.isEmpty()) {
+            client.sendToClient("Usage: #login <loginID>");
+        } else if (client.setAttributeIfAbsent(LOGIN_ID, logInID) != null) {
+            client.sendToClient("You are already logged in.");
+        } else if (!sessions.logIn(logInID, client)) {
+            client.setAttribute(LOGIN_ID, null); //never logged on, so no disconnection notice
+            terminate(client, "Login ID " + logInID + " is already in use. Terminating client.");
         } else {
-            if (client.getInfo("logInID") == null) {
-                try {
-                    client.sendToClient("No log-in ID detected. Terminating client.");
-                    client.close();
-                } catch (Exception e) {
-                }
+            rooms.join(client, RoomDirectory.DEFAULT_ROOM);
+            log.debug("Message received: {} from {}", command, logInID);
+            log.info("{} has logged on", logInID);
+            sendToAllClients(logInID + " has logged on");
+            replayHistory(client, RoomDirectory.DEFAULT_ROOM, REPLAY_COUNT);
+            if (mailboxes != null && mailboxes.open(logInID, client)) {
+                mailboxes.deliver(logInID, client); //in the background, in batches
+            } else if (mailboxes != null) {
+                client.sendToClient("The server cannot keep messages for you while you are offline.");
+            }
+        }
+    }
+
+    /**
+     * This method handles the #history command, which shows the last
+     * messages of the room of the client.
+     *
+     * @param client   The connection of the client.
+     * @param command  The command.
+     * @param argument The position of the number of messages in the
+     *                 command, if any.
+     */
+    private void showHistory(ConnectionToClient client, String command, int argument) throws IOException {
+        if (requireLogIn(client) == null) {
+            return;
+        }
+        int count = REPLAY_COUNT;
+        if (argument < command.length()) {
+            try {
+                count = Math.min(MAX_REPLAY_COUNT, Integer.parseInt(command.substring(argument).trim()));
+            } catch (NumberFormatException e) {
+                client.sendToClient("Usage: #history [count]");
                 return;
             }
-            String logInID = String.valueOf(client.getInfo("logInID"));
-            //message = message.substring(4); //need to automatically detect size, not just 4
-            System.out.println("Message received: " + message + " from " + client + " with log-in ID " + logInID);
+        }
+        if (journal == null) {
+            client.sendToClient("No history is kept.");
+            return;
+        }
+        if (!replayHistory(client, rooms.getRoom(client), count)) {
+            client.sendToClient("No messages in this room.");
+        }
+    }
 
-            this.sendToAllClients(logInID + " > " + message);
+    /**
+     * This method sends the last messages of a room to a client. They
+     * are read from the journal and sent from the thread of the client.
+     *
+     * @param client The connection of the client.
+     * @param room   The room.
+     * @param count  The maximum number of messages.
+     * @return true if there were messages to send.
+     */
+    private boolean replayHistory(ConnectionToClient client, String room, int count) throws IOException {
+        if (journal == null || count <= 0) {
+            return false;
+        }
+        List<String> messages = journal.lastMessages(room, count);
+        if (messages.isEmpty()) {
+            return false;
+        }
+        client.sendToClient("Last messages in room " + room + ":");
+        for (String message : messages) {
+            client.sendToClient(message);
+        }
+        return true;
+    }
+
+    /**
+     * This method handles the #rooms command, which lists the rooms and
+     * the number of their members.
+     *
+     * @param client   The connection of the client.
+     * @param command  The command.
+     * @param argument The position of the argument in the command.
+     */
+    private void listRooms(ConnectionToClient client, String command, int argument) throws IOException {
+        if (requireLogIn(client) == null) {
+            return;
+        }
+        StringBuilder list = new StringBuilder("Rooms:");
+        for (Map.Entry<String, Integer> room : rooms.getRooms().entrySet()) {
+            list.append(' ').append(room.getKey()).append(" (").append(room.getValue()).append(')');
+        }
+        client.sendToClient(list.toString());
+    }
+
+    /**
+     * This method handles the #join command, which moves the client to
+     * a room.
+     *
+     * @param client   The connection of the client.
+     * @param command  The command.
+     * @param argument The position of the name of the room in the command.
+     */
+    private void joinRoom(ConnectionToClient client, String command, int argument) throws IOException {
+        String logInID = requireLogIn(client);
+        if (logInID == null) {
+            return;
+        }
+        String room = command.substring(argument).trim();
+        if (!RoomDirectory.isValidName(room)) {
+            client.sendToClient("Invalid room name: " + room);
+            return;
+        }
+        moveToRoom(client, logInID, room);
+    }
+
+    /**
+     * This method handles the #leave command, which moves the client
+     * back to the default room.
+     *
+     * @param client   The connection of the client.
+     * @param command  The command.
+     * @param argument The position of the argument in the command.
+     */
+    private void leaveRoom(ConnectionToClient client, String command, int argument) throws IOException {
+        String logInID = requireLogIn(client);
+        if (logInID == null) {
+            return;
+        }
+        if (RoomDirectory.DEFAULT_ROOM.equals(rooms.getRoom(client))) {
+            client.sendToClient("You are already in the default room.");
+            return;
+        }
+        moveToRoom(client, logInID, RoomDirectory.DEFAULT_ROOM);
+    }
+
+    /**
+     * This method moves a client to a room. The members of the rooms
+     * left and joined are told about the move.
+     *
+     * @param client  The connection of the client.
+     * @param logInID The login ID of the client.
+     * @param room    The room joined.
+     */
+    private void moveToRoom(ConnectionToClient client, String logInID, String room) throws IOException {
+        String previous = rooms.join(client, room);
+        if (room.equals(previous)) {
+            client.sendToClient("You are already in room " + room + ".");
+            return;
+        }
+        if (previous != null) {
+            rooms.sendToRoom(previous, logInID + " has left the room");
+        }
+        rooms.sendToRoom(room, logInID + " has joined room " + room);
+    }
+
+    /**
+     * This method handles the #msg command, which delivers a private
+     * message to a single client, found through the session directory,
+     * instead of broadcasting it.
+     *
+     * @param client   The connection of the sender.
+     * @param command  The command.
+     * @param argument The position of the recipient in the command,
+     *                 followed by the text of the message.
+     */
+    private void sendPrivateMessage(ConnectionToClient client, String command, int argument) throws IOException {
+        String logInID = requireLogIn(client);
+        if (logInID == null) {
+            return;
+        }
+        int space = command.indexOf(' ', argument);
+        if (space <= argument) {
+            client.sendToClient("Usage: #msg <user> <message>");
+            return;
+        }
+        String recipientID = command.substring(argument, space);
+        String message = logInID + " (private) > " + command.substring(space + 1);
+        ConnectionToClient recipient = sessions.lookUp(recipientID);
+        if (recipient != null) {
+            try {
+                recipient.sendToClient(message);
+                return;
+            } catch (IOException e) {
+                // The recipient disconnected in the meantime
+            }
+        }
+        leaveMessage(client, recipientID, message);
+    }
+
+    /**
+     * This method keeps a private message for a user who is not logged
+     * on, if the user is known to the server.
+     *
+     * @param client      The connection of the sender.
+     * @param recipientID The login ID of the recipient.
+     * @param message     The message.
+     */
+    private void leaveMessage(ConnectionToClient client, String recipientID, String message) throws IOException {
+        if (mailboxes == null || !mailboxes.isKnown(recipientID)) {
+            client.sendToClient("User " + recipientID + " is not logged on.");
+        } else if (!mailboxes.deposit(recipientID, message)) {
+            client.sendToClient("The mailbox of " + recipientID + " is full.");
+        } else {
+            client.sendToClient("User " + recipientID + " is not logged on. The message will be delivered when they log on.");
+            ConnectionToClient recipient = sessions.lookUp(recipientID);
+            if (recipient != null) {
+                mailboxes.deliver(recipientID, recipient); //the recipient logged on meanwhile
+            }
         }
     }
 
@@ -106,7 +515,7 @@ public class EchoServer extends AbstractServer{
      * @param client the connection connected to the client.
      */
     protected void clientConnected(ConnectionToClient client) {
-        System.out.println("A new client is attempting to connect to the server.");
+        log.info("A new client is attempting to connect to the server.");
     }
 
     /**
@@ -117,8 +526,14 @@ public class EchoServer extends AbstractServer{
      */
     synchronized protected void clientDisconnected(
             ConnectionToClient client) {
-        System.out.println(client.getInfo("logInID") + " has disconnected");
-        this.sendToAllClients(client.getInfo("logInID") + " has disconnected");
+        String logInID = client.getAttribute(LOGIN_ID);
+        if (logInID == null) {
+            return; //the client never logged on, e.g. its login ID was in use
+        }
+        sessions.logOff(logInID, client);
+        rooms.remove(client);
+        log.info("{} has disconnected", logInID);
+        this.sendToAllClients(logInID + " has disconnected");
     }
 
     /**
@@ -137,8 +552,7 @@ public class EchoServer extends AbstractServer{
      * when the server starts listening for connections.
      */
     protected void serverStarted() {
-        System.out.println
-                ("Server listening for connections on port " + getPort());
+        log.info("Server listening for connections on port {}", getPort());
     }
 
     /**
@@ -146,8 +560,7 @@ public class EchoServer extends AbstractServer{
      * when the server stops listening for connections.
      */
     protected void serverStopped() {
-        System.out.println
-                ("Server has stopped listening for connections.");
+        log.info("Server has stopped listening for connections.");
     }
 
     //Class methods ***************************************************
@@ -19,6 +19,31 @@ import java.io.*;
  * @version July 2000
  */
 public class ChatClient extends AbstractClient {
+    //Class variables *************************************************
+
+    /**
+     * The bound of the delay before the first attempt to reconnect, in
+     * milliseconds.
+     */
+    final public static long RECONNECT_INITIAL_DELAY = 500;
+
+    /**
+     * The largest bound of the delay between two attempts to reconnect,
+     * in milliseconds.
+     */
+    final public static long RECONNECT_MAX_DELAY = 30000;
+
+    /**
+     * The number of attempts to reconnect before giving up.
+     */
+    final public static int RECONNECT_ATTEMPTS = 20;
+
+    /**
+     * The control message the server sends before closing the connection
+     * on purpose. It is never shown to the user.
+     */
+    final public static String TERMINATE_COMMAND = "#terminate";
+
     //Instance variables **********************************************
 
     /**
@@ -28,6 +53,12 @@ public class ChatClient extends AbstractClient {
     ChatIF clientUI;
     String logInID;
 
+    /**
+     * The reconnect policy, turned off while the server has terminated
+     * the client.
+     */
+    ReconnectPolicy reconnectPolicy;
+
     //Constructors ****************************************************
 
     /**
@@ -43,6 +74,8 @@ public class ChatClient extends AbstractClient {
         super(host, port); //Call the superclass constructor
         this.clientUI = clientUI;
         this.logInID = logInID;
+        this.reconnectPolicy = new ReconnectPolicy(RECONNECT_INITIAL_DELAY, RECONNECT_MAX_DELAY, RECONNECT_ATTEMPTS);
+        setReconnectPolicy(reconnectPolicy);
     }
 
 
@@ -54,6 +87,10 @@ public class ChatClient extends AbstractClient {
      * @param msg The message from the server.
      */
     public void handleMessageFromServer(Object msg) {
+        if (TERMINATE_COMMAND.equals(msg)) {
+            setReconnectPolicy(null); //logging in again would be refused again
+            return;
+        }
         clientUI.display(msg.toString());
     }
 
@@ -69,10 +106,37 @@ public class ChatClient extends AbstractClient {
         } catch (IOException e) {
             clientUI.display
                     ("Could not send message to server.");
-            quit();
+            if (!isReconnecting()) {
+                quit();
+            }
         }
     }
 
+    /**
+     * This method asks the server to move this client to a chat room.
+     * Chat lines are then only exchanged with the members of that room.
+     *
+     * @param room The name of the room.
+     */
+    public void joinRoom(String room) {
+        handleMessageFromClientUI("#join " + room);
+    }
+
+    /**
+     * This method asks the server to move this client back to the
+     * default room.
+     */
+    public void leaveRoom() {
+        handleMessageFromClientUI("#leave");
+    }
+
+    /**
+     * This method asks the server for the list of the chat rooms.
+     */
+    public void listRooms() {
+        handleMessageFromClientUI("#rooms");
+    }
+
     /**
      * This method terminates the client.
      */
@@ -118,12 +182,45 @@ public class ChatClient extends AbstractClient {
     }
 
     /**
-     * this method displays a  message when the server shuts down unexpectedly and terminates the client
+     * This method restores the reconnect policy, in case the server had
+     * terminated the previous connection.
+     */
+    protected void connectionEstablished() {
+        setReconnectPolicy(reconnectPolicy);
+    }
+
+    /**
+     * this method displays a message when the server shuts down unexpectedly.
+     * The client then tries to reconnect, following its reconnect policy,
+     * unless the server has terminated it.
      * @param e
      */
     public void connectionException(Exception e) {
-        clientUI.display("Server has shut down.");
-        quit(); //can be modified to disconnect instead of quiting by switching quit() with logOff()
+        if (getReconnectPolicy() == null) {
+            clientUI.display("Disconnected by the server.  Awaiting command.");
+        } else {
+            clientUI.display("Server has shut down. Reconnecting...");
+        }
+    }
+
+    /**
+     * This method logs in again once the connection to the server is back.
+     */
+    protected void connectionReestablished() {
+        try {
+            sendToServer("#login " + logInID);
+            clientUI.display("Reconnected to the server.");
+        } catch (IOException e) {
+            //the connection was lost again; another reconnection follows
+        }
+    }
+
+    /**
+     * This method displays a message when the client gives up reconnecting.
+     * The user can still log in again by hand.
+     */
+    protected void reconnectFailed(int attempts, Exception e) {
+        clientUI.display("Could not reconnect to the server after " + attempts + " attempts.  Awaiting command.");
     }
 
     /**
@@ -0,0 +1,178 @@
+// This file contains material supporting section 3.7 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package common;
+
+import java.lang.management.*;
+import java.util.*;
+
+/**
+ * This class measures the cost of recognizing the command of a line,
+ * before and after the introduction of the <code>CommandRegistry</code>.
+ * <p>
+ * "Before" is the way the server and the consoles used to parse their
+ * input: a chain of <code>startsWith</code> and <code>equals</code>
+ * tests, with a <code>substring</code> to remove the prefix and another
+ * to extract the argument. "After" is a dispatch through the registry,
+ * which hands the position of the argument to the command instead.
+ * In both cases the command only reads the length of its argument, so
+ * that only the parsing is measured.
+ * <p>
+ * Type <code>java common.CommandParseBenchmark [iterations]</code> to
+ * run it. For each line, it prints the time and the memory allocated
+ * per line parsed.
+ *
+ * @author Dr Timothy C. Lethbridge
+ * @author Dr Robert Lagani&egrave;re
+ * @version October 2026
+ */
+public class CommandParseBenchmark {
+    //Class variables *************************************************
+
+    /**
+     * The lines parsed: what the server receives from the clients,
+     * then what is typed on the server console.
+     */
+    private static final String[] LINES = {
+        "hello everyone, how is it going?",
+        "#login user42",
+        "#msg bob are you there?",
+        "#join lobby",
+        "#rooms",
+        "#leave",
+        "#getport",
+        "#help",
+        "#unknown",
+    };
+
+    /**
+     * Keeps the results, so that the parsing is not optimized away.
+     */
+    private static long sink;
+
+    //Instance variables **********************************************
+
+    private final CommandRegistry<Object> registry = new CommandRegistry<Object>();
+
+    //Constructors ****************************************************
+
+    private CommandParseBenchmark() {
+        String[] names = {"login", "msg", "join", "leave", "rooms",
+            "quit", "stop", "start", "close", "setport", "getport", "help"};
+        for (String name : names) {
+            registry.register(name, null, (context, line, argument) -> sink += line.length() - argument);
+        }
+    }
+
+    //Instance methods ************************************************
+
+    /**
+     * Parses a line the way the server, then the server console, did
+     * before the registry.
+     */
+    private static void before(String message) {
+        if (message.startsWith("#login ")) {
+            sink += message.substring(7).length();
+        } else if (message.startsWith("#msg ")) {
+            sink += message.substring(5).length();
+        } else if (message.startsWith("#join ")) {
+            sink += message.substring(6).trim().length();
+        } else if (message.equals("#leave") || message.equals("#rooms")) {
+            sink++;
+        } else if (message.startsWith("#")) {
+            message = message.substring(1);
+            if (message.equals("quit") || message.equals("stop")
+                    || message.equals("close") || message.equals("start")) {
+                sink++;
+            } else if (message.startsWith("setport ")) {
+                sink += message.substring(8).length();
+            } else if (message.equals("getport") || message.equals("help")) {
+                sink++;
+            } else {
+                sink--;
+            }
+        } else {
+            sink--;
+        }
+    }
+
+    /**
+     * Parses a line with the registry.
+     */
+    private void after(String message) {
+        try {
+            if (!registry.dispatch(null, message)) {
+                sink--;
+            }
+        } catch (java.io.IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private void run(int iterations) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations =
+                threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+
+        // Warm up both versions on all the lines
+        for (String line : LINES) {
+            measure(line, true, iterations, null);
+            measure(line, false, iterations, null);
+        }
+
+        System.out.printf(Locale.ROOT, "%-34s %12s %12s %12s %12s%n", "line",
+                "before ns", "after ns", "before B", "after B");
+        for (String line : LINES) {
+            double[] before = measure(line, true, iterations, allocations);
+            double[] after = measure(line, false, iterations, allocations);
+            System.out.printf(Locale.ROOT, "%-34s %12.1f %12.1f %12.1f %12.1f%n",
+                    '"' + line + '"', before[0], after[0], before[1], after[1]);
+        }
+    }
+
+    /**
+     * Parses a line repeatedly.
+     *
+     * @return the time, in nanoseconds, and the bytes allocated per line.
+     */
+    private double[] measure(String line, boolean before, int iterations,
+            com.sun.management.ThreadMXBean allocations) {
+        long thread = Thread.currentThread().getId();
+        long bytes = allocations == null ? 0 : allocations.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        if (before) {
+            for (int i = 0; i < iterations; i++) {
+                before(line);
+            }
+        } else {
+            for (int i = 0; i < iterations; i++) {
+                after(line);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (allocations != null) {
+            bytes = allocations.getThreadAllocatedBytes(thread) - bytes;
+        }
+        return new double[] {(double) elapsed / iterations, (double) bytes / iterations};
+    }
+
+    //Class methods ***************************************************
+
+    /**
+     * This method runs the benchmark.
+     *
+     * @param args[0] The number of times each line is parsed. Defaults
+     *                to 5000000.
+     */
+    @SuppressWarnings("JavadocReference")
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        new CommandParseBenchmark().run(iterations);
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+}
+//End of CommandParseBenchmark class
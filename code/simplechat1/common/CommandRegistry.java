@@ -0,0 +1,208 @@
+// This file contains material supporting section 3.7 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package common;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class dispatches the commands typed by the users, such as
+ * <code>#login bob</code> or <code>#setport 5556</code>, to the code
+ * that handles them. It is used by the server, the server console and
+ * the client console, and lets new commands be added without touching
+ * their dispatch code.
+ * <p>
+ * The names of the commands are kept in a trie. A line is matched one
+ * character at a time, directly in the string, so that the command is
+ * found in a single pass and without creating any string. The command
+ * receives the whole line and the position of its argument, and only
+ * extracts the argument if it needs it.
+ * <p>
+ * Commands can be registered at any time, for example by a plugin, and
+ * lines can be dispatched from any thread while commands are registered.
+ *
+ * @param <C> The type of the object the commands act upon.
+ * @author Dr Timothy C. Lethbridge
+ * @author Dr Robert Lagani&egrave;re
+ * @version October 2026
+ */
+public class CommandRegistry<C> {
+    //Class variables *************************************************
+
+    /**
+     * The character that starts every command.
+     */
+    final public static char PREFIX = '#';
+
+    //Instance variables **********************************************
+
+    /**
+     * The root of the trie, matching the empty name.
+     */
+    private final Node root = new Node('\0');
+
+    /**
+     * The help line of each command, in the order of registration.
+     */
+    private final List<String> usage = new ArrayList<String>();
+
+    //Instance methods ************************************************
+
+    /**
+     * Registers a command.
+     *
+     * @param name    The name of the command, without the prefix.
+     * @param usage   The help line of the command, or null for none.
+     * @param command The code handling the command.
+     * @throws IllegalArgumentException if the name is empty, contains a
+     *                                  space or is already registered.
+     */
+    public synchronized void register(String name, String usage, Command<C> command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (name.isEmpty() || name.indexOf(' ') >= 0) {
+            throw new IllegalArgumentException("Invalid command name: " + name);
+        }
+
+        Node node = root;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.addChild(name.charAt(i));
+        }
+        if (node.command != null) {
+            throw new IllegalArgumentException("Command already registered: " + name);
+        }
+        node.command = command;
+        if (usage != null) {
+            this.usage.add(usage);
+        }
+    }
+
+    /**
+     * Indicates if a command is registered.
+     *
+     * @param name The name of the command, without the prefix.
+     * @return true if the command is registered.
+     */
+    public boolean isRegistered(String name) {
+        Node node = root;
+        for (int i = 0; i < name.length() && node != null; i++) {
+            node = node.child(name.charAt(i));
+        }
+        return node != null && node.command != null;
+    }
+
+    /**
+     * Returns the help lines of the commands, in the order they were
+     * registered.
+     *
+     * @return the help lines.
+     */
+    public synchronized List<String> getUsage() {
+        return new ArrayList<String>(usage);
+    }
+
+    /**
+     * Executes the command of a line, if it has one. The command is the
+     * word following the prefix, and its argument is what follows the
+     * first space.
+     *
+     * @param context The object the command acts upon.
+     * @param line    The line.
+     * @return true if the line was handled by a command, false if it
+     *         does not start with the prefix or if its command is unknown.
+     * @throws IOException if the command throws it.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean dispatch(C context, String line) throws IOException {
+        int length = line.length();
+        if (length < 2 || line.charAt(0) != PREFIX) {
+            return false;
+        }
+
+        Node node = root;
+        int i = 1;
+        for (; i < length; i++) {
+            char c = line.charAt(i);
+            if (c == ' ') {
+                break;
+            }
+            node = node.child(c);
+            if (node == null) {
+                return false;
+            }
+        }
+
+        Command<C> command = (Command<C>) node.command;
+        if (command == null) {
+            return false;
+        }
+        command.execute(context, line, i < length ? i + 1 : length);
+        return true;
+    }
+
+    //Nested classes **************************************************
+
+    /**
+     * The code handling a command.
+     *
+     * @param <C> The type of the object the command acts upon.
+     */
+    public interface Command<C> {
+        /**
+         * Executes the command.
+         *
+         * @param context  The object the command acts upon.
+         * @param line     The whole line, including the command.
+         * @param argument The position of the argument in the line, which
+         *                 is the length of the line if there is none.
+         * @throws IOException if the command cannot be carried out.
+         */
+        void execute(C context, String line, int argument) throws IOException;
+    }
+
+    /**
+     * A node of the trie. Its children are kept in an array that is
+     * replaced, never modified, so that it can be read without locking.
+     */
+    private static final class Node {
+        private static final Node[] NONE = new Node[0];
+
+        final char key;
+        volatile Node[] children = NONE;
+        volatile Command<?> command;
+
+        Node(char key) {
+            this.key = key;
+        }
+
+        Node child(char c) {
+            Node[] current = children;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].key == c) {
+                    return current[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the child for a character, creating it if needed.
+         * Called with the lock of the registry held.
+         */
+        Node addChild(char c) {
+            Node node = child(c);
+            if (node == null) {
+                node = new Node(c);
+                Node[] current = children;
+                Node[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = node;
+                children = updated;
+            }
+            return node;
+        }
+    }
+}
+//End of CommandRegistry class
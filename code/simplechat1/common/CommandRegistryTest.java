@@ -0,0 +1,174 @@
+// This file contains material supporting section 3.7 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package common;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class checks the dispatch of the commands by the
+ * <code>CommandRegistry</code>: which lines reach which command, with
+ * the position of which argument, and which names can be registered.
+ * <p>
+ * Type <code>java common.CommandRegistryTest</code> to run it. Each
+ * failed check is printed, and the exit status is the number of failed
+ * checks.
+ *
+ * @author Dr Timothy C. Lethbridge
+ * @author Dr Robert Lagani&egrave;re
+ * @version October 2026
+ */
+public class CommandRegistryTest {
+    //Class variables *************************************************
+
+    /**
+     * The number of checks that failed.
+     */
+    private static int failures = 0;
+
+    //Class methods ***************************************************
+
+    /**
+     * Runs the checks.
+     *
+     * @param args Not used.
+     */
+    public static void main(String[] args) throws Exception {
+        testDispatch();
+        testNotDispatched();
+        testRegister();
+        testUsage();
+        testException();
+        testRegisterWhileDispatching();
+
+        System.out.println(failures == 0 ? "All checks passed" : failures + " checks failed");
+        System.exit(failures);
+    }
+
+    /**
+     * Checks that each line reaches its command with the position of its
+     * argument, including commands whose names share a prefix.
+     */
+    private static void testDispatch() throws IOException {
+        CommandRegistry<List<String>> registry = new CommandRegistry<List<String>>();
+        registry.register("join", null, (calls, line, argument) -> calls.add("join:" + line.substring(argument)));
+        registry.register("joinall", null, (calls, line, argument) -> calls.add("joinall:" + line.substring(argument)));
+        registry.register("j", null, (calls, line, argument) -> calls.add("j:" + line.substring(argument)));
+
+        List<String> calls = new ArrayList<String>();
+        check(registry.dispatch(calls, "#join lobby"), "command with an argument");
+        check(registry.dispatch(calls, "#joinall"), "command without an argument");
+        check(registry.dispatch(calls, "#j"), "command of one character");
+        check(registry.dispatch(calls, "#join  two spaces"), "argument starting with a space");
+        check(registry.dispatch(calls, "#join "), "empty argument");
+        check(calls.equals(Arrays.asList("join:lobby", "joinall:", "j:", "join: two spaces", "join:")),
+                "commands called with their arguments: " + calls);
+    }
+
+    /**
+     * Checks that the lines that are not commands are left to the caller.
+     */
+    private static void testNotDispatched() throws IOException {
+        CommandRegistry<List<String>> registry = new CommandRegistry<List<String>>();
+        registry.register("login", null, (calls, line, argument) -> calls.add(line));
+
+        List<String> calls = new ArrayList<String>();
+        String[] lines = {"", "#", "login bob", " #login bob", "#lo", "#logins", "#logi bob", "# login", "#LOGIN bob"};
+        for (String line : lines) {
+            check(!registry.dispatch(calls, line), "not a command: \"" + line + "\"");
+        }
+        check(calls.isEmpty(), "no command called");
+    }
+
+    /**
+     * Checks the names that can be registered.
+     */
+    private static void testRegister() {
+        CommandRegistry<Object> registry = new CommandRegistry<Object>();
+        CommandRegistry.Command<Object> command = (context, line, argument) -> { };
+        registry.register("quit", null, command);
+
+        check(registry.isRegistered("quit"), "command registered");
+        check(!registry.isRegistered("qui") && !registry.isRegistered("quits"), "prefixes not registered");
+        checkRefused(() -> registry.register("quit", null, command), IllegalArgumentException.class, "same name twice");
+        checkRefused(() -> registry.register("", null, command), IllegalArgumentException.class, "empty name");
+        checkRefused(() -> registry.register("log in", null, command), IllegalArgumentException.class, "name with a space");
+        checkRefused(() -> registry.register("logoff", null, null), NullPointerException.class, "no command");
+    }
+
+    /**
+     * Checks that the help lines are kept in the order of registration.
+     */
+    private static void testUsage() {
+        CommandRegistry<Object> registry = new CommandRegistry<Object>();
+        registry.register("b", "#b: second letter", (context, line, argument) -> { });
+        registry.register("hidden", null, (context, line, argument) -> { });
+        registry.register("a", "#a: first letter", (context, line, argument) -> { });
+
+        check(registry.getUsage().equals(Arrays.asList("#b: second letter", "#a: first letter")),
+                "help lines in order of registration: " + registry.getUsage());
+    }
+
+    /**
+     * Checks that the exception of a command reaches the caller.
+     */
+    private static void testException() {
+        CommandRegistry<Object> registry = new CommandRegistry<Object>();
+        registry.register("fail", null, (context, line, argument) -> {
+            throw new IOException("failed");
+        });
+        checkRefused(() -> registry.dispatch(null, "#fail"), IOException.class, "exception of the command");
+    }
+
+    /**
+     * Checks that the commands registered stay reachable while others are
+     * registered by another thread.
+     */
+    private static void testRegisterWhileDispatching() throws Exception {
+        CommandRegistry<Object> registry = new CommandRegistry<Object>();
+        CommandRegistry.Command<Object> command = (context, line, argument) -> { };
+        registry.register("cmd", null, command);
+
+        Thread registering = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                registry.register("cmd" + i, null, command);
+            }
+        });
+        registering.start();
+        boolean found = true;
+        while (registering.isAlive()) {
+            found &= registry.dispatch(null, "#cmd") && !registry.dispatch(null, "#cmdx");
+        }
+        registering.join();
+        check(found, "command reachable during registrations");
+        check(registry.dispatch(null, "#cmd4999 argument"), "command registered by another thread");
+    }
+
+    private static void check(boolean condition, String name) {
+        if (!condition) {
+            failures++;
+            System.out.println("FAILED: " + name);
+        }
+    }
+
+    private static void checkRefused(Action action, Class<? extends Exception> expected, String name) {
+        try {
+            action.run();
+            check(false, name + " (no exception)");
+        } catch (Exception e) {
+            check(expected.isInstance(e), name + " (" + e + ")");
+        }
+    }
+
+    //Nested classes **************************************************
+
+    /**
+     * An action expected to throw an exception.
+     */
+    private interface Action {
+        void run() throws Exception;
+    }
+}
+//End of CommandRegistryTest class
@@ -0,0 +1,364 @@
+// This file contains material supporting section 3.7 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package server;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * This class writes the log of the chat server without slowing down
+ * the threads of the clients. A thread that logs an event only copies
+ * it into a ring buffer; the text is built and written by a separate
+ * thread, in batches.
+ * <p>
+ * An event is made of a level, a format in which each <code>{}</code>
+ * is replaced by an argument, and up to three arguments. The arguments
+ * are converted to text by the logging thread, so that an event that
+ * is filtered out, sampled out or dropped costs no string operation.
+ * <p>
+ * Events can be filtered by level and sampled: with a sample rate of
+ * 0.01, only one event of the level in a hundred is kept. When the
+ * buffer is full, the events are dropped rather than making the
+ * client threads wait; the number of events dropped is kept.
+ *
+ * @author Dr Timothy C. Lethbridge
+ * @author Dr Robert Lagani&egrave;re
+ * @version October 2026
+ */
+public class AsyncLogger {
+    //Class variables *************************************************
+
+    /**
+     * The default number of events the buffer can hold.
+     */
+    final public static int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * The levels of the events, from the least to the most important.
+     */
+    public enum Level {
+        DEBUG, INFO, WARNING, ERROR, OFF
+    }
+
+    //Instance variables **********************************************
+
+    /**
+     * The events. A slot is free for the producer whose position equals
+     * its sequence, and ready for the logging thread when its sequence
+     * is one more than that position.
+     */
+    private final Event[] ring;
+
+    private final int mask;
+
+    /**
+     * The position of the next event to be logged.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The position of the next event to be written. Only used by the
+     * logging thread.
+     */
+    private long head = 0;
+
+    /**
+     * Where the events are written.
+     */
+    private final PrintStream out;
+
+    /**
+     * The thread writing the events.
+     */
+    private final Thread writer;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Indicates if the logging thread is about to park because there is
+     * nothing to write, so that the thread logging the next event wakes
+     * it up.
+     */
+    private volatile boolean waiting = false;
+
+    /**
+     * The least important level logged.
+     */
+    private volatile Level level = Level.DEBUG;
+
+    /**
+     * The fraction of the events of each level that is logged. The
+     * array is replaced, never modified.
+     */
+    private volatile double[] sampleRates = new double[Level.values().length];
+
+    private final LongAdder dropped = new LongAdder();
+
+    //Constructors ****************************************************
+
+    /**
+     * Constructs a logger writing to the standard output.
+     */
+    public AsyncLogger() {
+        this(System.out, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a logger.
+     *
+     * @param out      Where the events are written.
+     * @param capacity The number of events the buffer can hold, rounded
+     *                 up to a power of two.
+     */
+    public AsyncLogger(PrintStream out, int capacity) {
+        int size = capacity <= 1 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.out = out;
+        this.ring = new Event[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Event(i);
+        }
+        Arrays.fill(sampleRates, 1.0);
+
+        writer = new Thread(this::writeEvents, "Chat server logger");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    //Instance methods ************************************************
+
+    /**
+     * Sets the least important level logged. Level <code>OFF</code>
+     * turns off the log.
+     *
+     * @param level The level.
+     */
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Returns the least important level logged.
+     *
+     * @return the level.
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the fraction of the events of a level that is logged.
+     *
+     * @param level The level.
+     * @param rate  The fraction, from 0 (none) to 1 (all).
+     */
+    public synchronized void setSampleRate(Level level, double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Invalid sample rate: " + rate);
+        }
+        double[] updated = sampleRates.clone();
+        updated[level.ordinal()] = rate;
+        sampleRates = updated;
+    }
+
+    /**
+     * Returns the fraction of the events of a level that is logged.
+     *
+     * @param level The level.
+     * @return the fraction.
+     */
+    public double getSampleRate(Level level) {
+        return sampleRates[level.ordinal()];
+    }
+
+    /**
+     * Returns the number of events dropped because the buffer was full.
+     *
+     * @return the number of events.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Indicates if an event of a level would be logged, before sampling.
+     *
+     * @param level The level.
+     * @return true if the level is logged.
+     */
+    public boolean isLoggable(Level level) {
+        return level.compareTo(this.level) >= 0 && level != Level.OFF;
+    }
+
+    /**
+     * Logs an event of level <code>DEBUG</code>.
+     */
+    public void debug(String format, Object arg1, Object arg2) {
+        log(Level.DEBUG, format, arg1, arg2, null);
+    }
+
+    /**
+     * Logs an event of level <code>DEBUG</code>.
+     */
+    public void debug(String format, Object arg1, Object arg2, Object arg3) {
+        log(Level.DEBUG, format, arg1, arg2, arg3);
+    }
+
+    /**
+     * Logs an event of level <code>INFO</code>.
+     */
+    public void info(String format) {
+        log(Level.INFO, format, null, null, null);
+    }
+
+    /**
+     * Logs an event of level <code>INFO</code>.
+     */
+    public void info(String format, Object arg1) {
+        log(Level.INFO, format, arg1, null, null);
+    }
+
+    /**
+     * Logs an event of level <code>WARNING</code>.
+     */
+    public void warning(String format, Object arg1) {
+        log(Level.WARNING, format, arg1, null, null);
+    }
+
+    /**
+     * Logs an event.
+     *
+     * @param level  The level of the event.
+     * @param format The text of the event, in which each <code>{}</code>
+     *               is replaced by the next argument.
+     * @param arg1   The first argument, or null.
+     * @param arg2   The second argument, or null.
+     * @param arg3   The third argument, or null.
+     */
+    public void log(Level level, String format, Object arg1, Object arg2, Object arg3) {
+        if (!isLoggable(level) || closed) {
+            return;
+        }
+        double rate = sampleRates[level.ordinal()];
+        if (rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate) {
+            return;
+        }
+
+        Event event;
+        long position;
+        while (true) {
+            position = tail.get();
+            event = ring[(int) position & mask];
+            long sequence = event.sequence;
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                dropped.increment(); //the buffer is full
+                return;
+            }
+        }
+        event.format = format;
+        event.arg1 = arg1;
+        event.arg2 = arg2;
+        event.arg3 = arg3;
+        event.sequence = position + 1; //publishes the event
+        if (waiting) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Writes the events remaining and stops the logging thread.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The loop of the logging thread.
+     */
+    private void writeEvents() {
+        StringBuilder batch = new StringBuilder(4096);
+        while (true) {
+            boolean stopping = closed;
+            while (true) {
+                Event event = ring[(int) head & mask];
+                if (event.sequence != head + 1) {
+                    break;
+                }
+                event.appendTo(batch);
+                batch.append(System.lineSeparator());
+                event.clear();
+                event.sequence = head + ring.length; //frees the slot
+                head++;
+            }
+            if (batch.length() > 0) {
+                out.print(batch);
+                out.flush();
+                batch.setLength(0);
+            } else if (stopping) {
+                return;
+            } else {
+                waiting = true;
+                if (ring[(int) head & mask].sequence != head + 1 && !closed) {
+                    LockSupport.park(this); //until an event is logged or the logger is closed
+                }
+                waiting = false;
+            }
+        }
+    }
+
+    //Nested classes **************************************************
+
+    /**
+     * A slot of the ring buffer.
+     */
+    private static final class Event {
+        volatile long sequence;
+        String format;
+        Object arg1;
+        Object arg2;
+        Object arg3;
+
+        Event(long sequence) {
+            this.sequence = sequence;
+        }
+
+        void appendTo(StringBuilder text) {
+            int next = 0;
+            int start = 0;
+            int mark;
+            while (next < 3 && (mark = format.indexOf("{}", start)) >= 0) {
+                text.append(format, start, mark).append(next == 0 ? arg1 : next == 1 ? arg2 : arg3);
+                next++;
+                start = mark + 2;
+            }
+            text.append(format, start, format.length());
+        }
+
+        void clear() {
+            format = null;
+            arg1 = null;
+            arg2 = null;
+            arg3 = null;
+        }
+    }
+}
+//End of AsyncLogger class
@@ -0,0 +1,494 @@
+// This file contains material supporting section 3.7 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package server;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * This class keeps the history of the chat rooms on disk, so that the
+ * messages sent before a client logged on can be shown to it.
+ * <p>
+ * The messages are appended to segment files of fixed size, mapped in
+ * memory. When a segment is full, a new one is started, and the oldest
+ * ones are deleted so that only a fixed number is kept. The segments
+ * found in the directory when the journal is opened are read back, so
+ * that the history survives a restart of the server.
+ * <p>
+ * A client thread never writes to the files: <code>append</code> only
+ * puts the message in a queue, and the messages are written by the
+ * thread of the journal. If the queue is full the message is not
+ * journaled, and the number of such messages is kept.
+ * <p>
+ * The time and position of every message are kept in memory, by
+ * segment. The history of a room is read with no lock and no system
+ * call: the last messages are found from the end of this index, the
+ * messages since a time by a binary search, and their text is read
+ * directly from the mapped segments.
+ * <p>
+ * A record in a segment is made of its length, its time, the length of
+ * the name of its room, the name of the room and the text, in UTF-8. A
+ * length of 0 marks the end of the records of a segment.
+ *
+ * @author Dr Timothy C. Lethbridge
+ * @author Dr Robert Lagani&egrave;re
+ * @version October 2026
+ */
+public class ChatJournal {
+    //Class variables *************************************************
+
+    /**
+     * The default size of a segment, in bytes.
+     */
+    final public static int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The default number of segments kept.
+     */
+    final public static int DEFAULT_SEGMENT_COUNT = 8;
+
+    /**
+     * The number of messages the queue can hold.
+     */
+    final public static int QUEUE_CAPACITY = 65536;
+
+    /**
+     * The extension of the segment files.
+     */
+    private static final String EXTENSION = ".journal";
+
+    /**
+     * The size of the fields preceding the name of the room in a record.
+     */
+    private static final int HEADER = 4 + 8 + 2;
+
+    //Instance variables **********************************************
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int segmentCount;
+
+    /**
+     * The segments, from the oldest to the newest. The array is
+     * replaced, never modified.
+     */
+    private volatile Segment[] segments;
+
+    /**
+     * The messages waiting to be written.
+     */
+    private final BlockingQueue<Message> queue =
+            new ArrayBlockingQueue<Message>(QUEUE_CAPACITY);
+
+    private final Thread writer;
+
+    private volatile boolean closed = false;
+
+    /**
+     * The time of the last message written. Only used by the thread of
+     * the journal.
+     */
+    private long lastTime = 0;
+
+    private final LongAdder dropped = new LongAdder();
+
+    //Constructors ****************************************************
+
+    /**
+     * Opens the journal kept in a directory, with the default size and
+     * number of segments.
+     *
+     * @param directory The directory of the segments.
+     * @throws IOException if the directory or its segments cannot be
+     *                     opened.
+     */
+    public ChatJournal(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_SEGMENT_COUNT);
+    }
+
+    /**
+     * Opens the journal kept in a directory. The directory is created
+     * if needed.
+     *
+     * @param directory    The directory of the segments.
+     * @param segmentSize  The size of a segment, in bytes.
+     * @param segmentCount The number of segments kept.
+     * @throws IOException if the directory or its segments cannot be
+     *                     opened.
+     */
+    public ChatJournal(File directory, int segmentSize, int segmentCount) throws IOException {
+        if (segmentSize <= HEADER || segmentCount < 1) {
+            throw new IllegalArgumentException("Invalid journal size");
+        }
+        this.directory = directory.toPath();
+        this.segmentSize = segmentSize;
+        this.segmentCount = segmentCount;
+        Files.createDirectories(this.directory);
+
+        List<Segment> found = new ArrayList<Segment>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    found.add(new Segment(Long.parseLong(name.substring(0, name.length() - EXTENSION.length())), file, 0));
+                } catch (NumberFormatException e) {
+                    // Not a segment
+                }
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.number, b.number));
+        if (found.isEmpty()) {
+            found.add(createSegment(1));
+        }
+        segments = found.toArray(new Segment[0]);
+        lastTime = segments[segments.length - 1].lastTime();
+        deleteOldSegments();
+
+        writer = new Thread(this::writeMessages, "Chat journal");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    //Instance methods ************************************************
+
+    /**
+     * Queues a message to be journaled. Never blocks.
+     *
+     * @param room The room the message was sent to.
+     * @param text The text of the message.
+     * @return true if the message was queued, false if the queue is full
+     *         or the journal is closed.
+     */
+    public boolean append(String room, String text) {
+        if (closed || !queue.offer(new Message(room, text))) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the last messages sent to a room, from the oldest to the
+     * newest. Messages still in the queue are not included.
+     *
+     * @param room  The room.
+     * @param count The maximum number of messages.
+     * @return the messages.
+     */
+    public List<String> lastMessages(String room, int count) {
+        LinkedList<String> messages = new LinkedList<String>();
+        Segment[] current = segments;
+        for (int s = current.length - 1; s >= 0 && messages.size() < count; s--) {
+            Segment segment = current[s];
+            int size = segment.size;
+            Index index = segment.index;
+            for (int i = size - 1; i >= 0 && messages.size() < count; i--) {
+                if (room.equals(index.rooms[i])) {
+                    messages.addFirst(segment.text(index.offsets[i]));
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Returns the messages sent to a room since a time, from the oldest
+     * to the newest. Messages still in the queue are not included.
+     *
+     * @param room  The room.
+     * @param time  The time, in milliseconds since the epoch.
+     * @param count The maximum number of messages.
+     * @return the messages.
+     */
+    public List<String> messagesSince(String room, long time, int count) {
+        List<String> messages = new ArrayList<String>();
+        Segment[] current = segments;
+        for (int s = 0; s < current.length && messages.size() < count; s++) {
+            Segment segment = current[s];
+            int size = segment.size;
+            Index index = segment.index;
+            if (size == 0 || index.times[size - 1] < time) {
+                continue;
+            }
+            int first = Arrays.binarySearch(index.times, 0, size, time);
+            if (first < 0) {
+                first = -first - 1;
+            }
+            while (first > 0 && index.times[first - 1] == time) {
+                first--; //binarySearch finds any of the equal times
+            }
+            for (int i = first; i < size && messages.size() < count; i++) {
+                if (room.equals(index.rooms[i])) {
+                    messages.add(segment.text(index.offsets[i]));
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Returns the number of messages that could not be journaled
+     * because the queue was full.
+     *
+     * @return the number of messages.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of segments on disk.
+     *
+     * @return the number of segments.
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Writes the messages remaining, forces the last segment to disk and
+     * stops the thread of the journal.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The loop of the thread of the journal.
+     */
+    private void writeMessages() {
+        List<Message> batch = new ArrayList<Message>();
+        while (true) {
+            try {
+                Message message = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (message != null) {
+                    batch.add(message);
+                }
+            } catch (InterruptedException e) {
+                // Write what remains
+            }
+            queue.drainTo(batch);
+            for (Message message : batch) {
+                try {
+                    write(message);
+                } catch (IOException e) {
+                    dropped.increment(); //a new segment could not be created
+                }
+            }
+            batch.clear();
+            if (closed && queue.isEmpty()) {
+                segments[segments.length - 1].map.force();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes a message to the last segment, starting a new one if
+     * needed. Only called by the thread of the journal.
+     */
+    private void write(Message message) throws IOException {
+        byte[] room = message.room.getBytes(StandardCharsets.UTF_8);
+        byte[] text = message.text.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER + room.length + text.length;
+        if (length + 4 > segmentSize || room.length > Short.MAX_VALUE) {
+            dropped.increment(); //too large for any segment
+            return;
+        }
+
+        Segment segment = segments[segments.length - 1];
+        if (segment.limit + length + 4 > segmentSize) {
+            segment.map.force();
+            segment = createSegment(segment.number + 1);
+            Segment[] current = segments;
+            Segment[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = segment;
+            segments = updated;
+            deleteOldSegments();
+        }
+
+        long time = Math.max(lastTime, System.currentTimeMillis()); //keeps the times ordered
+        lastTime = time;
+
+        ByteBuffer map = segment.map;
+        int offset = segment.limit;
+        map.putInt(offset, length - 4);
+        map.putLong(offset + 4, time);
+        map.putShort(offset + 12, (short) room.length);
+        map.put(offset + HEADER, room);
+        map.put(offset + HEADER + room.length, text);
+        segment.limit = offset + length;
+        segment.add(time, offset, message.room);
+    }
+
+    private Segment createSegment(long number) throws IOException {
+        return new Segment(number, directory.resolve(String.format("%020d%s", number, EXTENSION)), segmentSize);
+    }
+
+    /**
+     * Deletes the oldest segments, keeping the number configured.
+     */
+    private void deleteOldSegments() throws IOException {
+        Segment[] current = segments;
+        if (current.length <= segmentCount) {
+            return;
+        }
+        int extra = current.length - segmentCount;
+        segments = Arrays.copyOfRange(current, extra, current.length);
+        for (int i = 0; i < extra; i++) {
+            Files.deleteIfExists(current[i].file); //readers still hold the mapping
+        }
+    }
+
+    //Nested classes **************************************************
+
+    /**
+     * A message waiting to be written.
+     */
+    private static final class Message {
+        final String room;
+        final String text;
+
+        Message(String room, String text) {
+            this.room = room;
+            this.text = text;
+        }
+    }
+
+    /**
+     * The time, position and room of the messages of a segment. The
+     * arrays are replaced by larger copies when they are full; the
+     * entries up to the size of the segment are never modified.
+     */
+    private static final class Index {
+        final long[] times;
+        final int[] offsets;
+        final String[] rooms;
+
+        Index(int capacity) {
+            times = new long[capacity];
+            offsets = new int[capacity];
+            rooms = new String[capacity];
+        }
+
+        Index(Index index, int capacity) {
+            times = Arrays.copyOf(index.times, capacity);
+            offsets = Arrays.copyOf(index.offsets, capacity);
+            rooms = Arrays.copyOf(index.rooms, capacity);
+        }
+    }
+
+    /**
+     * A segment file, mapped in memory, and its index.
+     */
+    private static final class Segment {
+        final long number;
+        final Path file;
+        final MappedByteBuffer map;
+
+        /**
+         * The position of the end of the last record. Only used by the
+         * thread of the journal.
+         */
+        int limit = 0;
+
+        volatile Index index = new Index(1024);
+
+        /**
+         * The number of messages in the index. Written after the entry
+         * of the message, so that readers only see complete entries.
+         */
+        volatile int size = 0;
+
+        /**
+         * Maps a segment file, creating it with the given size if it
+         * does not exist, and reads back its records.
+         */
+        Segment(long number, Path file, int size) throws IOException {
+            this.number = number;
+            this.file = file;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+            }
+            recover();
+        }
+
+        /**
+         * Rebuilds the index from the records of the file.
+         */
+        private void recover() {
+            Map<String, String> names = new HashMap<String, String>();
+            int capacity = map.capacity();
+            while (limit + HEADER <= capacity) {
+                int length = map.getInt(limit);
+                if (length <= 0 || limit + 4 + length > capacity) {
+                    break;
+                }
+                int roomLength = map.getShort(limit + 12);
+                if (roomLength < 0 || HEADER + roomLength > 4 + length) {
+                    break;
+                }
+                long time = map.getLong(limit + 4);
+                byte[] room = new byte[roomLength];
+                map.get(limit + HEADER, room);
+                String name = new String(room, StandardCharsets.UTF_8);
+                String shared = names.putIfAbsent(name, name);
+                add(time, limit, shared == null ? name : shared);
+                limit += 4 + length;
+            }
+        }
+
+        long lastTime() {
+            return size == 0 ? 0 : index.times[size - 1];
+        }
+
+        /**
+         * Adds a message to the index. Only called by the thread of the
+         * journal.
+         */
+        void add(long time, int offset, String room) {
+            Index current = index;
+            int n = size;
+            if (n == current.times.length) {
+                current = new Index(current, n * 2);
+                index = current;
+            }
+            current.times[n] = time;
+            current.offsets[n] = offset;
+            current.rooms[n] = room;
+            size = n + 1;
+        }
+
+        /**
+         * Reads the text of the record at an offset.
+         */
+        String text(int offset) {
+            int length = map.getInt(offset);
+            int roomLength = map.getShort(offset + 12);
+            byte[] text = new byte[length + 4 - HEADER - roomLength];
+            map.get(offset + HEADER + roomLength, text);
+            return new String(text, StandardCharsets.UTF_8);
+        }
+    }
+}
+//End of ChatJournal class
@@ -0,0 +1,461 @@
+// This file contains material supporting section 3.7 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com
+
+package server;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import ocsf.server.*;
+
+/**
+ * This class keeps the private messages sent to users who are not
+ * logged on, and delivers them when they log on again.
+ * <p>
+ * Every login ID that has logged on has a mailbox, up to a limit on
+ * the number of mailboxes. When a new login ID logs on and the limit is
+ * reached, the empty mailboxes of the users who are offline and have
+ * logged on the least recently are removed; a mailbox holding messages
+ * is never removed. If none can be removed, the login ID gets no
+ * mailbox. A mailbox keeps its
+ * first messages in memory; once they are full, the following messages
+ * are appended to a file, and read back as the messages in memory are
+ * delivered. A mailbox is bounded: when it is full, new messages are
+ * refused.
+ * <p>
+ * A mailbox is delivered by the threads of the store, never by the
+ * thread of a client. Its messages are sent in batches, each batch
+ * being a single message to the client. After each batch the delivery
+ * goes back to the end of the queue of the store, so that a user with
+ * thousands of messages does not hold up the others. A message is only
+ * removed from its mailbox once it has been sent, so that the messages
+ * that could not be delivered are kept.
+ * <p>
+ * The files of the mailboxes are deleted when the store is created, as
+ * the messages kept in memory do not survive a restart of the server.
+ * It is safe to use from the threads of all the clients.
+ *
+ * @author Dr Timothy C. Lethbridge
+ * @author Dr Robert Lagani&egrave;re
+ * @version October 2026
+ */
+public class MailboxStore {
+    //Class variables *************************************************
+
+    /**
+     * The default number of messages a mailbox keeps in memory.
+     */
+    final public static int DEFAULT_MEMORY_CAPACITY = 100;
+
+    /**
+     * The default number of messages a mailbox can hold.
+     */
+    final public static int DEFAULT_CAPACITY = 10000;
+
+    /**
+     * The default number of mailboxes the store can hold.
+     */
+    final public static int DEFAULT_MAX_MAILBOXES = 10000;
+
+    /**
+     * The number of messages sent in a batch.
+     */
+    final public static int BATCH_SIZE = 50;
+
+    /**
+     * The number of threads delivering the mailboxes.
+     */
+    private static final int DELIVERY_THREADS = 2;
+
+    private static final String EXTENSION = ".mailbox";
+
+    //Instance variables **********************************************
+
+    private final Path directory;
+
+    private final int memoryCapacity;
+
+    private final int capacity;
+
+    private final int maxMailboxes;
+
+    /**
+     * The mailboxes, by login ID. Mailboxes are only added and removed
+     * while holding the lock of the store.
+     */
+    private final ConcurrentMap<String, Mailbox> mailboxes =
+            new ConcurrentHashMap<String, Mailbox>();
+
+    /**
+     * The threads delivering the mailboxes.
+     */
+    private final ExecutorService delivery;
+
+    //Constructors ****************************************************
+
+    /**
+     * Constructs a store with the default capacities.
+     *
+     * @param directory The directory of the files of the mailboxes.
+     * @throws IOException if the directory cannot be created or emptied.
+     */
+    public MailboxStore(File directory) throws IOException {
+        this(directory, DEFAULT_MEMORY_CAPACITY, DEFAULT_CAPACITY, DEFAULT_MAX_MAILBOXES);
+    }
+
+    /**
+     * Constructs a store.
+     *
+     * @param directory      The directory of the files of the mailboxes.
+     * @param memoryCapacity The number of messages a mailbox keeps in
+     *                       memory.
+     * @param capacity       The number of messages a mailbox can hold.
+     * @param maxMailboxes   The number of mailboxes the store can hold.
+     * @throws IOException if the directory cannot be created or emptied.
+     */
+    public MailboxStore(File directory, int memoryCapacity, int capacity, int maxMailboxes) throws IOException {
+        if (memoryCapacity < 1 || capacity < memoryCapacity) {
+            throw new IllegalArgumentException("Invalid mailbox capacity");
+        }
+        if (maxMailboxes < 1) {
+            throw new IllegalArgumentException("Invalid number of mailboxes");
+        }
+        this.directory = directory.toPath();
+        this.memoryCapacity = memoryCapacity;
+        this.capacity = capacity;
+        this.maxMailboxes = maxMailboxes;
+
+        Files.createDirectories(this.directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+
+        delivery = Executors.newFixedThreadPool(DELIVERY_THREADS, task -> {
+            Thread thread = new Thread(task, "Mailbox delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //Instance methods ************************************************
+
+    /**
+     * Creates the mailbox of a login ID, if it does not have one yet.
+     * Called when a user logs on. If the store is full, the empty
+     * mailboxes of the users offline that logged on the least recently
+     * are removed first.
+     *
+     * @param logInID The login ID.
+     * @param client  The connection of the client logged on with it.
+     * @return true if the login ID has a mailbox, false if the store is
+     *         full and no mailbox could be removed.
+     */
+    public boolean open(String logInID, ConnectionToClient client) {
+        Mailbox mailbox = mailboxes.get(logInID);
+        if (mailbox == null) {
+            synchronized (this) {
+                mailbox = mailboxes.get(logInID);
+                if (mailbox == null) {
+                    if (mailboxes.size() >= maxMailboxes && !evict()) {
+                        return false;
+                    }
+                    mailbox = createMailbox(logInID);
+                    mailboxes.put(logInID, mailbox);
+                }
+            }
+        }
+        mailbox.recipient = client; //online, so that it cannot be removed
+        mailbox.lastLogIn = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Returns the number of mailboxes.
+     *
+     * @return the number of mailboxes.
+     */
+    public int getMailboxCount() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Indicates if a login ID has a mailbox, that is if it has logged on
+     * since the server started.
+     *
+     * @param logInID The login ID.
+     * @return true if the login ID has a mailbox.
+     */
+    public boolean isKnown(String logInID) {
+        return mailboxes.containsKey(logInID);
+    }
+
+    /**
+     * Puts a message in the mailbox of a login ID.
+     *
+     * @param logInID The login ID.
+     * @param message The message.
+     * @return true if the message was kept, false if the login ID has no
+     *         mailbox or if its mailbox is full.
+     */
+    public boolean deposit(String logInID, String message) {
+        Mailbox mailbox = mailboxes.get(logInID);
+        try {
+            return mailbox != null && mailbox.add(message);
+        } catch (IOException e) {
+            return false; //the message could not be written to the file
+        }
+    }
+
+    /**
+     * Returns the number of messages in the mailbox of a login ID.
+     *
+     * @param logInID The login ID.
+     * @return the number of messages.
+     */
+    public int size(String logInID) {
+        Mailbox mailbox = mailboxes.get(logInID);
+        return mailbox == null ? 0 : mailbox.size();
+    }
+
+    /**
+     * Starts the delivery of the mailbox of a login ID to a client. If
+     * the mailbox is already being delivered, the following batches go
+     * to this client, which is the latest to log on with the login ID.
+     * Returns immediately.
+     *
+     * @param logInID The login ID.
+     * @param client  The connection of the client logged on with it.
+     */
+    public void deliver(String logInID, ConnectionToClient client) {
+        Mailbox mailbox = mailboxes.get(logInID);
+        if (mailbox == null) {
+            return;
+        }
+        mailbox.recipient = client;
+        if (mailbox.size() > 0 && mailbox.delivering.compareAndSet(false, true)) {
+            delivery.execute(() -> deliverBatch(mailbox));
+        }
+    }
+
+    /**
+     * Sends the next batch of a mailbox to the latest client logged on
+     * with its login ID, then queues the delivery of the following one.
+     */
+    private void deliverBatch(Mailbox mailbox) {
+        ConnectionToClient client = mailbox.recipient;
+        boolean failed = false;
+        try {
+            List<String> batch = mailbox.peek(BATCH_SIZE);
+            if (!batch.isEmpty() && client.isAlive()) {
+                int remaining = mailbox.size() - batch.size();
+                StringBuilder text = new StringBuilder("Received while you were offline ("
+                        + batch.size() + (remaining > 0 ? ", " + remaining + " more to come" : "") + "):");
+                for (String message : batch) {
+                    text.append(System.lineSeparator()).append(message);
+                }
+                client.sendToClient(text.toString());
+                mailbox.remove(batch.size());
+                if (mailbox.size() > 0) {
+                    delivery.execute(() -> deliverBatch(mailbox));
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            failed = true; //the client disconnected; the messages not sent are kept
+        }
+        mailbox.delivering.set(false);
+
+        // A message came in, or the user logged on again, meanwhile
+        ConnectionToClient latest = mailbox.recipient;
+        if (mailbox.size() > 0 && latest.isAlive() && (latest != client || !failed)
+                && mailbox.delivering.compareAndSet(false, true)) {
+            delivery.execute(() -> deliverBatch(mailbox));
+        }
+    }
+
+    /**
+     * Removes the empty mailboxes of the users offline, a tenth of the
+     * limit at most, starting with those who logged on the least
+     * recently, so that the removals are not repeated at every log on.
+     *
+     * @return true if a mailbox was removed.
+     */
+    private synchronized boolean evict() {
+        List<Map.Entry<String, Mailbox>> idle = new ArrayList<Map.Entry<String, Mailbox>>();
+        for (Map.Entry<String, Mailbox> entry : mailboxes.entrySet()) {
+            if (entry.getValue().isIdle()) {
+                idle.add(entry);
+            }
+        }
+        idle.sort((a, b) -> Long.compare(a.getValue().lastLogIn, b.getValue().lastLogIn));
+
+        int removed = 0;
+        for (Map.Entry<String, Mailbox> entry : idle) {
+            if (removed >= Math.max(1, maxMailboxes / 10)) {
+                break;
+            }
+            if (entry.getValue().remove()) {
+                mailboxes.remove(entry.getKey(), entry.getValue());
+                removed++;
+            }
+        }
+        return removed > 0;
+    }
+
+    private Mailbox createMailbox(String logInID) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : logInID.getBytes(StandardCharsets.UTF_8)) {
+            name.append(String.format("%02x", b)); //any login ID gives a valid file name
+        }
+        return new Mailbox(directory.resolve(name + EXTENSION));
+    }
+
+    //Nested classes **************************************************
+
+    /**
+     * The messages of a login ID: the oldest ones in memory, the
+     * following ones in a file.
+     */
+    private final class Mailbox {
+        private final Path file;
+
+        private final ArrayDeque<String> memory = new ArrayDeque<String>();
+
+        /**
+         * The number of messages in the file that have not been read.
+         */
+        private int spilled = 0;
+
+        /**
+         * The position of the first message of the file not read.
+         */
+        private long readPosition = 0;
+
+        /**
+         * Indicates if the mailbox is being delivered.
+         */
+        final AtomicBoolean delivering = new AtomicBoolean();
+
+        /**
+         * The latest client logged on with the login ID, to which the
+         * mailbox is delivered.
+         */
+        volatile ConnectionToClient recipient;
+
+        /**
+         * When the user last logged on, as given by
+         * <code>System.nanoTime()</code>.
+         */
+        volatile long lastLogIn;
+
+        /**
+         * Indicates if the mailbox has been removed from the store, in
+         * which case it accepts no more messages.
+         */
+        private boolean removed = false;
+
+        Mailbox(Path file) {
+            this.file = file;
+        }
+
+        synchronized int size() {
+            return memory.size() + spilled;
+        }
+
+        /**
+         * Adds a message, to the file if messages are already there or if
+         * the memory is full, so that the messages stay in order.
+         */
+        synchronized boolean add(String message) throws IOException {
+            if (removed || size() >= capacity) {
+                return false;
+            }
+            if (spilled == 0 && memory.size() < memoryCapacity) {
+                memory.add(message);
+                return true;
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+                byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            spilled++;
+            return true;
+        }
+
+        /**
+         * Indicates if the mailbox could be removed: it is empty and its
+         * user is offline.
+         */
+        synchronized boolean isIdle() {
+            ConnectionToClient client = recipient;
+            return size() == 0 && (client == null || !client.isAlive());
+        }
+
+        /**
+         * Marks the mailbox as removed if it can still be removed.
+         */
+        synchronized boolean remove() {
+            if (!isIdle()) {
+                return false;
+            }
+            removed = true;
+            return true;
+        }
+
+        /**
+         * Returns the first messages, without removing them. Reads
+         * messages back from the file if there are none in memory.
+         */
+        synchronized List<String> peek(int count) throws IOException {
+            if (memory.isEmpty() && spilled > 0) {
+                readBack();
+            }
+            List<String> messages = new ArrayList<String>(Math.min(count, memory.size()));
+            for (String message : memory) {
+                if (messages.size() == count) {
+                    break;
+                }
+                messages.add(message);
+            }
+            return messages;
+        }
+
+        synchronized void remove(int count) {
+            for (int i = 0; i < count && !memory.isEmpty(); i++) {
+                memory.poll();
+            }
+        }
+
+        /**
+         * Moves messages from the file to the memory. The file is deleted
+         * once all its messages have been read.
+         */
+        private void readBack() throws IOException {
+            try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+                in.seek(readPosition);
+                DataInputStream data = new DataInputStream(new BufferedInputStream(new FileInputStream(in.getFD())));
+                while (spilled > 0 && memory.size() < memoryCapacity) {
+                    byte[] bytes = new byte[data.readInt()];
+                    data.readFully(bytes);
+                    memory.add(new String(bytes, StandardCharsets.UTF_8));
+                    readPosition += 4 + bytes.length;
+                    spilled--;
+                }
+            }
+            if (spilled == 0) {
+                Files.deleteIfExists(file);
+                readPosition = 0;
+            }
+        }
+    }
+}
+//End of MailboxStore class
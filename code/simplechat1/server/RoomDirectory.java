@@ -0,0 +1,167 @@
+// This file contains material supporting section 3.7 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com 
+
+package server;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import ocsf.server.*;
+
+/**
+ * This class keeps the chat rooms of the server and their members.
+ * Each client logged on is in exactly one room, the default room
+ * unless it has joined another one, and its chat lines are only sent
+ * to the members of that room. The cost of a chat line is therefore
+ * bounded by the size of the room instead of the number of clients.
+ * Rooms are created when a first client joins them and disappear
+ * when the last one leaves, except for the default room.
+ * It is safe to use from the threads of all the clients.
+ *
+ * @author Dr Timothy C. Lethbridge
+ * @author Dr Robert Lagani&egrave;re
+ * @version October 2026
+ */
+public class RoomDirectory {
+    //Class variables *************************************************
+
+    /**
+     * The room of the clients that have not joined any other room.
+     */
+    final public static String DEFAULT_ROOM = "general";
+
+    /**
+     * The room of a client, saved in its connection.
+     */
+    final public static AttributeKey<String> ROOM =
+            AttributeKey.create("room", String.class);
+
+    //Instance variables **********************************************
+
+    /**
+     * The members of each room, by room name.
+     */
+    private final ConcurrentMap<String, Set<ConnectionToClient>> rooms =
+            new ConcurrentHashMap<String, Set<ConnectionToClient>>();
+
+    //Instance methods ************************************************
+
+    /**
+     * Moves a client to a room, creating the room if needed.
+     *
+     * @param client The connection of the client.
+     * @param room   The name of the room.
+     * @return the room the client was in, or null if it was in none.
+     */
+    public String join(ConnectionToClient client, String room) {
+        add(room, client);
+        String previous = client.setAttribute(ROOM, room);
+        if (previous != null && !previous.equals(room)) {
+            remove(previous, client);
+        }
+        return previous;
+    }
+
+    /**
+     * Moves a client back to the default room.
+     *
+     * @param client The connection of the client.
+     * @return the room the client was in, or null if it was in none.
+     */
+    public String leave(ConnectionToClient client) {
+        return join(client, DEFAULT_ROOM);
+    }
+
+    /**
+     * Removes a client from its room, when it disconnects.
+     *
+     * @param client The connection of the client.
+     * @return the room the client was in, or null if it was in none.
+     */
+    public String remove(ConnectionToClient client) {
+        String room = client.setAttribute(ROOM, null);
+        if (room != null) {
+            remove(room, client);
+        }
+        return room;
+    }
+
+    /**
+     * Returns the room of a client.
+     *
+     * @param client The connection of the client.
+     * @return the name of the room, or null if the client is in none.
+     */
+    public String getRoom(ConnectionToClient client) {
+        return client.getAttribute(ROOM);
+    }
+
+    /**
+     * Sends a message to every member of a room.
+     *
+     * @param room The name of the room.
+     * @param msg  The message.
+     */
+    public void sendToRoom(String room, Object msg) {
+        Set<ConnectionToClient> members = rooms.get(room);
+        if (members == null) {
+            return;
+        }
+        for (ConnectionToClient member : members) {
+            try {
+                member.sendToClient(msg);
+            } catch (IOException e) {
+                // The member is disconnecting and will be removed
+            }
+        }
+    }
+
+    /**
+     * Returns the number of members of each room, by room name.
+     *
+     * @return the rooms, in alphabetical order.
+     */
+    public SortedMap<String, Integer> getRooms() {
+        SortedMap<String, Integer> result = new TreeMap<String, Integer>();
+        for (Map.Entry<String, Set<ConnectionToClient>> entry : rooms.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().size());
+        }
+        return result;
+    }
+
+    /**
+     * Indicates if a name can be used for a room.
+     *
+     * @param room The name of the room.
+     * @return true if the name is not empty and has no spaces.
+     */
+    public static boolean isValidName(String room) {
+        return room.length() > 0 && room.indexOf(' ') < 0 && !room.startsWith("#");
+    }
+
+    /**
+     * Adds a member to a room, creating the room if needed.
+     */
+    private void add(String room, final ConnectionToClient client) {
+        rooms.compute(room, (name, members) -> {
+            if (members == null) {
+                members = ConcurrentHashMap.newKeySet();
+            }
+            members.add(client);
+            return members;
+        });
+    }
+
+    /**
+     * Removes a member from a room, and the room itself once empty.
+     */
+    private void remove(String room, final ConnectionToClient client) {
+        rooms.computeIfPresent(room, (name, members) -> {
+            members.remove(client);
+            return members.isEmpty() && !name.equals(DEFAULT_ROOM) ? null : members;
+        });
+    }
+}
+//End of RoomDirectory class
@@ -0,0 +1,100 @@
+// This file contains material supporting section 3.7 of the textbook:
+// "Object Oriented Software Engineering" and is issued under the open-source
+// license found at www.lloseng.com 
+
+package server;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import ocsf.server.*;
+
+/**
+ * This class keeps track of the clients logged on to the chat server,
+ * by login ID. It is used to find a user without going through every
+ * connection, to reject a login ID that is already in use, and to
+ * deliver private messages.
+ * It is safe to use from the threads of all the clients.
+ *
+ * @author Dr Timothy C. Lethbridge
+ * @author Dr Robert Lagani&egrave;re
+ * @version October 2026
+ */
+public class SessionDirectory {
+    //Instance variables **********************************************
+
+    /**
+     * The connections of the clients logged on, by login ID.
+     */
+    private final ConcurrentMap<String, ConnectionToClient> sessions =
+            new ConcurrentHashMap<String, ConnectionToClient>();
+
+    //Instance methods ************************************************
+
+    /**
+     * Registers a client under a login ID, unless that ID is already
+     * used by another client.
+     *
+     * @param logInID The login ID.
+     * @param client  The connection of the client.
+     * @return true if the client is registered, false if the ID is in use.
+     */
+    public boolean logIn(String logInID, ConnectionToClient client) {
+        ConnectionToClient current = sessions.putIfAbsent(logInID, client);
+        return current == null || current == client;
+    }
+
+    /**
+     * Removes a client from the directory. Has no effect if the login ID
+     * is now used by another client.
+     *
+     * @param logInID The login ID.
+     * @param client  The connection of the client.
+     */
+    public void logOff(String logInID, ConnectionToClient client) {
+        if (logInID != null) {
+            sessions.remove(logInID, client);
+        }
+    }
+
+    /**
+     * Returns the connection of the client with a login ID.
+     *
+     * @param logInID The login ID.
+     * @return the connection, or null if no client uses this ID.
+     */
+    public ConnectionToClient lookUp(String logInID) {
+        return sessions.get(logInID);
+    }
+
+    /**
+     * Indicates if a login ID is in use.
+     *
+     * @param logInID The login ID.
+     * @return true if a client is logged on with this ID.
+     */
+    public boolean isLoggedOn(String logInID) {
+        return sessions.containsKey(logInID);
+    }
+
+    /**
+     * Returns the number of clients logged on.
+     *
+     * @return the number of clients.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Returns the login IDs in use, in alphabetical order.
+     *
+     * @return the login IDs.
+     */
+    public List<String> getLogInIDs() {
+        List<String> ids = new ArrayList<String>(sessions.keySet());
+        Collections.sort(ids);
+        return ids;
+    }
+}
+//End of SessionDirectory class
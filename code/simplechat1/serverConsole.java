@@ -1,10 +1,18 @@
 import common.ChatIF;
+import common.CommandRegistry;
+import server.AsyncLogger;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 
 public class serverConsole extends EchoServer implements ChatIF {
 
+    /**
+     * The commands that can be typed on the server console.
+     */
+    private final CommandRegistry<serverConsole> consoleCommands =
+            new CommandRegistry<serverConsole>();
 
     /**
      * Constructs an instance of the echo server.
@@ -13,6 +21,25 @@ public class serverConsole extends EchoServer implements ChatIF {
      */
     public serverConsole(int port) {
         super(port);
+        consoleCommands.register("quit", "#quit: Server terminates.", serverConsole::quit);
+        consoleCommands.register("stop", "#stop: Server no longer listens for new connections.", serverConsole::stop);
+        consoleCommands.register("start", "#start: Server will listen for connections.", serverConsole::start);
+        consoleCommands.register("close", "#close: Server stops listening and terminates all clients.", serverConsole::closeServer);
+        consoleCommands.register("setport", "#setport <port>: Set a new port address.", serverConsole::setPort);
+        consoleCommands.register("getport", "#getport: Returns port address.", serverConsole::getPort);
+        consoleCommands.register("loglevel", "#loglevel <level>: Log only from DEBUG, INFO, WARNING, ERROR or OFF.", serverConsole::setLogLevel);
+        consoleCommands.register("logsample", "#logsample <percent>: Log only a percentage of the messages received.", serverConsole::setLogSample);
+        consoleCommands.register("help", null, serverConsole::help);
+    }
+
+    /**
+     * Returns the commands that can be typed on the server console. New
+     * commands can be registered with it.
+     *
+     * @return the command registry.
+     */
+    public CommandRegistry<serverConsole> getConsoleCommands() {
+        return consoleCommands;
     }
 
     public void serverConsole() {
@@ -25,60 +52,83 @@ public class serverConsole extends EchoServer implements ChatIF {
                 message = fromConsole.readLine();
                 if (!message.startsWith("#")) {  //if message doesn't start with # it deals with it as a object to display
                     display(message);
-                } else {
-                    message = message.substring(1); //removes the # from the string
-                    if (message.equals("quit")) {
-                        this.close();
-                        this.sendToAllClients("#quit");
-                        System.exit(0);
-                    } else if (message.equals("stop")) {
-                        this.stopListening();
-                        sendToAllClients("WARNING - Server has stopped listening for connections."); //sends message from server side to be somewhat backwards compatible
-                    } else if (message.startsWith("setport ")) {
-                        if (this.isListening()) {
-                            System.out.println("Please close server first.");
-                        } else {
-                            try {
-                                message = message.substring(8);
-                                this.setPort(Integer.parseInt(message));
-                            } catch (NumberFormatException e) {
-                                System.out.println("Invalid input. Using default port.");
-                                this.setPort(DEFAULT_PORT);
-                            }
-                            System.out.println("port set to: " + getPort());
-                        }
-                    } else if (message.equals("close")) {
-                        this.stopListening();
-                        sendToAllClients("SERVER SHUTTING DOWN! DISCONNECTING!");
-                        sendToAllClients("Abnormal termination of connection.");
-                        sendToAllClients("#quit");
-                        this.close();
-                    } else if (message.equals("start")) {
-                        if (this.isListening()) {
-                            System.out.println("Server is already listening.");
-                        } else {
-                            this.listen();
-                        }
-                    } else if (message.equals("getport")) {
-                        System.out.println(getPort());
-                    } else if (message.equals("help")) {
-                        System.out.println("#quit: Server terminates.");
-                        System.out.println("#stop: Server no longer listens for new connections.");
-                        System.out.println("#start: Server will listen for connections.");
-                        System.out.println("#close: Server stops listening and terminates all clients.");
-                        System.out.println("#setport <port>: Set a new port address.");
-                        System.out.println("#getport: Returns port address.");
-
-                    } else {
-                        System.out.println("Unrecognized command. For help type #help.");
-                    }
-
+                } else if (!consoleCommands.dispatch(this, message)) {
+                    System.out.println("Unrecognized command. For help type #help.");
                 }
-
             }
         } catch (Exception ex) {
             System.out.println
                     ("Unexpected error while reading from console!");
         }
     }
+
+    private void quit(String command, int argument) throws IOException {
+        this.close();
+        this.sendToAllClients("#quit");
+        System.exit(0);
+    }
+
+    private void stop(String command, int argument) {
+        this.stopListening();
+        sendToAllClients("WARNING - Server has stopped listening for connections."); //sends message from server side to be somewhat backwards compatible
+    }
+
+    private void start(String command, int argument) throws IOException {
+        if (this.isListening()) {
+            System.out.println("Server is already listening.");
+        } else {
+            this.listen();
+        }
+    }
+
+    private void closeServer(String command, int argument) throws IOException {
+        this.stopListening();
+        sendToAllClients("SERVER SHUTTING DOWN! DISCONNECTING!");
+        sendToAllClients("Abnormal termination of connection.");
+        sendToAllClients("#quit");
+        this.close();
+    }
+
+    private void setPort(String command, int argument) {
+        if (this.isListening()) {
+            System.out.println("Please close server first.");
+        } else {
+            try {
+                this.setPort(Integer.parseInt(command.substring(argument)));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input. Using default port.");
+                this.setPort(DEFAULT_PORT);
+            }
+            System.out.println("port set to: " + getPort());
+        }
+    }
+
+    private void getPort(String command, int argument) {
+        System.out.println(getPort());
+    }
+
+    private void setLogLevel(String command, int argument) {
+        try {
+            getLog().setLevel(AsyncLogger.Level.valueOf(command.substring(argument).trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid level. Use DEBUG, INFO, WARNING, ERROR or OFF.");
+        }
+        System.out.println("log level: " + getLog().getLevel());
+    }
+
+    private void setLogSample(String command, int argument) {
+        try {
+            double percent = Double.parseDouble(command.substring(argument));
+            getLog().setSampleRate(AsyncLogger.Level.DEBUG, percent / 100);
+        } catch (IllegalArgumentException e) { //includes NumberFormatException
+            System.out.println("Invalid input. Give a percentage from 0 to 100.");
+        }
+        System.out.println("messages logged: " + getLog().getSampleRate(AsyncLogger.Level.DEBUG) * 100 + "%");
+    }
+
+    private void help(String command, int argument) {
+        for (String line : consoleCommands.getUsage()) {
+            System.out.println(line);
+        }
+    }
 }